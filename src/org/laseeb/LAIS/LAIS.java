@@ -26,6 +26,9 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 import javax.swing.BorderFactory;
@@ -47,6 +50,9 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 
 import org.apache.log4j.Logger;
 import org.apache.log4j.xml.DOMConfigurator;
+import org.laseeb.LAIS.batch.SweepException;
+import org.laseeb.LAIS.engine.BatchRunner;
+import org.laseeb.LAIS.engine.HeadlessController;
 import org.simpleframework.xml.Serializer;
 import org.simpleframework.xml.core.Persister;
 import org.simpleframework.xml.strategy.CycleStrategy;
@@ -94,6 +100,9 @@ public class LAIS {
 	/* Data track module. */
 	private LAISDataTrack dataTrack = null;
 	
+	/* Indicates if batch runs were performed. */
+	private boolean batchDone = false;
+	
 	/* Logger. */
 	private static Logger logger = Logger.getLogger(LAIS.class);
 
@@ -105,9 +114,13 @@ public class LAIS {
 	 * <p>
 	 * If 3 arguments are passed, loads GUI launcher with the indicated XML modules pre-loaded.
 	 * <p>
-	 * If 4 or 5 arguments are passed, LAIS automatically launches in batch mode.
+	 * If 4 or 5 arguments are passed, or if any of the <code>-ticks</code>, <code>-replicates</code>,
+	 * <code>-runs</code>, <code>-threads</code> or <code>-b</code> options are given, LAIS 
+	 * automatically launches in batch mode. Parameter sweeps (<code>-b</code>), several 
+	 * replicates or concurrent runs are performed by a {@link BatchRunner}.
 	 * 
-	 * @param args Command line arguments: [model.xml script.xml data.xml [param.txt] [SIMTICKS]]
+	 * @param args Command line arguments: [model.xml script.xml data.xml [param.txt] [SIMTICKS]] 
+	 * [-ticks SIMTICKS] [-replicates N] [-runs N] [-threads N] [-b batch.xml]
 	 */
 	public LAIS(String[] args) {
 
@@ -119,8 +132,19 @@ public class LAIS {
 			System.err.println(e.getMessage());
 		}
 
-		/* If more than 3 arguments are passed, then run in text mode. */
-		if (args.length > 3)
+		/* Check for the batch options, removing them from the positional arguments. */
+		List<String> argList = new ArrayList<String>(Arrays.asList(args));
+		long optTicks = extractNumericOption(argList, "-ticks");
+		long optReplicates = extractNumericOption(argList, "-replicates");
+		long optRuns = extractNumericOption(argList, "-runs");
+		long optThreads = extractNumericOption(argList, "-threads");
+		String optBatchFile = extractOption(argList, "-b");
+		args = argList.toArray(new String[argList.size()]);
+		boolean batchOpts = (optTicks >= 0) || (optReplicates >= 0) || (optRuns >= 0) 
+				|| (optThreads >= 0) || (optBatchFile != null);
+
+		/* If more than 3 arguments or batch options are passed, then run in text mode. */
+		if ((args.length > 3) || batchOpts)
 			isGui = false;
 		/* Load properties. */
 		laisProperties = new Properties();
@@ -141,7 +165,7 @@ public class LAIS {
 				System.err.println("Can't launch GUI, please run in batch mode.\n");
 				printCommandLineOptions();
 			}
-		} else if (args.length == 3) {
+		} else if ((args.length == 3) && !batchOpts) {
 			/* Load model module. */
 			loadModel(args[0], true);
 			/* Load scripting and event module. */
@@ -155,15 +179,30 @@ public class LAIS {
 				printMessage("Can't launch GUI, please run in batch mode.\n", LAIS.ERROR_MESSAGE);
 				printCommandLineOptions();
 			}
-		} else if ((args.length >= 4) && (args.length <=5)) {
+		} else if ((args.length >= 3) && (args.length <= 5)) {
 			/* Load model module. */
 			loadModel(args[0], true);
 			/* Load scripting and event module. */
 			loadScript(args[1], true);
 			/* Load data tracking module. */
 			loadDataTrack(args[2], true);
+			/* Load parameter sweep, whose settings are overridden by command line options. */
+			LAISBatch batch = null;
+			if (optBatchFile != null) {
+				batch = loadBatch(optBatchFile);
+				if (batch == null)
+					System.exit(-1);
+				if (optReplicates < 0)
+					optReplicates = batch.getReplicates();
+				if (optRuns < 0)
+					optRuns = batch.getRuns();
+				if (optThreads < 0)
+					optThreads = batch.getThreads();
+			}
 			/* Set model max ticks. */
-			if (args.length == 5) {
+			if (optTicks >= 0) {
+				model.setTicks(optTicks);
+			} else if (args.length == 5) {
 				long ticks = DEFAULT_TICKS;
 				try {
 					ticks = Long.parseLong(args[4]);
@@ -172,11 +211,41 @@ public class LAIS {
 					System.exit(-1);
 				}
 				model.setTicks(ticks);
+			} else if ((batch != null) && (batch.getTicks() >= 0)) {
+				model.setTicks(batch.getTicks());
 			} else {
 				model.setTicks(DEFAULT_TICKS);
 			}
 			/* Launch LAIS in batch mode. */
-			launch(true, args[3]);
+			String batchParametersFile = args.length > 3 ? args[3] : null;
+			if ((batch != null) || (optReplicates > 1) || (optRuns > 1)) {
+				BatchRunner runner = new BatchRunner(args[0], args[1], args[2], 
+						batchParametersFile, model.getTicks());
+				if (batch != null)
+					runner.setDesign(batch.getDesign());
+				runner.setReplicates((int) optReplicates);
+				runner.setConcurrentRuns((int) optRuns);
+				if (optThreads > 0)
+					runner.setTotalThreads((int) optThreads);
+				try {
+					int failed = runner.startRuns();
+					if (failed > 0) {
+						printMessage(failed + " batch run(s) failed, see log for details.", LAIS.ERROR_MESSAGE);
+						System.exit(-1);
+					}
+				} catch (IOException ioe) {
+					printMessage("Unable to perform batch runs: " + ioe.getMessage(), LAIS.ERROR_MESSAGE);
+					System.exit(-1);
+				} catch (SweepException se) {
+					printMessage("Invalid parameter sweep: " + se.getMessage(), LAIS.ERROR_MESSAGE);
+					System.exit(-1);
+				}
+				batchDone = true;
+			} else {
+				if (optThreads > 0)
+					model.setNumThreads((int) optThreads);
+				launch(true, batchParametersFile);
+			}
 		} else {
 			printCommandLineOptions();
 		}
@@ -187,19 +256,70 @@ public class LAIS {
 			printMessage("Unable to save properties!", LAIS.ERROR_MESSAGE);
 			System.exit(-1);
 		}
+		/* Batch runs are over, make sure lingering GUI threads don't keep the VM alive. */
+		if (batchDone)
+			System.exit(0);
+	}
+	
+	/* Checks if any of the batch options is given in the arguments. */
+	private static boolean hasBatchOption(String[] args) {
+		List<String> argList = Arrays.asList(args);
+		return argList.contains("-ticks") || argList.contains("-replicates") 
+				|| argList.contains("-runs") || argList.contains("-threads")
+				|| argList.contains("-b");
+	}
+	
+	/* Removes the given option and its value from the arguments, returning 
+	 * the value, or null if the option is not there. */
+	private String extractOption(List<String> args, String option) {
+		int idx = args.indexOf(option);
+		if (idx < 0)
+			return null;
+		if (idx + 1 >= args.size()) {
+			printCommandLineOptions();
+			System.exit(-1);
+		}
+		String value = args.remove(idx + 1);
+		args.remove(idx);
+		return value;
+	}
+	
+	/* Removes the given numeric option and its value from the arguments, returning 
+	 * the value, or -1 if the option is not there. */
+	private long extractNumericOption(List<String> args, String option) {
+		String value = extractOption(args, option);
+		if (value == null)
+			return -1;
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException nfe) {
+			printMessage("'" + value + "'" + " is not a valid integer.", LAIS.ERROR_MESSAGE);
+			System.exit(-1);
+		}
+		return -1;
 	}
 	
 	/* Print command-line options. */
 	private void printCommandLineOptions() {
 		printMessage("Usage: java " 
 				+ LAISModel.class.getName() 
-				+ " [model.xml script.xml data.xml [param.txt] [SIMTICKS]]\n"
+				+ " [model.xml script.xml data.xml [param.txt] [SIMTICKS]] [-ticks SIMTICKS]\n"
+				+ "   [-replicates N] [-runs N] [-threads N] [-b batch.xml]\n"
 				+ " * model.xml - Simulation model (agents, substances, etc).\n"
 				+ " * script.xml - Simulation script.\n"
 				+ " * datatrack.xml - Data to track.\n"
 				+ " * param.txt - Batch mode parameter file.\n"
 				+ " * SIMTICKS - Simulation ticks for batch mode (default: " 
-				+ this.DEFAULT_TICKS + ").\n",
+				+ this.DEFAULT_TICKS + ").\n"
+				+ " * -ticks SIMTICKS - Run in batch mode for the given ticks, in which case\n"
+				+ "   the parameter file is optional.\n"
+				+ " * -replicates N - Number of runs of each parameter point, each one with\n"
+				+ "   its own seed (default: 1).\n"
+				+ " * -runs N - Number of runs performed concurrently (default: 1).\n"
+				+ " * -threads N - Total number of threads, split between concurrent runs\n"
+				+ "   (default: number of processors).\n"
+				+ " * -b batch.xml - Parameter sweep, whose runs are performed\n"
+				+ "   concurrently and whose results are collated.\n",
 				LAIS.INFO_MESSAGE);
 	}
 	
@@ -214,6 +334,19 @@ public class LAIS {
 		/* Set script and data tracker in model. */
 		model.setSimulationScript(script);
 		model.setDataTrack(dataTrack);
+		/* Batch mode runs in LAIS's own tick loop, without Repast's controller or Swing. */
+		if (batch) {
+			try {
+				HeadlessController controller = new HeadlessController(batchParametersFile);
+				controller.setModel(model);
+				controller.startSim();
+			} catch (IOException ioe) {
+				printMessage("Unable to load batch parameters file: " + ioe.getMessage(), LAIS.ERROR_MESSAGE);
+				System.exit(-1);
+			}
+			batchDone = true;
+			return;
+		}
 		/* Initialize Repast. */
 		final SimInit init = new SimInit();
 		/* Finalizing variables for use in inner class. */
@@ -351,6 +484,22 @@ public class LAIS {
 		return false;
 	}
 	
+	/* Loads parameter sweep module. */
+	private LAISBatch loadBatch(String batchFilename) {
+		File batchFile = new File(batchFilename);
+		if (batchFile.exists()) {
+			Serializer serializer = new Persister(new CycleStrategy("id","reference"));
+			try {
+				return serializer.read(LAISBatch.class, batchFile);
+			} catch (Exception e) {
+				printMessage("Not a valid batch XML file. Reason: " + e.getMessage(), LAIS.ERROR_MESSAGE);
+			}
+		} else {
+			printMessage("Batch file not found!", LAIS.ERROR_MESSAGE);
+		}
+		return null;
+	}
+	
 	/* Loads the batch parameters file. */
 	private boolean loadBatchParameters(String batchParamFilename, boolean verbose) {
 		if ((new File(batchParamFilename).exists())) {
@@ -699,8 +848,8 @@ public class LAIS {
 	 * and application launching.
 	 */
 	public static void main(String[] args) {
-		/* Check if GUI capabilities are available. */
-		if (GraphicsEnvironment.isHeadless()) {
+		/* Check if GUI capabilities are available (batch runs don't need them). */
+		if ((args.length > 3) || hasBatchOption(args) || GraphicsEnvironment.isHeadless()) {
 			isGui = false;
 		} else {
 			isGui = true;
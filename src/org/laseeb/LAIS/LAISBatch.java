@@ -0,0 +1,152 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package org.laseeb.LAIS;
+
+import org.laseeb.LAIS.batch.SweepDesign;
+import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.Element;
+import org.simpleframework.xml.Root;
+
+/**
+ * An instance of this class contains the definition of a parameter sweep, i.e. of
+ * a batch of runs of the same model, script and data track with different model
+ * parameters.
+ * <p>
+ * This class is instantiated automatically by LAIS using the 
+ * <strong>XML Batch File</strong>, given with the <code>-b</code> command line option. 
+ * All the data necessary for instantiating this class is given within 
+ * <code>&lt;LAISBatch&gt;</code> tags. For example:
+ * <p>
+ * <code>
+ * &lt;LAISBatch replicates="5" runs="4"&gt;<br>
+ * &nbsp;&nbsp;&lt;design class="org.laseeb.LAIS.batch.FullFactorialDesign"&gt;<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&lt;parameters&gt;<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&lt;parameter name="dt" path="/LAISModel/dt"&gt;<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&lt;value&gt;0.5&lt;&#47;value&gt;&lt;value&gt;1&lt;&#47;value&gt;<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&lt;&#47;parameter&gt;<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&lt;&#47;parameters&gt;<br>
+ * &nbsp;&nbsp;&lt;&#47;design&gt;<br>
+ * &lt;&#47;LAISBatch&gt;
+ * </code> 
+ * <p>
+ * The runs are performed by a {@link org.laseeb.LAIS.engine.BatchRunner}, and 
+ * their outputs collated by a {@link org.laseeb.LAIS.batch.ResultCollator}.
+ * 
+ * @author Nuno Fachada
+ */
+@Root
+public class LAISBatch {
+
+	/** 
+	 * <strong>XML Attribute (integer)</strong>
+	 * <p>
+	 * Number of runs of each point of the design, each one with a different seed.
+	 * <p> 
+	 * <em>REQUIRED: NO</em>. Default is 1. 
+	 * */
+	@Attribute(required=false)
+	int replicates = 1;
+
+	/** 
+	 * <strong>XML Attribute (integer)</strong>
+	 * <p>
+	 * Number of runs performed concurrently.
+	 * <p> 
+	 * <em>REQUIRED: NO</em>. Default is the number of available processors. 
+	 * */
+	@Attribute(required=false)
+	int runs = Runtime.getRuntime().availableProcessors();
+
+	/** 
+	 * <strong>XML Attribute (integer)</strong>
+	 * <p>
+	 * Total number of threads, split between concurrent runs.
+	 * <p> 
+	 * <em>REQUIRED: NO</em>. Default is the number of available processors. 
+	 * */
+	@Attribute(required=false)
+	int threads = Runtime.getRuntime().availableProcessors();
+
+	/** 
+	 * <strong>XML Attribute (integer)</strong>
+	 * <p>
+	 * Simulation ticks of each run, unless given in the command line.
+	 * <p> 
+	 * <em>REQUIRED: NO</em>. 
+	 * */
+	@Attribute(required=false)
+	long ticks = -1;
+
+	/** 
+	 * <strong>XML Element ({@link SweepDesign})</strong>
+	 * <p>
+	 * The design of the parameter sweep.
+	 * <p> 
+	 * <em>REQUIRED: YES</em>. 
+	 * */
+	@Element
+	SweepDesign design;
+
+	/**
+	 * Returns the number of runs of each point of the design.
+	 * 
+	 * @return The number of runs of each point of the design.
+	 */
+	public int getReplicates() {
+		return replicates;
+	}
+
+	/**
+	 * Returns the number of runs performed concurrently.
+	 * 
+	 * @return The number of runs performed concurrently.
+	 */
+	public int getRuns() {
+		return runs;
+	}
+
+	/**
+	 * Returns the total number of threads, split between concurrent runs.
+	 * 
+	 * @return The total number of threads.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Returns the simulation ticks of each run.
+	 * 
+	 * @return The simulation ticks of each run, or a negative value if not given.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Returns the design of the parameter sweep.
+	 * 
+	 * @return The design of the parameter sweep.
+	 */
+	public SweepDesign getDesign() {
+		return design;
+	}
+
+}
@@ -35,6 +35,9 @@ import org.laseeb.LAIS.agent.AgentFactory;
 import org.laseeb.LAIS.agent.AgentManager;
 import org.laseeb.LAIS.agent.AgentWatcher;
 import org.laseeb.LAIS.datasources.DataSource;
+import org.laseeb.LAIS.engine.HeadlessController;
+import org.laseeb.LAIS.engine.PhaserTickExecutor;
+import org.laseeb.LAIS.engine.TickExecutor;
 import org.laseeb.LAIS.event.Event;
 import org.laseeb.LAIS.event.EventException;
 import org.laseeb.LAIS.event.ScriptingType;
@@ -45,9 +48,11 @@ import org.laseeb.LAIS.output.GraphicalOutput;
 import org.laseeb.LAIS.output.Output;
 import org.laseeb.LAIS.output.OutputException;
 import org.laseeb.LAIS.space.Abstract2DSpaceFactory;
+import org.laseeb.LAIS.space.ActiveRegion;
 import org.laseeb.LAIS.space.Cell2D;
 import org.laseeb.LAIS.space.CellStepException;
 import org.laseeb.LAIS.space.Abstract2DSpaceAdapter;
+import org.laseeb.LAIS.space.DiffusionKernel;
 import org.laseeb.LAIS.substance.Substance;
 import org.laseeb.LAIS.substance.SubstanceException;
 import org.laseeb.LAIS.substance.SubstanceManager;
@@ -121,6 +126,17 @@ public class LAISModel extends SimModelImpl {
 	@Attribute(required=false)
 	int numThreads = Runtime.getRuntime().availableProcessors();
 
+	/** 
+	 * <strong>XML Attribute (integer)</strong>
+	 * <p>
+	 * Number of cells in each chunk of cells handed to the simulation threads. If not
+	 * given (or zero), each chunk will correspond to a row of the simulation space.
+	 * <p> 
+	 * <em>REQUIRED: NO</em> 
+	 * */
+	@Attribute(required=false)
+	int chunkSize = 0;
+
 	/** 
 	 * <strong>XML ElementMap (key: {@link java.lang.String}, value: {@link org.laseeb.LAIS.datasources.DataSource})</strong>
 	 * <p>
@@ -142,6 +158,18 @@ public class LAISModel extends SimModelImpl {
 	@Element
 	Abstract2DSpaceFactory spaceFactory;
 	
+	/** 
+	 * <strong>XML Element ({@link org.laseeb.LAIS.engine.TickExecutor})</strong>
+	 * <p>
+	 * The tick executor, which determines how the simulation threads process the
+	 * cells in each simulation tick. If not given, a 
+	 * {@link org.laseeb.LAIS.engine.PhaserTickExecutor} is used.
+	 * <p> 
+	 * <em>REQUIRED: NO</em> 
+	 * */
+	@Element(required=false)
+	TickExecutor tickExecutor = new PhaserTickExecutor();
+	
 	/** 
 	 * <strong>XML Element (float)</strong>
 	 * <p>
@@ -215,7 +243,7 @@ public class LAISModel extends SimModelImpl {
 	/* Name of the model. */
 	private final String name = "LAIS Model";
 	/* Model parameters which are changeable in the Repast GUI. */
-	private final String[] initParams = {"numThreads","Dt","Dx2","MinConThreshold"};
+	private final String[] initParams = {"numThreads","ChunkSize","Dt","Dx2","MinConThreshold"};
 	/* Directory where to output data. */
 	private String outputDir = ".";	
 	/* Simulation script (scheduled events). */
@@ -230,49 +258,17 @@ public class LAISModel extends SimModelImpl {
 	private Schedule schedule;
 	/* Data structure representing the simulation space. */
 	private Abstract2DSpaceAdapter space;
+	/* Substance diffusion and evaporation over the whole simulation space. */
+	private DiffusionKernel diffusionKernel;
 	/* The graphical simulation environment. */
 	private LAISDisplaySurface dsurf;
 	/* A list of the cells that compose the simulation environment. */
 	private ArrayList<Cell2D> cellList;
-	/* Thread cell supplier. */
-	private CellSupplier cellSupplier;
-	
 	// TODO Allow user to select random factory
 	/* Random number generator. */
 	private IRngFactory rngFactory = new RngColtFactory();
-	
-	/* This class supplies CA cells to be processed by the existing threads. */
-	private class CellSupplier {
-		int currentX;
-		int currentY;
-		boolean hasNext;
-		/* Restart cell for dealing them to threads. */
-		void reInit() {
-			currentX = 0;
-			currentY = 0;
-			hasNext = true;
-		}
-		/* Return how many cells remain to be processed. */
-		int getRemainingCells() {
-			return (space.getSizeX() - currentX) * (space.getSizeY() - currentY);
-		}
-		/* Return next cell in deck. */
-		synchronized Cell2D getNextCell() {
-			if (hasNext) {
-				Cell2D nextCell = space.getCell2DAt(currentX, currentY);
-				currentX++;
-				if (currentX == space.getSizeX()) {
-					currentX = 0;
-					currentY++;
-					if (currentY == space.getSizeY()) {
-						hasNext = false;
-					}
-				}
-				return nextCell;
-			}
-			return null;
-		}
-	}
+	/* Manager of the random number generators used in this model. */
+	private final RngManager rngManager = new RngManager();
 	
 	/**
 	 * Initializes model constants.
@@ -281,8 +277,6 @@ public class LAISModel extends SimModelImpl {
 		DisplayConstants.CELL_WIDTH = 12;
         DisplayConstants.CELL_HEIGHT = 12;
         DisplayConstants.CELL_DEPTH = 12;
-        cellSupplier = new CellSupplier();
-        
 	}
 	
 	/**
@@ -297,9 +291,9 @@ public class LAISModel extends SimModelImpl {
 		dtDivDx2 = dt / dx2;
 		
 		/* Start/restart manager of random number generators. */
-		RngManager.getInstance().clear();
-		RngManager.getInstance().setSeed(rngSeed);
-		RngManager.getInstance().setRngFactory(rngFactory);
+		rngManager.clear();
+		rngManager.setSeed(rngSeed);
+		rngManager.setRngFactory(rngFactory);
 		
 		/* Build model, output and schedule. */
 		buildModel();
@@ -350,6 +344,7 @@ public class LAISModel extends SimModelImpl {
 		/* Dispose of old objects. */
 		cellList = null;
 		space = null;
+		diffusionKernel = null;
 		schedule = null;
 		if (output != null) output.dispose();
 		output = null;
@@ -364,6 +359,7 @@ public class LAISModel extends SimModelImpl {
 		agentMan.resetNumbers();
 		agentMan.setMinConThreshold(minConThreshold);
 		substanceMan.resetAll();
+		agentMan.setSubstanceRegistry(substanceMan.getSubstanceRegistry());
 
 		/* Creates the data output object - this can be delegated using the factory pattern. */
 		if (getController().isGUI()) {
@@ -385,7 +381,7 @@ public class LAISModel extends SimModelImpl {
 			/* Add button to print info about simulation. */
 			modelManipulator.addButton("Tick info", new ActionListener() {
 				public void actionPerformed(ActionEvent ae) {
-					logger.info("Tick " + ((int) getController().getCurrentTime()) + ", " + cellSupplier.getRemainingCells() + " cells remain to process.");
+					logger.info("Tick " + ((int) getController().getCurrentTime()) + ", " + tickExecutor.getRemainingCells() + " cells remain to process.");
 				}
 			});
 			/* Create graphical output. */
@@ -398,8 +394,9 @@ public class LAISModel extends SimModelImpl {
 			output = new FileOutput(this);
 		}
 
-		/* Initializes the schedule. */
-		schedule = new Schedule();		
+		/* Initializes the schedule, unless the headless controller runs the ticks itself. */
+		if (!(getController() instanceof HeadlessController))
+			schedule = new Schedule();		
 	}
 
 	/**
@@ -419,128 +416,45 @@ public class LAISModel extends SimModelImpl {
 		 */
 		class CellAction extends BasicAction {
 			
-			/* Flag indicating if simulation threads can perform a step through cells. */
-			private boolean performStepOne;
-			/* Flag indicating if simulation threads can perform a post-step through cells. */
-			private boolean performStepTwo;
-			/* Number of threads waiting to perform next action (step or post-step). When this 
-			 * value equals the number of simulation threads, the execute() method in this class
-			 * regains control of the simulation. */
-			private int numWaiting;
-			/* Always true until the simulation is stopped. When this flag is set to false, simulation 
-			 * threads terminate execution. */
+			/* Always true until the simulation is stopped. */
 			private boolean simRunning;
-			/* Simulation threads. */
-			private Set<SimThread> simThreads;
-
-			/* This class represents a simulation thread. */
-			class SimThread extends Thread {
-				/* The cell action object, used to synchronize and inform the simulation threads of 
-				 * simulation status. */
-				CellAction ca;
-				/**
-				 * Creates a simulation thread.
-				 * @param ca The cell action object.
-				 * @see java.lang.Thread
-				 */
-				public SimThread(CellAction ca) {
-					this.ca = ca;
+			
+			/* Region of the space where cells can change. */
+			private final ActiveRegion activeRegion = space.getActiveRegion();
+			
+			/* Step one pass, over the cells in the active region. */
+			private final TickExecutor.RangeTask stepOne = new TickExecutor.RangeTask() {
+				public void perform(int start, int end) throws CellStepException {
+					activeRegion.stepOne(start, end);
 				}
-				/** The code executed in each simulation step.
-				 * @see java.lang.Thread#run()
-				 */
-				public void run() {
-					int numCellsStep1 = 0, numCellsStep2 = 0;
-					logger.info("Thread " + this.getName() + " started!");
-					while (true) {
-						/* Wait in order to perform step one. */
-						synchronized(ca) {
-							ca.notifyAll();
-							while (!performStepOne) {
-								try {
-									ca.wait();
-								} catch (InterruptedException ie) {}
-							}
-						}
-						/* Check if simulation is over before proceeding. */
-						if (!isSimRunning())
-							break;
-						try {
-							numCellsStep1 = 0;
-							Cell2D nextCell;
-							while ((nextCell = cellSupplier.getNextCell()) != null) {
-								nextCell.stepOne();
-								numCellsStep1++;
-							}
-						} catch (CellStepException cse) {
-							/* In case an exception occurs, stop simulation... */
-							getController().stopSim();
-							/* ...and log error. */
-							logger.error("Error during cell step. Cause: " + cse.getMessage());
-							//if (logger.isTraceEnabled()) {
-								StackTraceElement[] steArray = cse.getStackTrace();
-								for (StackTraceElement ste : steArray)
-									logger.info(ste.toString());
-							//}
-						}
-						/* Inform main thread I'm done! */
-						ca.incNumWaiting();
-						synchronized(ca) {
-							ca.notifyAll();
-							/* Wait in order to perform step two. */
-							while (!performStepTwo) {
-								try {
-									ca.wait();
-								} catch (InterruptedException ie) {}
-							}
-						}
-						/* Perform step two. */
-						Cell2D nextCell;
-						numCellsStep2 = 0;
-						while ((nextCell = cellSupplier.getNextCell()) != null) {
-							nextCell.stepTwo();
-							numCellsStep2++;
-						}
-						/* Inform main thread I'm done! */
-						ca.incNumWaiting();
-					}
-					logger.info("Thread " + this.getName() + " terminated!");
+			};
+			
+			/* Substance diffusion and evaporation pass. */
+			private final TickExecutor.RangeTask diffusion = new TickExecutor.RangeTask() {
+				public void perform(int start, int end) {
+					activeRegion.diffuse(diffusionKernel, start, end);
 				}
-			}
+			};
 			
-			/** The constructor for the cell action object. */
+			/* Step two pass, over the cells in the active region. */
+			private final TickExecutor.RangeTask stepTwo = new TickExecutor.RangeTask() {
+				public void perform(int start, int end) {
+					activeRegion.stepTwo(start, end);
+				}
+			};
+
+			/** The constructor for the cell action object, which starts the simulation threads. */
 			public CellAction() {
-				/* Create set of simulation threads. */
-				simThreads = new HashSet<SimThread>();
-				/* Set number of waiting threads. */
-				this.numWaiting = 0;
-				/* Set control booleans to false, so threads wait. */
-				this.performStepOne = false;
-				this.performStepTwo = false;
 				this.simRunning = true;
-				/* Create simulation threads. */
-		    	for (int i = 0; i < getNumThreads(); i++) {
-		    		SimThread st = new SimThread(this);
-		    		simThreads.add(st);
-		    		st.setName("LAIS SimThread number " + i);
-		    		st.start();
-		    	}
-			}
-			
-			/**
-			 * Increments the number of threads waiting to perform the next simulation action.
-			 */
-			public synchronized void incNumWaiting() {
-				this.numWaiting++;
+				tickExecutor.start(space, getNumThreads(), chunkSize);
 			}
 			
 			/**
 			 * Terminates the simulation threads.
 			 */
-			public synchronized void cleanUp() {
-				this.performStepOne = true;
+			public void cleanUp() {
 				this.simRunning = false;
-				this.notifyAll();
+				tickExecutor.shutdown();
 			}
 			
 			/**
@@ -572,36 +486,28 @@ public class LAISModel extends SimModelImpl {
 						getController().stopSim();
 					}
 	
-					/* Reset the cell supplier. */
-					cellSupplier.reInit();
-					/* Synchronize threads to perform step and post-step */
-					/* Inform threads to perform step. */
-					this.numWaiting = 0;
-					this.performStepOne = true;
-					this.performStepTwo = false;
-					synchronized(this) {
-						this.notifyAll();
-						/* Wait for threads to perform step. */
-						while (this.numWaiting < getNumThreads()) {
-							try {
-								this.wait();
-							} catch (InterruptedException ie) {}
-						}
-					}
-					/* Reset the cell supplier. */
-					cellSupplier.reInit();
-					/* Inform threads to perform post-step. */
-					this.numWaiting = 0;
-					this.performStepOne = false;
-					this.performStepTwo = true;
-					/* Wait for threads to perform post-step. */
-					synchronized(this) {
-						this.notifyAll();
-						while (this.numWaiting < getNumThreads()) {
-							try {
-								this.wait();
-							} catch (InterruptedException ie) {}
-						}
+					/* Perform step, substance diffusion and post-step over the cells 
+					 * which can change. */
+					try {
+						activeRegion.beginStepOne();
+						tickExecutor.executeRangePass(stepOne);
+						/* Gather global substance concentrations from all threads. */
+						substanceMan.reduceConcentrations();
+						/* Prepare delivery of agents which moved to other cells. */
+						activeRegion.beginStepTwo();
+						activeRegion.beginDiffusion();
+						tickExecutor.executeRangePass(diffusion);
+						tickExecutor.executeRangePass(stepTwo);
+						/* Gather global agent numbers from all threads. */
+						agentMan.reduceNumbers();
+					} catch (CellStepException cse) {
+						/* In case an exception occurs, stop simulation... */
+						getController().stopSim();
+						/* ...and log error. */
+						logger.error("Error during cell step. Cause: " + cse.getMessage());
+						StackTraceElement[] steArray = cse.getStackTrace();
+						for (StackTraceElement ste : steArray)
+							logger.info(ste.toString());
 					}
 				}
 				if (logger.isDebugEnabled()) {
@@ -680,16 +586,17 @@ public class LAISModel extends SimModelImpl {
 
 		/* Cell Action. */
 		CellAction ca = new CellAction();
-		schedule.scheduleActionAtInterval(1, ca, Schedule.LAST);
+		scheduleActionAtInterval(1, ca);
 		
 		/* Update simulation display if in GUI mode. */
 		if (this.getController().isGUI())
-			schedule.scheduleActionAtInterval(1, new UpdateDisplayAction(), Schedule.LAST);
+			scheduleActionAtInterval(1, new UpdateDisplayAction());
 		/* Update output. */
-		schedule.scheduleActionAtInterval(1, new UpdateOutputAction(), Schedule.LAST);
+		scheduleActionAtInterval(1, new UpdateOutputAction());
 		
-		/* If model is running in batch mode: */
-		if (this.getController().isBatch()) {
+		/* If model is running in batch mode with the Repast batch controller (the 
+		 * headless controller stops runs and prints progress by itself): */
+		if (this.getController().isBatch() && (schedule != null)) {
 			/* Make sure each run ends at the specified tick. */
 			schedule.scheduleActionAt(ticks, new StopAction());
 			/* If user wants to see simulation progress, print ticks from time to time. */
@@ -709,7 +616,7 @@ public class LAISModel extends SimModelImpl {
 		}
 		
 		/* Make sure simulation threads terminate in the end. */
-		schedule.scheduleActionAtEnd(new CleanUpAction(ca));
+		scheduleActionAtEnd(new CleanUpAction(ca));
 
 	}
 
@@ -729,7 +636,9 @@ public class LAISModel extends SimModelImpl {
 				space.putCell2DAt(i, j, cell);
 				cellList.add(cell);
 			}
-		}		
+		}
+		space.buildNeighborTables();
+		diffusionKernel = new DiffusionKernel(space, this);
 	}
 
 	/**
@@ -823,6 +732,47 @@ public class LAISModel extends SimModelImpl {
 		return schedule;
 	}
 	
+	/**
+	 * Schedules an action to be performed at the given tick, using either the model's
+	 * schedule or the headless controller, if the model is run by one.
+	 * 
+	 * @param tick Tick at which to perform the action.
+	 * @param action Action to perform.
+	 */
+	public void scheduleActionAt(double tick, BasicAction action) {
+		if (schedule == null)
+			((HeadlessController) getController()).scheduleActionAt(tick, action);
+		else
+			schedule.scheduleActionAt(tick, action, Schedule.LAST);
+	}
+
+	/**
+	 * Schedules an action to be performed at regular intervals, using either the model's
+	 * schedule or the headless controller, if the model is run by one.
+	 * 
+	 * @param interval Interval between performances of the action.
+	 * @param action Action to perform.
+	 */
+	public void scheduleActionAtInterval(double interval, BasicAction action) {
+		if (schedule == null)
+			((HeadlessController) getController()).scheduleActionAtInterval(interval, action);
+		else
+			schedule.scheduleActionAtInterval(interval, action, Schedule.LAST);
+	}
+
+	/**
+	 * Schedules an action to be performed at the end of the run, using either the model's
+	 * schedule or the headless controller, if the model is run by one.
+	 * 
+	 * @param action Action to perform.
+	 */
+	public void scheduleActionAtEnd(BasicAction action) {
+		if (schedule == null)
+			((HeadlessController) getController()).scheduleActionAtEnd(action);
+		else
+			schedule.scheduleActionAtEnd(action);
+	}
+	
 	/**
 	 * Returns the space associated with the model.
 	 * 
@@ -956,6 +906,15 @@ public class LAISModel extends SimModelImpl {
 		this.ticks = ticks;
 	}
 	
+	/**
+	 * Returns the number of simulation ticks for batch mode simulations.
+	 * 
+	 * @return The number of simulation ticks for batch mode simulations.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	
 	/**
 	 * Sets the interval for printing simulation ticks in batch mode.
 	 * If this value is zero, the tick information will never be printed.
@@ -965,6 +924,15 @@ public class LAISModel extends SimModelImpl {
 	public void setTickIntervalPrint(long tickIntervalPrint) {
 		this.tickIntervalPrint = tickIntervalPrint;
 	}
+	
+	/**
+	 * Returns the interval for printing simulation ticks in batch mode.
+	 * 
+	 * @return The interval for printing simulation ticks in batch mode.
+	 */
+	public long getTickIntervalPrint() {
+		return tickIntervalPrint;
+	}
 
 	/**
 	 * Returns the folder where the output data will be saved.
@@ -1019,6 +987,54 @@ public class LAISModel extends SimModelImpl {
 	public void setNumThreads(int numThreads) {
 		this.numThreads = numThreads;
 	}
+
+	/**
+	 * Returns the user specified random seed.
+	 * 
+	 * @return The user specified random seed, or null if the seed is to be
+	 * generated when the simulation begins.
+	 */
+	public Long getUserSeed() {
+		return rngSeed;
+	}
+
+	/**
+	 * Sets the user specified random seed, used by the random number generators
+	 * created from the next call to {@link #begin()} on.
+	 * 
+	 * @param rngSeed The random seed, or null if the seed is to be generated 
+	 * when the simulation begins.
+	 */
+	public void setUserSeed(Long rngSeed) {
+		this.rngSeed = rngSeed;
+	}
+
+	/**
+	 * Returns the manager of the random number generators used in this model.
+	 * 
+	 * @return The manager of the random number generators used in this model.
+	 */
+	public RngManager getRngManager() {
+		return rngManager;
+	}
+
+	/**
+	 * Returns the number of cells in each chunk handed to the simulation threads.
+	 * 
+	 * @return The number of cells in each chunk (zero means one row per chunk).
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Sets the number of cells in each chunk handed to the simulation threads.
+	 * 
+	 * @param chunkSize The number of cells in each chunk (zero means one row per chunk).
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
 	
 //	/**
 //	 * Returns the factory for random number generators.
@@ -18,11 +18,13 @@
 
 package org.laseeb.LAIS.agent;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Iterator;
-import java.util.HashMap;
 import java.util.Set;
+import java.util.Vector;
 
 import org.laseeb.LAIS.agent.actions.ActionException;
 import org.laseeb.LAIS.agent.actions.AgentAction;
@@ -32,14 +34,19 @@ import org.laseeb.LAIS.substance.Substance;
 import org.laseeb.LAIS.substance.SubstanceContainer;
 import org.laseeb.LAIS.substance.SubstanceException;
 import org.laseeb.LAIS.substance.SubstanceProxy;
+import org.laseeb.LAIS.substance.SubstanceRegistry;
 import org.laseeb.LAIS.utils.random.IRng;
 //import org.laseeb.LAIS.utils.QuickProfiler;
 
 import uchicago.src.sim.engine.CustomProbeable;
+import cern.colt.map.OpenIntIntHashMap;
 
 /**
  * This class represents the agents in the simulation. The <i>de facto</i> behavior of agents 
  * is determined by their <code>genome</code>.
+ * <p>
+ * Agents are only played and changed by the thread which processes their cell (agents 
+ * can only act on agents in the same cell), so agents are not synchronized.
  * 
  * @author Nuno Fachada
  *
@@ -49,32 +56,67 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	/* The agent's genome. */	
 	private List<Gene> genome;
 	
+	/* The agent's genome flattened to an array, for faster evaluation. */
+	private Gene[] genes;
+	
 	/* The agent's substance reference map. When cloned an agent can mutate some of it's 
 	 * primary substances, however, these references remain the same. */
 	private Map<String, SubstanceProxy> refSubMap;
 	
-	/* Substances that are present in the agent's surface. */
-	private Map<Substance, Float> supSubConMap;
+	/* Incremented every time the substance reference map changes, so that substance proxies 
+	 * can tell if substances they resolved in the context of this agent are still valid. */
+	private volatile int subRefVersion;
+	
+	/* Substances that are present in the agent's surface, as parallel arrays of substance 
+	 * identifiers (see SubstanceRegistry) and respective concentrations. Only the first
+	 * numSupSubs elements are used. */
+	private int[] supSubIds;
+	private float[] supSubCons;
+	private int numSupSubs;
+	
+	/* Position plus one of each superficial substance in the arrays above, keyed by substance
+	 * identifier. Only kept while there are more than SUP_SUB_MAX_SCAN substances, otherwise
+	 * a linear scan of the identifiers is faster. */
+	private OpenIntIntHashMap supSubIndex;
 
-	/* The agent state types and their values. */
-	private AgentStateMap stateMap;
+	/* The agent states, coded as given by the agent prototype: the element with
+	 * index equal to a state type code holds the code of the respective state, 
+	 * or -1 if the agent has no state for the state type. */
+	private short[] states;
 	
-	/* States to set next time the play method is executed. */
-	private AgentStateMap nextStateMap = new AgentStateMap();
+	/* States to set next time the play method is executed, coded in the same way. */
+	private short[] nextStates;
+	
+	/* Indicates if there are states to set next time the play method is executed. */
+	private boolean hasNextStates;
 	
 	/* The constant prototype features of this agent. */
 	private AgentPrototype prototype;
 
-	/* The agent's hash code, required in order to maintain ordering within spatial blocks. */
-	private int hashCode;
+	/* The agent's unique identifier, required in order to maintain ordering within spatial blocks. */
+	private long id;
+	
+	/* Initial capacity of the superficial substances arrays (agents usually carry few substances). */
+	private static final int SUP_SUB_INIT_CAPACITY = 4;
+	
+	/* Maximum number of superficial substances looked up with a linear scan. */
+	private static final int SUP_SUB_MAX_SCAN = 8;
+	
+	/* Message passed from conditions to actions, reused by all agents played in the same thread. */
+	private static final ThreadLocal<GeneMessage> geneMessage = new ThreadLocal<GeneMessage>() {
+		@Override
+		protected GeneMessage initialValue() {
+			return new GeneMessage(0);
+		}
+	};
 	
 	/**
 	 * Public constructor. Requires a unique agent ID.
 	 * 
 	 * @param id Unique agent ID.
 	 */
-	public Agent(int id) {
-		this.hashCode = id;
+	public Agent(long id) {
+		this.id = id;
 	}
 	
 	/** 
@@ -87,43 +129,34 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @throws CloneNotSupportedException If it's not possible to clone the agent.
 	 * @throws AgentException When the cloning of the agent is not possible.
 	 * */
-	public Agent clone(float mutationRate, int id, IRng rng) throws CloneNotSupportedException, AgentException {
+	public Agent clone(float mutationRate, long id, IRng rng) throws CloneNotSupportedException, AgentException {
 		/* Clone agent (shallow copy). */
 		Agent agent = null;
 		agent = (Agent) super.clone();
-		agent.hashCode = id;
+		agent.id = id;
 		/* Clone genome. */
-		agent.genome = AgentPrototype.cloneGenome(genome, mutationRate);
+		List<Gene> clonedGenome = AgentPrototype.cloneGenome(genome, mutationRate);
+		if (clonedGenome != genome)
+			agent.setGenome(clonedGenome);
 		/* Clone state (specific changes to the state are specified in the cloning gene). */
-		if (stateMap != null) {
-			agent.stateMap = stateMap.clone();
+		if (states != null) {
+			agent.states = states.clone();
 		}
-		/* Next state map is empty. */
-		agent.nextStateMap = new AgentStateMap();
+		/* There are no next states. */
+		agent.nextStates = null;
+		agent.hasNextStates = false;
 		/* Clone substance references. */
-		agent.refSubMap = AgentPrototype.cloneRefSubMap(refSubMap, mutationRate, rng);
+		agent.refSubMap = AgentPrototype.cloneRefSubMap(refSubMap, mutationRate, rng, 
+				prototype.getSubstanceRegistry());
 		/* Clone superficial substances - for now we basically "copy" the superficial substance 
 		 * concentration of the original agent. It's not an exact copy because substance 
 		 * references are taken into account, so if some substance has mutated during cloning,
 		 * such change is considered. */
 		//TODO Should be decided by conditions/actions?
-		agent.supSubConMap = new HashMap<Substance, Float>();
-		Iterator<String> iterSubRef = refSubMap.keySet().iterator();
-		while (iterSubRef.hasNext()) {
-			String subRef = iterSubRef.next();
-			/* Obtain concentration of original substance in original agent. */
-			Float subCon = this.supSubConMap.get(this.getSubstanceByRef(subRef));
-			/* Add same concentration of cloned substance in cloned agent. */
-			if (subCon != null) {
-				try {
-					agent.supSubConMap.put(
-							agent.getSubstanceByRef(subRef).getSubstance(agent), 
-							subCon);
-				} catch (SubstanceException se) {
-					throw new AgentException(se);
-				}
-			}
-		}
+		//TODO The original concentration was looked up using the substance proxy (not the 
+		//substance) as key, so it was never found and clones always started without 
+		//superficial substances. This behavior is kept until the copy is properly specified.
+		agent.clearSupSub();
 		/* Return new clone */
 		return agent;
 	}
@@ -137,39 +170,40 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @throws ActionException When an error occurs while executing an action.
 	 * @throws AgentException When an error occurs during the agents performance.
 	 */
-	public synchronized void play(Cell2D cell) throws ConditionException, ActionException, AgentException {
+	public void play(Cell2D cell) throws ConditionException, ActionException, AgentException {
 		/* Set next states. */
-		Iterator<String> stateTypeIter = nextStateMap.stateTypeIterator();
-		while (stateTypeIter.hasNext()) {
-			String stateType = stateTypeIter.next();
-			String stateValue = nextStateMap.getState(stateType);
-			setState(stateType, stateValue);
+		if (hasNextStates) {
+			for (int t = 0; t < nextStates.length; t++) {
+				if (nextStates[t] >= 0) {
+					states[t] = nextStates[t];
+					nextStates[t] = -1;
+				}
+			}
+			hasNextStates = false;
 		}
-		nextStateMap.clear();
 		/* Run through the genetic code */
 		boolean conditions;
-		Iterator<Gene> geneIter = genome.iterator();
-		while (geneIter.hasNext()) {
+		GeneMessage conditionActionMessage = geneMessage.get();
+		Gene[] genes = this.genes;
+		for (int g = 0; g < genes.length; g++) {
 			/* Get gene */
-			Gene gene = geneIter.next();
-			/* An iterator for each condition */
-			Iterator<AgentCondition> condIter = gene.getConditionIterator();
+			Gene gene = genes[g];
+			AgentCondition[] geneConditions = gene.getConditions();
 			/* Analyze conditions */
 			conditions = true;
-			Object[] conditionActionMessage = new Object[5]; //TODO Automate this value - set as a gene attribute!
-			while ((conditions) && (condIter.hasNext())){
-				AgentCondition condition = condIter.next();
+			conditionActionMessage.reset(gene.getMessageSize());
+			for (int c = 0; (conditions) && (c < geneConditions.length); c++) {
+				AgentCondition condition = geneConditions[c];
 				//QuickProfiler.start(condition.getClass().getSimpleName());
 				conditions = condition.evaluate(this, cell, conditionActionMessage) ^ condition.getComplement();
 				//QuickProfiler.end(condition.getClass().getSimpleName());
-			};
+			}
 			/* If all conditions in gene are true, perform actions */
 			if (conditions) {
-				/* Get actions to the corresponding conditions */
-				Iterator<AgentAction> actionIter = gene.getActionIterator();
 				/* Perform actions */
-				while (actionIter.hasNext()) {
-					actionIter.next().performAction(this, cell, conditionActionMessage);
+				AgentAction[] geneActions = gene.getActions();
+				for (int a = 0; a < geneActions.length; a++) {
+					geneActions[a].performAction(this, cell, conditionActionMessage);
 				}
 			}
 		}
@@ -194,7 +228,12 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @see org.laseeb.LAIS.substance.SubstanceContainer#containsSubstance(Substance)
 	 */
 	public boolean containsSubstance(Substance sub) {
-		return supSubConMap.containsKey(sub);
+		return findSupSub(getSubstanceId(sub)) >= 0;
+	}
+	
+	/* Returns the identifier of the given substance in the simulation's substance registry. */
+	private int getSubstanceId(Substance sub) {
+		return prototype.getSubstanceRegistry().getId(sub);
 	}
 	
 	/**
@@ -204,15 +243,24 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @throws CloneNotSupportedException 
 	 */
 	public void insertGene(Gene gene, float mutationRate) throws CloneNotSupportedException {
-		genome.add(gene.clone(mutationRate));
+		/* Genomes may be shared between agents, so copy before changing. */
+		List<Gene> newGenome = new ArrayList<Gene>(genome.size() + 1);
+		newGenome.addAll(genome);
+		newGenome.add(gene.clone(mutationRate));
+		setGenome(newGenome);
 	}
 	
 	/**
-	 * Returns the agent's state types and values.
-	 * @return The agent's state types and values.
+	 * Returns a copy of the agent's state types and values.
+	 * @return A copy of the agent's state types and values.
 	 */
 	public AgentStateMap getStatesMap() {
-		return stateMap;
+		AgentStateMap asm = new AgentStateMap();
+		for (int t = 0; t < states.length; t++) {
+			if (states[t] >= 0)
+				asm.setState(prototype.getStateType(t), prototype.getStateName(t, states[t]));
+		}
+		return asm;
 	}
 	
 	/**
@@ -223,10 +271,8 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @see org.laseeb.LAIS.substance.SubstanceContainer#getSubstanceCon(Substance)
 	 */
 	public float getSubstanceCon(Substance sub) {
-		if (containsSubstance(sub))
-			return supSubConMap.get(sub);
-		else
-			return 0.0f;
+		int pos = findSupSub(getSubstanceId(sub));
+		return pos >= 0 ? supSubCons[pos] : 0.0f;
 	}
 
 	/** 
@@ -236,7 +282,11 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @see org.laseeb.LAIS.substance.SubstanceContainer#modifySubstanceCon(Substance, Float)
 	 */
 	public Iterator<Substance> substanceIterator() {
-		return supSubConMap.keySet().iterator();
+		SubstanceRegistry registry = prototype.getSubstanceRegistry();
+		Vector<Substance> subs = new Vector<Substance>(numSupSubs);
+		for (int i = 0; i < numSupSubs; i++)
+			subs.add(registry.getSubstance(supSubIds[i]));
+		return subs.iterator();
 	}
 	
 	/**
@@ -248,15 +298,63 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @see org.laseeb.LAIS.substance.SubstanceContainer#modifySubstanceCon(Substance, Float)
 	 */
 	public float modifySubstanceCon(Substance sub, Float con) {
-		float newCon = 0.0f;
-		if (supSubConMap.containsKey(sub))
-			newCon = getSubstanceCon(sub);
+		int id = getSubstanceId(sub);
+		int pos = findSupSub(id);
+		float newCon = pos >= 0 ? supSubCons[pos] : 0.0f;
 		newCon += con;
 		if (newCon < prototype.getMinConThreshold())
-			supSubConMap.put(sub, 0.0f);
+			newCon = 0.0f;
+		if (pos >= 0)
+			supSubCons[pos] = newCon;
 		else
-			supSubConMap.put(sub, newCon);
-		return getSubstanceCon(sub);
+			addSupSub(id, newCon);
+		return newCon;
+	}
+	
+	/* Returns the position of the given substance in the superficial substances arrays, or
+	 * -1 if the substance is not present on the agent's surface. */
+	private int findSupSub(int id) {
+		if (supSubIndex != null)
+			/* Colt maps return zero for missing keys. */
+			return supSubIndex.get(id) - 1;
+		for (int i = 0; i < numSupSubs; i++)
+			if (supSubIds[i] == id)
+				return i;
+		return -1;
+	}
+	
+	/* Appends a substance, which must not be present, to the superficial substances arrays. */
+	private void addSupSub(int id, float con) {
+		if (numSupSubs == supSubIds.length) {
+			supSubIds = Arrays.copyOf(supSubIds, 2 * numSupSubs);
+			supSubCons = Arrays.copyOf(supSubCons, 2 * numSupSubs);
+		}
+		supSubIds[numSupSubs] = id;
+		supSubCons[numSupSubs] = con;
+		numSupSubs++;
+		if (supSubIndex != null)
+			supSubIndex.put(id, numSupSubs);
+		else if (numSupSubs > SUP_SUB_MAX_SCAN)
+			indexSupSub();
+	}
+	
+	/* Rebuilds the superficial substances index, or drops it if there are few substances. */
+	private void indexSupSub() {
+		if (numSupSubs > SUP_SUB_MAX_SCAN) {
+			supSubIndex = new OpenIntIntHashMap(2 * numSupSubs);
+			for (int i = 0; i < numSupSubs; i++)
+				supSubIndex.put(supSubIds[i], i + 1);
+		} else {
+			supSubIndex = null;
+		}
+	}
+	
+	/* Removes all superficial substances. */
+	private void clearSupSub() {
+		supSubIds = new int[SUP_SUB_INIT_CAPACITY];
+		supSubCons = new float[SUP_SUB_INIT_CAPACITY];
+		numSupSubs = 0;
+		supSubIndex = null;
 	}
 
 	/**
@@ -284,7 +382,7 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @return The name of the agent.
 	 */
 	public String getName() {
-		return getPrototypeName() + " {" + Integer.toHexString(hashCode()) + "}"; 
+		return getPrototypeName() + " {" + Long.toHexString(id) + "}"; 
 	}
 
 	/**
@@ -294,7 +392,22 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @return The state corresponding to the given state key.
 	 */
 	public String getState(String stateKey) {
-		return stateMap.getState(stateKey);
+		int typeCode = prototype.getStateTypeCode(stateKey);
+		if ((typeCode < 0) || (states[typeCode] < 0))
+			return null;
+		return prototype.getStateName(typeCode, states[typeCode]);
+	}
+	
+	/**
+	 * Returns the code of the agent state for the state type with the given code, 
+	 * as given by the agent prototype.
+	 * 
+	 * @param typeCode The state type code (see {@link AgentPrototype#getStateTypeCode(String)}).
+	 * @return The code of the agent state (see {@link AgentPrototype#getStateCode(int, String)}),
+	 * or -1 if the agent has no state for the given state type.
+	 */
+	public int getStateCode(int typeCode) {
+		return states[typeCode];
 	}
 	
 	/**
@@ -304,10 +417,11 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @param stateValue The state to set, corresponding to the given state key.
 	 * @throws AgentException If the state key-value pair is not valid, according to the prototype.
 	 */
-	public synchronized void setState(String stateType, String stateValue) throws AgentException {
-		if (prototype.isValidState(stateType, stateValue))
-			stateMap.setState(stateType, stateValue);
-		else {
+	public void setState(String stateType, String stateValue) throws AgentException {
+		if (prototype.isValidState(stateType, stateValue)) {
+			int typeCode = prototype.getStateTypeCode(stateType);
+			states[typeCode] = (short) prototype.getStateCode(typeCode, stateValue);
+		} else {
 			throw new AgentException("Invalid state type - state value pair ("
 					+ stateType + ", " + stateValue + ")"
 					+ " for agent " + prototype.getName() + "!  (setState method)");
@@ -322,10 +436,14 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @param stateValue The state to set, corresponding to the given state key.
 	 * @throws AgentException If the state key-value pair is not valid, according to the prototype.
 	 */
-	public synchronized void setNextState(String stateType, String stateValue) throws AgentException {
-		if (prototype.isValidState(stateType, stateValue))
-			nextStateMap.setState(stateType, stateValue);
-		else {
+	public void setNextState(String stateType, String stateValue) throws AgentException {
+		if (prototype.isValidState(stateType, stateValue)) {
+			if (nextStates == null)
+				nextStates = newStates();
+			int typeCode = prototype.getStateTypeCode(stateType);
+			nextStates[typeCode] = (short) prototype.getStateCode(typeCode, stateValue);
+			hasNextStates = true;
+		} else {
 			throw new AgentException("Invalid state type - state value pair ("
 					+ stateType + ", " + stateValue + ")"
 					+ " for agent " + prototype.getName() + "! (setNextState method)");
@@ -338,13 +456,20 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @throws AgentException When is not possible to set the state map.
 	 */
 	public void setStateMap(AgentStateMap asm) throws AgentException {
-		stateMap = new AgentStateMap();
+		states = newStates();
 		Iterator<String> iterStateType = asm.stateTypeIterator();
 		while (iterStateType.hasNext()) {
 			String stateType = iterStateType.next();
 			setState(stateType, asm.getState(stateType));
 		}
 	}
+	
+	/* Returns a coded state array where no state is set. */
+	private short[] newStates() {
+		short[] s = new short[prototype.getNumStateTypes()];
+		Arrays.fill(s, (short) -1);
+		return s;
+	}
 
 	/**
 	 * Sets this agent's genome. 
@@ -354,6 +479,7 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 */
 	void setGenome(List<Gene> genome) {
 		this.genome = genome;
+		this.genes = genome.toArray(new Gene[genome.size()]);
 	}
 	
 	/**
@@ -374,6 +500,17 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 */
 	void setRefSubMap(Map<String, SubstanceProxy> refSubMap) {
 		this.refSubMap = refSubMap;
+		subRefVersion++;
+	}
+	
+	/**
+	 * Returns the version of this agent's substance references, which changes every time
+	 * a substance reference is set.
+	 * 
+	 * @return The version of this agent's substance references.
+	 */
+	public int getSubRefVersion() {
+		return subRefVersion;
 	}
 	
 	/**
@@ -383,8 +520,9 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @throws AgentException When the substance reference is unknown. 
 	 */
 	public SubstanceProxy getSubstanceByRef(String ref) throws AgentException {
-		if (refSubMap.containsKey(ref))
-			return refSubMap.get(ref);
+		SubstanceProxy sp = refSubMap.get(ref);
+		if (sp != null)
+			return sp;
 		else
 			throw new AgentException("The substance referenced by '" + ref + "' is unknown to agent '" + prototype.getName() + "'!");
 	}
@@ -397,6 +535,7 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 */
 	public void setSubRef(String ref, SubstanceProxy sp) {
 		refSubMap.put(ref, sp);
+		subRefVersion++;
 	}
 	
 	/**
@@ -406,6 +545,7 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 */
 	public void addSubRefMap(Map<String, SubstanceProxy> newRefSubMap) {
 		refSubMap.putAll(newRefSubMap);
+		subRefVersion++;
 	}
 
 	/**
@@ -416,13 +556,18 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @throws AgentException When its not possible to get substance by reference.
 	 */
 	public void setSupSubCon(Map<String, Float> subMap) throws AgentException {
-		supSubConMap = new HashMap<Substance, Float>();
+		clearSupSub();
 		Iterator<String> iterStr = subMap.keySet().iterator();
 		while (iterStr.hasNext()) {
 			String strSub = iterStr.next();
 			SubstanceProxy sp = refSubMap.get(strSub);
 			try {
-				supSubConMap.put(sp.getSubstance(this), subMap.get(strSub));
+				int id = getSubstanceId(sp.getSubstance(this));
+				int pos = findSupSub(id);
+				if (pos >= 0)
+					supSubCons[pos] = subMap.get(strSub);
+				else
+					addSupSub(id, subMap.get(strSub));
 			} catch (SubstanceException se) {
 				throw new AgentException(se);
 			}
@@ -434,15 +579,25 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * defined evaporation rate.
 	 */
 	public void degradeSupSub() {
-		Iterator<Substance> iterSub = supSubConMap.keySet().iterator();
-		while (iterSub.hasNext()) {
-			Substance sub = iterSub.next();
-			float con = supSubConMap.get(sub);
-			con = con + con * sub.getKDeg();
-			if (con > prototype.getMinConThreshold())
-				supSubConMap.put(sub, con);
-			else
-				iterSub.remove();
+		if (numSupSubs == 0)
+			return;
+		SubstanceRegistry registry = prototype.getSubstanceRegistry();
+		float minCon = prototype.getMinConThreshold();
+		/* Degrade and compact in place, keeping the order of the remaining substances. */
+		int kept = 0;
+		for (int i = 0; i < numSupSubs; i++) {
+			float con = supSubCons[i];
+			con = con + con * registry.getSubstance(supSubIds[i]).getKDeg();
+			if (con > minCon) {
+				supSubIds[kept] = supSubIds[i];
+				supSubCons[kept] = con;
+				kept++;
+			}
+		}
+		if (kept < numSupSubs) {
+			numSupSubs = kept;
+			if (supSubIndex != null)
+				indexSupSub();
 		}
 	}
 
@@ -458,7 +613,7 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 * @see AgentStateMap#getStatesInfo()
 	 */
 	public String[] getStatesInfo() {
-		return stateMap.getStatesInfo();
+		return getStatesMap().getStatesInfo();
 	}
 	
 	/**
@@ -470,14 +625,11 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	 */
 	public String[] getSubstanceConcentrationsInfo() {
 		String supSubConInfo[] = {""};
-		if (supSubConMap.size() > 0) {
-			supSubConInfo = new String[supSubConMap.size()];
-			int i = 0;
-			Set<Substance> supSubs = supSubConMap.keySet();
-			for (Substance supSub : supSubs) {
-				supSubConInfo[i] = supSub.getName() + " = " + supSubConMap.get(supSub); 
-				i++;
-			}
+		if (numSupSubs > 0) {
+			supSubConInfo = new String[numSupSubs];
+			SubstanceRegistry registry = prototype.getSubstanceRegistry();
+			for (int i = 0; i < numSupSubs; i++)
+				supSubConInfo[i] = registry.getSubstance(supSubIds[i]).getName() + " = " + supSubCons[i]; 
 		}
 		return supSubConInfo;
 	}
@@ -512,20 +664,31 @@ public class Agent implements Cloneable, Comparable<Agent>, SubstanceContainer,
 	}
 	
 	/**
-	 * Returns the agent's hash code.
+	 * Returns the agent's unique identifier.
+	 * @return The agent's unique identifier.
+	 */
+	public long getId() {
+		return id;
+	}
+	
+	/**
+	 * Returns the agent's hash code, obtained from its unique identifier.
 	 * @return The agent's hash code.
 	 * @see java.lang.Object#hashCode()
 	 */
 	@Override
 	public int hashCode() {
-		return hashCode;
+		return (int) (id ^ (id >>> 32));
 	}
 
 	/**
+	 * Compares agents by their identifier. Identifiers are compared instead of subtracted,
+	 * since their difference may overflow.
+	 * 
 	 * @see java.lang.Comparable#compareTo(Object)
 	 */
 	@Override
 	public int compareTo(Agent otherAgent) {
-		return hashCode - otherAgent.hashCode;
+		return (id < otherAgent.id) ? -1 : ((id == otherAgent.id) ? 0 : 1);
 	}
 }
@@ -0,0 +1,243 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package org.laseeb.LAIS.agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the agents in the simulation which match a set of queries, each query 
+ * consisting of an agent prototype name and, optionally, the states the agents must
+ * be in. Queries are compiled into counter slots before the simulation runs, 
+ * typically when outputs and events are initialized.
+ * <p>
+ * During a census, each simulation thread counts the agents of the cells it 
+ * processes in its own counters, without locking. When all cells have been 
+ * processed, {@link #reduce()} adds up the counters of all threads. Threads
+ * register their counters in the first count after {@link #reset()}, so 
+ * threads which no longer count agents (e.g. the threads of a previous run)
+ * are not kept nor added up.
+ * 
+ * @author Nuno Fachada
+ */
+public class AgentCensus {
+	
+	/* Compiled queries regarding one agent prototype. Instances are immutable. */
+	private static class PrototypeQueries {
+		/* Counter slot of each query. */
+		final int[] slots;
+		/* Codes of the state types and states required by each query. */
+		final int[][] stateTypes;
+		final int[][] states;
+		PrototypeQueries(int[] slots, int[][] stateTypes, int[][] states) {
+			this.slots = slots;
+			this.stateTypes = stateTypes;
+			this.states = states;
+		}
+		/* Returns a copy of these queries with an additional query. */
+		PrototypeQueries with(int slot, int[] queryStateTypes, int[] queryStates) {
+			int n = slots.length;
+			int[] newSlots = Arrays.copyOf(slots, n + 1);
+			int[][] newStateTypes = Arrays.copyOf(stateTypes, n + 1);
+			int[][] newStates = Arrays.copyOf(states, n + 1);
+			newSlots[n] = slot;
+			newStateTypes[n] = queryStateTypes;
+			newStates[n] = queryStates;
+			return new PrototypeQueries(newSlots, newStateTypes, newStates);
+		}
+	}
+	
+	/* Counter slots of compiled queries, by agent prototype name and state map. */
+	private final Map<String, Map<AgentStateMap, Integer>> slots = 
+		new HashMap<String, Map<AgentStateMap, Integer>>();
+	
+	/* Compiled queries, by agent prototype name. */
+	private volatile Map<String, PrototypeQueries> queries = 
+		new HashMap<String, PrototypeQueries>();
+	
+	/* Number of compiled queries. */
+	private volatile int numQueries = 0;
+	
+	/* Agent numbers of the last complete census, by counter slot. */
+	private volatile int[] numbers = new int[0];
+	
+	/* Counters of a thread, and the registration in which they were last registered. */
+	private static class ThreadCounters {
+		int[] numbers = new int[0];
+		int registration = -1;
+	}
+	
+	/* Counters of the threads which counted agents since the last reset. */
+	private final List<ThreadCounters> counters = new ArrayList<ThreadCounters>();
+	
+	/* Current registration, incremented on each reset. */
+	private volatile int registration = 0;
+	
+	/* Counters of the current thread. */
+	private final ThreadLocal<ThreadCounters> threadCounters = new ThreadLocal<ThreadCounters>() {
+		protected ThreadCounters initialValue() {
+			return new ThreadCounters();
+		}
+	};
+	
+	/**
+	 * Compiles a query for the number of agents of the given prototype which are in
+	 * the given states, returning its counter slot. Compiling an already compiled 
+	 * query returns the existing slot. If a query is compiled during a census, its 
+	 * agent numbers are only available after the next census.
+	 * 
+	 * @param prototype The agent prototype, used to code the given states, or 
+	 * <code>null</code> if there is no such prototype.
+	 * @param agStr The agent prototype name.
+	 * @param map The states the agents must be in to be counted, or <code>null</code>
+	 * if the agent state is irrelevant.
+	 * @return The counter slot of the query.
+	 */
+	public synchronized int compile(AgentPrototype prototype, String agStr, AgentStateMap map) {
+		AgentStateMap key = (map != null) ? map.clone() : new AgentStateMap();
+		Map<AgentStateMap, Integer> protoSlots = slots.get(agStr);
+		if (protoSlots == null) {
+			protoSlots = new HashMap<AgentStateMap, Integer>();
+			slots.put(agStr, protoSlots);
+		}
+		Integer slot = protoSlots.get(key);
+		if (slot != null)
+			return slot;
+		/* Compile query. A query with states which don't exist for the prototype 
+		 * is never matched, so it doesn't need to be evaluated. */
+		slot = numQueries;
+		int[] queryStateTypes = new int[key.map.size()];
+		int[] queryStates = new int[key.map.size()];
+		boolean valid = (prototype != null);
+		int i = 0;
+		for (Map.Entry<String, String> entry : key.map.entrySet()) {
+			if (!valid || !prototype.isValidState(entry.getKey(), entry.getValue())) {
+				valid = false;
+				break;
+			}
+			queryStateTypes[i] = prototype.getStateTypeCode(entry.getKey());
+			queryStates[i] = prototype.getStateCode(queryStateTypes[i], entry.getValue());
+			i++;
+		}
+		if (valid) {
+			Map<String, PrototypeQueries> newQueries = new HashMap<String, PrototypeQueries>(queries);
+			PrototypeQueries pq = newQueries.get(agStr);
+			if (pq == null)
+				pq = new PrototypeQueries(new int[0], new int[0][], new int[0][]);
+			newQueries.put(agStr, pq.with(slot, queryStateTypes, queryStates));
+			queries = newQueries;
+		}
+		protoSlots.put(key, slot);
+		numbers = Arrays.copyOf(numbers, slot + 1);
+		numQueries = slot + 1;
+		return slot;
+	}
+	
+	/**
+	 * Returns the number of agents which matched the query with the given counter 
+	 * slot in the last complete census.
+	 * 
+	 * @param slot The counter slot of the query.
+	 * @return The number of agents which matched the given query.
+	 */
+	public int getNumbers(int slot) {
+		int[] n = numbers;
+		return slot < n.length ? n[slot] : 0;
+	}
+	
+	/**
+	 * Counts the given agents in the counters of the current thread.
+	 * 
+	 * @param iterAgents The agents to count.
+	 */
+	public void count(Iterator<Agent> iterAgents) {
+		Map<String, PrototypeQueries> q = queries;
+		ThreadCounters c = threadCounters.get();
+		int r = registration;
+		if (c.registration != r) {
+			/* First count of this thread since the last reset. */
+			Arrays.fill(c.numbers, 0);
+			c.registration = r;
+			synchronized (counters) {
+				counters.add(c);
+			}
+		}
+		if (c.numbers.length < numQueries)
+			c.numbers = Arrays.copyOf(c.numbers, numQueries);
+		int[] threadNumbers = c.numbers;
+		while (iterAgents.hasNext()) {
+			Agent ag = iterAgents.next();
+			PrototypeQueries pq = q.get(ag.getPrototypeName());
+			if (pq == null)
+				continue;
+			for (int i = 0; i < pq.slots.length; i++) {
+				int[] queryStateTypes = pq.stateTypes[i];
+				int[] queryStates = pq.states[i];
+				boolean match = true;
+				for (int j = 0; j < queryStateTypes.length; j++) {
+					if (ag.getStateCode(queryStateTypes[j]) != queryStates[j]) {
+						match = false;
+						break;
+					}
+				}
+				if (match)
+					threadNumbers[pq.slots[i]]++;
+			}
+		}
+	}
+	
+	/**
+	 * Adds up the counters of all threads, making the result of the census 
+	 * available through {@link #getNumbers(int)}. This method must be invoked 
+	 * while no other thread is counting agents.
+	 */
+	public void reduce() {
+		int[] n = new int[numQueries];
+		synchronized (counters) {
+			for (ThreadCounters c : counters) {
+				int[] threadNumbers = c.numbers;
+				for (int s = 0; s < Math.min(n.length, threadNumbers.length); s++) {
+					n[s] += threadNumbers[s];
+					threadNumbers[s] = 0;
+				}
+			}
+		}
+		numbers = n;
+	}
+	
+	/**
+	 * Clears the counters of all threads and the result of the last census, 
+	 * starting a new census. Threads register their counters again when they 
+	 * next count agents. This method must be invoked while no other thread is 
+	 * counting agents.
+	 */
+	public void reset() {
+		synchronized (counters) {
+			counters.clear();
+			registration++;
+		}
+		numbers = new int[numQueries];
+	}
+
+}
@@ -40,6 +40,6 @@ public interface AgentFactory {
 	 * @throws CloneNotSupportedException If it's not possible to create the agent.
 	 * @throws AgentException When it's not possible to create the agent.
 	 */
-	public Agent createAgent(String agent, float mutationRate, int id, IRng rng) throws CloneNotSupportedException, AgentException;
+	public Agent createAgent(String agent, float mutationRate, long id, IRng rng) throws CloneNotSupportedException, AgentException;
 	
 }
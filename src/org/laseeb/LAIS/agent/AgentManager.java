@@ -22,6 +22,7 @@ import java.util.*;
 import java.awt.Color;
 
 //import org.laseeb.LAIS.event.AgentDeploy;
+import org.laseeb.LAIS.substance.SubstanceRegistry;
 import org.laseeb.LAIS.utils.random.IRng;
 import org.simpleframework.xml.ElementMap;
 import org.simpleframework.xml.Root;
@@ -69,13 +70,13 @@ public class AgentManager implements AgentFactory, AgentWatcher {
 	LinkedHashMap<String, AgentPrototype> agentMap = new LinkedHashMap<String, AgentPrototype>();
 	
 	/* Runtime agent numbers by state, updated externally. */
-	private HashMap<String, AgentNumbersMap> agentNumbersByState;
+	private AgentCensus census;
 	
 	/**
 	 * Basic initialization.
 	 */
 	public AgentManager() {
-		agentNumbersByState = new HashMap<String, AgentNumbersMap>();
+		census = new AgentCensus();
 	}
 	
 	/**
@@ -86,28 +87,26 @@ public class AgentManager implements AgentFactory, AgentWatcher {
 	 */
 	public class AgentNumberSource {
 		
-		/* The agent name. */
-		private String myAgentName;
-		/* States map. */
-		private AgentStateMap statesMap;
+		/* Counter slot of the agent census query. */
+		private int query;
 		
 		/**
-		 * The constructor assigns the internal variables as references to AgentManager variables.
+		 * The constructor compiles the agent census query for the given agent name and states.
 		 *  
 		 * @param agName Reference to the agent name.
+		 * @param statesMap Only count the agent if it is in these states.
 		 */
 		public AgentNumberSource(String agName, AgentStateMap statesMap) {
-			this.myAgentName = agName;
-			this.statesMap = statesMap;
+			this.query = compileQuery(agName, statesMap);
 		}
 		
 		/**
-		 * Returns the number of agent with name myAgentName (this class internal variable) in the simulation.
+		 * Returns the number of agents with the name and states given in the constructor.
 		 * 
-		 * @return The number of agent with name myAgentName (this class internal variable) in the simulation.
+		 * @return The number of agents with the name and states given in the constructor.
 		 */
 		public int getAgentNumbers() {
-			return getNumbers(this.myAgentName, this.statesMap);
+			return getNumbers(query);
 		}		
 	}
 	
@@ -139,11 +138,21 @@ public class AgentManager implements AgentFactory, AgentWatcher {
 	 * @see org.laseeb.LAIS.agent.AgentWatcher#getNumbers(String, AgentStateMap)
 	 */
 	public int getNumbers(String agStr, AgentStateMap map) {
-		AgentNumbersMap agMap = agentNumbersByState.get(agStr);
-		if (agMap == null)
-			return 0;
-		else
-			return agMap.getNumbersByStates(map);
+		return census.getNumbers(compileQuery(agStr, map));
+	}
+	
+	/**
+	 * @see org.laseeb.LAIS.agent.AgentWatcher#compileQuery(String, AgentStateMap)
+	 */
+	public int compileQuery(String agStr, AgentStateMap map) {
+		return census.compile(agentMap.get(agStr), agStr, map);
+	}
+	
+	/**
+	 * @see org.laseeb.LAIS.agent.AgentWatcher#getNumbers(int)
+	 */
+	public int getNumbers(int query) {
+		return census.getNumbers(query);
 	}
 	
 	/**
@@ -158,7 +167,7 @@ public class AgentManager implements AgentFactory, AgentWatcher {
 	 * @throws AgentException When it's not possible to create the agent.
 	 * @see org.laseeb.LAIS.agent.AgentFactory#createAgent(String, float, IRng)
 	 */
-	public Agent createAgent(String agent, float mutationRate, int id, IRng rng) throws CloneNotSupportedException, AgentException {
+	public Agent createAgent(String agent, float mutationRate, long id, IRng rng) throws CloneNotSupportedException, AgentException {
 		Agent ag = agentMap.get(agent).createAgent(mutationRate, id, rng);
 		return ag;
 	}
@@ -198,7 +207,7 @@ public class AgentManager implements AgentFactory, AgentWatcher {
 	 * Reset number of agents by state.
 	 */
 	public void resetNumbers() {
-		agentNumbersByState.clear();
+		census.reset();
 	}
 	
 	/**
@@ -214,32 +223,48 @@ public class AgentManager implements AgentFactory, AgentWatcher {
 	}
 	
 	/**
-	 * Update agent numbers.
-	 * @param iterAgents
+	 * Sets the registry which provides identifiers for the agents' superficial substances. 
+	 * @param substanceRegistry The substance registry.
 	 */
-	public synchronized void updateAgents(Iterator<Agent> iterAgents) {
-		while (iterAgents.hasNext()) {
-			Agent ag = iterAgents.next();
-			if (agentNumbersByState.containsKey(ag.getPrototypeName())) {
-				AgentNumbersMap am = agentNumbersByState.get(ag.getPrototypeName());
-				am.update(ag.getStatesMap());
-			} else {
-				AgentNumbersMap am = new AgentNumbersMap(ag.getStatesMap().clone(), 1);
-				agentNumbersByState.put(ag.getPrototypeName(), am);
-			}
+	public void setSubstanceRegistry(SubstanceRegistry substanceRegistry) {
+		Iterator<AgentPrototype> agProtIter= prototypeIterator();
+		while (agProtIter.hasNext()) {
+			AgentPrototype ap = agProtIter.next();
+			ap.setSubstanceRegistry(substanceRegistry);
 		}
 	}
 	
 	/**
-	 * This method initializes the agent names.
+	 * Update agent numbers with the given agents. Agents are counted by the 
+	 * current thread, and only become visible after {@link #reduceNumbers()}
+	 * is invoked.
+	 * @param iterAgents The agents to count.
+	 */
+	public void updateAgents(Iterator<Agent> iterAgents) {
+		census.count(iterAgents);
+	}
+	
+	/**
+	 * Gather the agent numbers counted by all threads since the numbers were reset.
+	 * This method must be invoked while no other thread updates agent numbers, 
+	 * i.e. after all cells have been processed.
+	 */
+	public void reduceNumbers() {
+		census.reduce();
+	}
+	
+	/**
+	 * This method initializes the agent names and indexes.
 	 */
 	@Validate
 	public void validate() {
+		int index = 0;
 		Iterator<String> iterAgName = agentMap.keySet().iterator();
 		while (iterAgName.hasNext()) {
 			String agName = iterAgName.next();
 			AgentPrototype ap = agentMap.get(agName);
 			ap.setName(agName);
+			ap.setIndex(index++);
 		}
 	}
 	
@@ -31,6 +31,7 @@ import org.apache.log4j.Logger;
 import org.laseeb.LAIS.space.Cell2D;
 import org.laseeb.LAIS.substance.SubstanceException;
 import org.laseeb.LAIS.substance.SubstanceProxy;
+import org.laseeb.LAIS.substance.SubstanceRegistry;
 import org.laseeb.LAIS.utils.random.IRng;
 import org.simpleframework.xml.Element;
 import org.simpleframework.xml.ElementMap;
@@ -146,6 +147,9 @@ public class AgentPrototype implements CustomProbeable, Comparable<AgentPrototyp
 	
 	/* The name of the agent prototype. */
 	private String name;
+	
+	/* The index of the agent prototype, given by the agent manager. */
+	private int index;
 
 	/* Logger. */
 	private static Logger logger = Logger.getLogger(AgentPrototype.class);
@@ -153,22 +157,41 @@ public class AgentPrototype implements CustomProbeable, Comparable<AgentPrototyp
 	/* The effectively used agent state types and state names, after XML parsing. */
 	private Map<String, String[]> stateStates;
 	
+	/* State types, sorted. Agent states are coded by the index of their state type 
+	 * in this array and the index of their state name in the respective (sorted) 
+	 * array of state names. */
+	private String[] stateTypes = new String[0];
+	
+	/* State names of each state type, indexed by state type code. */
+	private String[][] stateNames = new String[0][];
+	
 	/* Minimum allowed substance concentration; when the concentration of a substance is lower than this 
 	 * value, it is removed from the respective context. */
 	private float minConThreshold;
+	
+	/* Registry which provides identifiers for the agents' superficial substances. */
+	private SubstanceRegistry substanceRegistry;
 
 	/* The effectively used agent color. */
 	//TODO Use a more versatile color / drawing feature.
 	private Color colorObject;
 
 	/**
-	 * Static utility method for cloning agent genomes.
+	 * Static utility method for cloning agent genomes. Genomes without per-agent state
+	 * are not copied, but shared; genomes must therefore be copied before being changed
+	 * (see {@link Agent#insertGene(Gene, float)}).
 	 *  
 	 * @param genome The genome to be cloned.
-	 * @return The cloned genome.
+	 * @return The cloned genome, or the given genome if it holds no per-agent state.
 	 * @throws CloneNotSupportedException If it's not possible to clone the genome.
 	 */
 	public static List<Gene> cloneGenome(List<Gene> genome, float mutationRate) throws CloneNotSupportedException {
+		boolean stateful = false;
+		for (int i = 0; (!stateful) && (i < genome.size()); i++) {
+			stateful = genome.get(i).isStateful();
+		}
+		if (!stateful)
+			return genome;
 		List<Gene> clonedGenome = new ArrayList<Gene>(genome.size());
 		for (int i = 0; i < genome.size(); i++) {
 			clonedGenome.add(i, genome.get(i).clone(mutationRate));
@@ -181,19 +204,22 @@ public class AgentPrototype implements CustomProbeable, Comparable<AgentPrototyp
 	 * 
 	 * @param refSubMap Original reference substance map.
 	 * @param mutationRate The substance mutation rate.
+	 * @param rng An instance of a random number generator.
+	 * @param registry The simulation's substance registry.
 	 * @return The cloned substance reference map.
 	 * @throws AgentException If not possible to clone agent substance reference map.
 	 */
 	public static Map<String, SubstanceProxy> cloneRefSubMap(
 			Map<String, SubstanceProxy> refSubMap,
 			float mutationRate,
-			IRng rng) throws AgentException {
+			IRng rng,
+			SubstanceRegistry registry) throws AgentException {
 		Map<String, SubstanceProxy> clonedRefSubMap = new HashMap<String, SubstanceProxy>();
 		Iterator<String> iterSubRef = refSubMap.keySet().iterator();
 		while (iterSubRef.hasNext()) {
 			String subRef = iterSubRef.next();
 			try {
-				clonedRefSubMap.put(subRef, refSubMap.get(subRef).clone(mutationRate, rng));
+				clonedRefSubMap.put(subRef, refSubMap.get(subRef).clone(mutationRate, rng, registry));
 			} catch (SubstanceException se) {
 				throw new AgentException(se);
 			}
@@ -227,13 +253,13 @@ public class AgentPrototype implements CustomProbeable, Comparable<AgentPrototyp
 	 * @throws CloneNotSupportedException  If it's not possible to create the agent.
 	 * @throws AgentException When is not possible to create an agent.
 	 */
-	public Agent createAgent(float mutationRate, int id, IRng rng) throws CloneNotSupportedException, AgentException {
+	public Agent createAgent(float mutationRate, long id, IRng rng) throws CloneNotSupportedException, AgentException {
 		Agent agent = new Agent(id);
 		agent.setGenome(cloneGenome(genome, mutationRate));
-		agent.setRefSubMap(cloneRefSubMap(refSubMap, mutationRate, rng));
+		agent.setRefSubMap(cloneRefSubMap(refSubMap, mutationRate, rng, substanceRegistry));
+		agent.setPrototype(this);
 		agent.setStateMap(new AgentStateMap());
 		agent.setSupSubCon(new HashMap<String,Float>());
-		agent.setPrototype(this);
 		return agent;
 	}
 	
@@ -244,22 +270,75 @@ public class AgentPrototype implements CustomProbeable, Comparable<AgentPrototyp
 	 * @return True if the given state type and name exist, returns false otherwise.
 	 */
 	public boolean isValidState(String stateType, String stateName) {
-		if (stateStates.containsKey(stateType)) {
+		int typeCode = getStateTypeCode(stateType);
+		if (typeCode >= 0) {
 			if (stateName == null) {
 				/* TODO Check if a null state name should be allowed. */
 				logger.warn("A null stateName was passed to AgentPrototype.isValidState() method.");
 				return false;
 			}
-			int index = Arrays.binarySearch(stateStates.get(stateType), stateName);
-			if (index >= 0)
-				return true;
-			else
-				return false;
+			return getStateCode(typeCode, stateName) >= 0;
 		} else {
 			return false;
 		}
 	}
 	
+	/**
+	 * Returns the number of state types of this type of agent.
+	 * 
+	 * @return The number of state types of this type of agent.
+	 */
+	public int getNumStateTypes() {
+		return stateTypes.length;
+	}
+	
+	/**
+	 * Returns the code of the given state type, i.e. an integer between 0 and
+	 * {@link #getNumStateTypes()} - 1.
+	 * 
+	 * @param stateType The state type.
+	 * @return The code of the given state type, or -1 if the state type doesn't exist.
+	 */
+	public int getStateTypeCode(String stateType) {
+		int index = Arrays.binarySearch(stateTypes, stateType);
+		return index >= 0 ? index : -1;
+	}
+	
+	/**
+	 * Returns the state type with the given code.
+	 * 
+	 * @param typeCode The state type code.
+	 * @return The state type with the given code.
+	 */
+	public String getStateType(int typeCode) {
+		return stateTypes[typeCode];
+	}
+	
+	/**
+	 * Returns the code of the given state name for the state type with the given code,
+	 * i.e. an integer between 0 and the number of state names of the state type - 1.
+	 * 
+	 * @param typeCode The state type code.
+	 * @param stateName The state name.
+	 * @return The code of the given state name, or -1 if the state name doesn't exist
+	 * for the given state type.
+	 */
+	public int getStateCode(int typeCode, String stateName) {
+		int index = Arrays.binarySearch(stateNames[typeCode], stateName);
+		return index >= 0 ? index : -1;
+	}
+	
+	/**
+	 * Returns the state name with the given code, for the state type with the given code.
+	 * 
+	 * @param typeCode The state type code.
+	 * @param stateCode The state name code.
+	 * @return The state name with the given code.
+	 */
+	public String getStateName(int typeCode, int stateCode) {
+		return stateNames[typeCode][stateCode];
+	}
+	
 	/**
 	 * Returns the color of this type of agent.
 	 * 
@@ -307,6 +386,26 @@ public class AgentPrototype implements CustomProbeable, Comparable<AgentPrototyp
 		this.name = name;
 	}
 	
+	/**
+	 * Returns the index of the agent prototype, between zero and the number of agent 
+	 * prototypes in the simulation minus one.
+	 * 
+	 * @return The index of the agent prototype.
+	 */
+	public int getIndex() {
+		return index;
+	}
+	
+	/**
+	 * Sets the index of the agent prototype. 
+	 * Declared friendly, i.e., only classes in the same package can use this method.
+	 * 
+	 * @param index The index of the agent prototype.
+	 */
+	void setIndex(int index) {
+		this.index = index;
+	}
+	
 	/** 
 	 * Returns the minimum concentration threshold.
 	 * 
@@ -324,6 +423,24 @@ public class AgentPrototype implements CustomProbeable, Comparable<AgentPrototyp
 	public void setMinConThreshold(float minConThreshold) {
 		this.minConThreshold = minConThreshold;
 	}
+	
+	/** 
+	 * Returns the registry which provides identifiers for the agents' superficial substances.
+	 * 
+	 * @return The substance registry.
+	 */
+	public SubstanceRegistry getSubstanceRegistry() {
+		return substanceRegistry;
+	}
+
+	/**
+	 * Sets the registry which provides identifiers for the agents' superficial substances.
+	 * 
+	 * @param substanceRegistry The substance registry.
+	 */
+	public void setSubstanceRegistry(SubstanceRegistry substanceRegistry) {
+		this.substanceRegistry = substanceRegistry;
+	}
 
 	/**
 	 * Validation method for the read XML information.
@@ -339,8 +456,8 @@ public class AgentPrototype implements CustomProbeable, Comparable<AgentPrototyp
 				Integer.parseInt(rgb[1]), 
 				Integer.parseInt(rgb[2]));
 		/* Validate states. */
+		stateStates = new HashMap<String, String[]>();
 		if (states != null) {
-			stateStates = new HashMap<String, String[]>();
 			Iterator<String> iterStr = states.keySet().iterator();
 			while (iterStr.hasNext()) {
 				String nextStateType = iterStr.next();
@@ -349,6 +466,12 @@ public class AgentPrototype implements CustomProbeable, Comparable<AgentPrototyp
 				stateStates.put(nextStateType, stateNames);
 			}
 		}
+		/* Determine state codes. */
+		stateTypes = stateStates.keySet().toArray(new String[stateStates.size()]);
+		Arrays.sort(stateTypes);
+		stateNames = new String[stateTypes.length][];
+		for (int i = 0; i < stateTypes.length; i++)
+			stateNames[i] = stateStates.get(stateTypes[i]);
 	}
 
 	/**
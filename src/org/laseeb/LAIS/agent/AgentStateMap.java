@@ -91,7 +91,7 @@ public class AgentStateMap {
 		Iterator<String> iterStr = map.keySet().iterator();
 		while (iterStr.hasNext()) {
 			String str = iterStr.next();
-			asm.map.put(str, new String(map.get(str)));
+			asm.map.put(str, map.get(str));
 		}
 		return asm;
 	}
@@ -36,4 +36,23 @@ public interface AgentWatcher {
 	 */
 	public int getNumbers(String agStr, AgentStateMap map);
 	
+	/**
+	 * Compiles a query for the number of agents of given type and states, so that
+	 * the agents matching it are counted during the simulation.
+	 * 
+	 * @param agStr The type of agent to check number of.
+	 * @param map The states the agent must be to be counted in.
+	 * @return The query identifier, to be used with {@link #getNumbers(int)}.
+	 */
+	public int compileQuery(String agStr, AgentStateMap map);
+	
+	/**
+	 * Returns the number of agents currently present in the simulation which 
+	 * match the given compiled query.
+	 * 
+	 * @param query The query identifier, as returned by {@link #compileQuery(String, AgentStateMap)}.
+	 * @return The number of agents which match the given query.
+	 */
+	public int getNumbers(int query);
+	
 }
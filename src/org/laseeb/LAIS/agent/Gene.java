@@ -23,6 +23,7 @@ import java.util.Iterator;
 
 import org.laseeb.LAIS.agent.actions.AgentAction;
 import org.laseeb.LAIS.agent.conditions.AgentCondition;
+import org.simpleframework.xml.Attribute;
 import org.simpleframework.xml.ElementList;
 import org.simpleframework.xml.Root;
 import org.simpleframework.xml.core.Validate;
@@ -33,7 +34,8 @@ import org.simpleframework.xml.core.Validate;
  * Conditions can pass parameters to actions, in order to further control their impact.
  * 
  * Genomes are cloneable. The cloning of conditions and actions that comprise the 
- * genome is their responsibility.
+ * genome is their responsibility. Conditions and actions without per-agent state are 
+ * shared by the gene clones, and genes without such state are shared altogether.
  * 
  *   
  * @author Nuno Fachada
@@ -92,6 +94,52 @@ public class Gene implements Cloneable {
 	@ElementList
 	ArrayList<AgentAction> actions;
 	
+	/** 
+	 * <strong>XML Attribute (integer &gt; 0)</strong>
+	 * <p>
+	 * Number of slots of the message passed from conditions to actions, i.e.
+	 * the highest message index used by this gene's conditions and actions plus one.
+	 * Default value is 5 if not specified.
+	 * <p> 
+	 * <em>REQUIRED: NO.</em> 
+	 * */
+	@Attribute(required=false)
+	int messageSize = 5;
+	
+	/* Conditions and actions flattened to arrays, for faster evaluation. */
+	private AgentCondition[] conditionArray;
+	private AgentAction[] actionArray;
+	
+	/* Indicates if any condition or action of this gene holds per-agent state. */
+	private boolean stateful;
+	
+	/**
+	 * Returns the conditions of this gene. The returned array should not be modified.
+	 * 
+	 * @return The conditions of this gene.
+	 */
+	AgentCondition[] getConditions() {
+		return conditionArray;
+	}
+	
+	/**
+	 * Returns the actions of this gene. The returned array should not be modified.
+	 * 
+	 * @return The actions of this gene.
+	 */
+	AgentAction[] getActions() {
+		return actionArray;
+	}
+	
+	/**
+	 * Returns the number of slots of the message passed from conditions to actions.
+	 * 
+	 * @return The number of slots of the message passed from conditions to actions.
+	 */
+	public int getMessageSize() {
+		return messageSize;
+	}
+	
 	/**
 	 * Returns an iterator that iterates through the conditions of this gene.
 	 * 
@@ -111,23 +159,42 @@ public class Gene implements Cloneable {
 	}
 
 	/**
-	 * Clones this gene. Delegates cloning of conditions and actions to themselves.
+	 * Indicates if any condition or action of this gene holds per-agent state.
 	 * 
-	 * @return A clone of this gene.
+	 * @return True if this gene holds per-agent state, false otherwise.
+	 * @see AgentCondition#isStateful()
+	 * @see AgentAction#isStateful()
+	 */
+	public boolean isStateful() {
+		return stateful;
+	}
+
+	/**
+	 * Clones this gene. Delegates cloning of conditions and actions with per-agent state
+	 * to themselves, and shares the remaining ones with the clone. If the gene holds no 
+	 * per-agent state, the gene itself is returned.
+	 * 
+	 * @return A clone of this gene, or this gene if it holds no per-agent state.
 	 * @throws CloneNotSupportedException If it's not possible to clone the gene.
 	 */
 	public Gene clone(float mutationRate) throws CloneNotSupportedException {
+		if (!stateful)
+			return this;
 		Gene geneClone = new Gene();
 		geneClone.conditions = new ArrayList<AgentCondition>(conditions.size());
 		geneClone.actions = new ArrayList<AgentAction>(actions.size());
 		/* Clone conditions */
 		for (int i = 0; i < conditions.size(); i++) {
-			geneClone.conditions.add(i, conditions.get(i).clone(mutationRate));
+			AgentCondition condition = conditions.get(i);
+			geneClone.conditions.add(i, condition.isStateful() ? condition.clone(mutationRate) : condition);
 		}
 		/* Clone actions */
 		for (int i = 0; i < actions.size(); i++) {
-			geneClone.actions.add(i, actions.get(i).clone(mutationRate));
+			AgentAction action = actions.get(i);
+			geneClone.actions.add(i, action.isStateful() ? action.clone(mutationRate) : action);
 		}
+		geneClone.messageSize = messageSize;
+		geneClone.flatten();
 		return geneClone;
 	}
 
@@ -138,6 +205,18 @@ public class Gene implements Cloneable {
 			conditions = new ArrayList<AgentCondition>();
 		if (actions == null)
 			actions = new ArrayList<AgentAction>();
+		flatten();
+	}
+	
+	/* Copies conditions and actions to the respective arrays. */
+	private void flatten() {
+		conditionArray = conditions.toArray(new AgentCondition[conditions.size()]);
+		actionArray = actions.toArray(new AgentAction[actions.size()]);
+		stateful = false;
+		for (AgentCondition condition : conditionArray)
+			stateful |= condition.isStateful();
+		for (AgentAction action : actionArray)
+			stateful |= action.isStateful();
 	}
 
 }
@@ -0,0 +1,192 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package org.laseeb.LAIS.agent;
+
+/**
+ * Message passed from the conditions of a gene to the conditions and actions 
+ * which follow them in the same gene. Message slots are typed, so that integer 
+ * and float values can be passed without boxing. A value should be read with 
+ * the same type it was written, except for integer values, which can also be 
+ * read as floats.
+ * <p>
+ * Messages are reused by the agents between genes and between ticks, so 
+ * conditions and actions should not keep references to them.
+ * 
+ * @author Nuno Fachada
+ */
+public class GeneMessage {
+	
+	/* Slot types. */
+	private static final byte EMPTY = 0;
+	private static final byte INT = 1;
+	private static final byte FLOAT = 2;
+	private static final byte OBJECT = 3;
+	
+	/* Type of the value in each slot. */
+	private byte[] types;
+	
+	/* Integer values. */
+	private int[] ints;
+	
+	/* Float values. */
+	private float[] floats;
+	
+	/* Object values. */
+	private Object[] objects;
+	
+	/* Number of slots in use. */
+	private int size;
+	
+	/**
+	 * Create a new message with the given number of slots.
+	 * 
+	 * @param size Number of message slots.
+	 */
+	public GeneMessage(int size) {
+		types = new byte[size];
+		ints = new int[size];
+		floats = new float[size];
+		objects = new Object[size];
+		this.size = size;
+	}
+	
+	/**
+	 * Empties the message and sets its number of slots, so that it can be 
+	 * passed to the next gene.
+	 * 
+	 * @param size Number of message slots.
+	 */
+	void reset(int size) {
+		if (size > types.length) {
+			types = new byte[size];
+			ints = new int[size];
+			floats = new float[size];
+			objects = new Object[size];
+		} else {
+			for (int i = 0; i < this.size; i++) {
+				types[i] = EMPTY;
+				objects[i] = null;
+			}
+		}
+		this.size = size;
+	}
+	
+	/**
+	 * Returns the number of slots in this message.
+	 * 
+	 * @return The number of slots in this message.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Puts an integer value in the given message slot.
+	 * 
+	 * @param index Message slot.
+	 * @param value Integer value.
+	 */
+	public void setInt(int index, int value) {
+		checkIndex(index);
+		types[index] = INT;
+		ints[index] = value;
+	}
+	
+	/**
+	 * Puts a float value in the given message slot.
+	 * 
+	 * @param index Message slot.
+	 * @param value Float value.
+	 */
+	public void setFloat(int index, float value) {
+		checkIndex(index);
+		types[index] = FLOAT;
+		floats[index] = value;
+	}
+	
+	/**
+	 * Puts an object in the given message slot.
+	 * 
+	 * @param index Message slot.
+	 * @param value The object.
+	 */
+	public void setObject(int index, Object value) {
+		checkIndex(index);
+		types[index] = OBJECT;
+		objects[index] = value;
+	}
+	
+	/**
+	 * Returns the integer value in the given message slot.
+	 * 
+	 * @param index Message slot.
+	 * @return The integer value in the given message slot.
+	 */
+	public int getInt(int index) {
+		checkType(index, INT);
+		return ints[index];
+	}
+	
+	/**
+	 * Returns the float value in the given message slot. If the slot contains
+	 * an integer value, it is converted to float.
+	 * 
+	 * @param index Message slot.
+	 * @return The float value in the given message slot.
+	 */
+	public float getFloat(int index) {
+		checkIndex(index);
+		if (types[index] == INT)
+			return ints[index];
+		checkType(index, FLOAT);
+		return floats[index];
+	}
+	
+	/**
+	 * Returns the object in the given message slot, or <code>null</code> if the slot
+	 * is empty. Integer and float values are boxed.
+	 * 
+	 * @param index Message slot.
+	 * @return The object in the given message slot.
+	 */
+	public Object getObject(int index) {
+		checkIndex(index);
+		switch (types[index]) {
+			case INT: return ints[index];
+			case FLOAT: return floats[index];
+			default: return objects[index];
+		}
+	}
+	
+	/* Checks if the given slot exists. */
+	private void checkIndex(int index) {
+		if (index >= size)
+			throw new ArrayIndexOutOfBoundsException(index);
+	}
+	
+	/* Checks if the given slot contains a value of the given type. */
+	private void checkType(int index, byte type) {
+		checkIndex(index);
+		if (types[index] != type)
+			throw new ClassCastException("Message slot " + index + " does not contain a" + 
+					(type == INT ? "n integer" : " float") + " value.");
+	}
+	
+}
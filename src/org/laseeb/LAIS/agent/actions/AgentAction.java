@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.actions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 import org.simpleframework.xml.Root;
 
@@ -38,7 +39,20 @@ public abstract class AgentAction implements Cloneable {
 	 * @param message Message passed by conditions.
 	 * @throws ActionException If an error occurs during the execution of the action.
 	 */
-	public abstract void performAction(Agent agent, Cell2D cell, Object[] message) throws ActionException;
+	public abstract void performAction(Agent agent, Cell2D cell, GeneMessage message) throws ActionException;
+	
+	/**
+	 * Indicates if this action holds per-agent state, i.e. if its fields change when
+	 * it is performed. Actions without per-agent state are shared by the genomes of 
+	 * cloned agents instead of being cloned, and may be performed concurrently for different 
+	 * agents. Actions which hold per-agent state, or which mutate when cloned, must 
+	 * override this method in order to return true.
+	 * 
+	 * @return True if this action holds per-agent state, false otherwise.
+	 */
+	public boolean isStateful() {
+		return false;
+	}
 	
 	/**
 	 * Clones this AgentAction. This method may be overridden by concrete
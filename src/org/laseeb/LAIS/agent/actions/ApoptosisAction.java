@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.actions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 
 /**
@@ -29,9 +30,9 @@ import org.laseeb.LAIS.space.Cell2D;
 public class ApoptosisAction extends AgentAction {
 
 	/**
-	 * @see AgentAction#performAction(Agent, Cell2D, Object[])
+	 * @see AgentAction#performAction(Agent, Cell2D, GeneMessage)
 	 */
-	public void performAction(Agent agent, Cell2D cell, Object[] message) throws ActionException {
+	public void performAction(Agent agent, Cell2D cell, GeneMessage message) throws ActionException {
 		cell.setAgentToDie(agent);
 	}
 	
@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.actions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.agent.AgentException;
 import org.laseeb.LAIS.space.Cell2D;
 import org.simpleframework.xml.Element;
@@ -72,15 +73,15 @@ public class ChangeStateAction extends AgentAction {
 	String stateValue = null;	
 
 	/**
-	 * @see AgentAction#performAction(Agent, Cell2D, Object[])
+	 * @see AgentAction#performAction(Agent, Cell2D, GeneMessage)
 	 */
-	public void performAction(Agent agent, Cell2D cell, Object[] message) throws ActionException {
+	public void performAction(Agent agent, Cell2D cell, GeneMessage message) throws ActionException {
 		/* Determine state value to set. */
 		String effectiveStateValue;
 		if (indexStateValue >= 0)
 			/* If a dynamic state value is given, then use it has the effective state
 			 * value to set... */
-			effectiveStateValue = (String) message[indexStateValue];
+			effectiveStateValue = (String) message.getObject(indexStateValue);
 		else
 			/* ...otherwise use static state value as the effective state value to set. */  
 			effectiveStateValue = stateValue;
@@ -88,7 +89,7 @@ public class ChangeStateAction extends AgentAction {
 		Agent agentOfInterest;
 		if (indexAg >= 0)
 			/* If an agent is passed in the message, then change state of that agent... */
-			agentOfInterest = (Agent) message[indexAg];
+			agentOfInterest = (Agent) message.getObject(indexAg);
 		else
 			/* ...otherwise change state of this agent. */
 			agentOfInterest = agent;
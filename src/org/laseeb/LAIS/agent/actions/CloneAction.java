@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.agent.AgentException;
 import org.laseeb.LAIS.space.Cell2D;
 import org.simpleframework.xml.Element;
@@ -67,9 +68,9 @@ public class CloneAction extends AgentAction {
 	
 
 	/**
-	 * @see AgentAction#performAction(Agent, Cell2D, Object[])
+	 * @see AgentAction#performAction(Agent, Cell2D, GeneMessage)
 	 */
-	public void performAction(Agent agent, Cell2D cell, Object[] message) throws ActionException {
+	public void performAction(Agent agent, Cell2D cell, GeneMessage message) throws ActionException {
 		
 		for (int i = 0; i < numClones; i++) {
 			Agent clonedAgent;
@@ -20,6 +20,7 @@ package org.laseeb.LAIS.agent.actions;
 
 import org.apache.log4j.Logger;
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 import org.simpleframework.xml.Element;
 
@@ -55,11 +56,11 @@ public class DebugAction extends AgentAction {
 	private static Logger logger = Logger.getLogger(DebugAction.class);
 	
 	/**
-	 * @see AgentAction#performAction(Agent, Cell2D, Object[])
+	 * @see AgentAction#performAction(Agent, Cell2D, GeneMessage)
 	 */
-	public void performAction(Agent agent, Cell2D cell, Object[] message) throws ActionException {
+	public void performAction(Agent agent, Cell2D cell, GeneMessage message) throws ActionException {
 		if (index >= 0)
-			logger.debug("DebugActionMessage: " + msg + " / " + message[index]);
+			logger.debug("DebugActionMessage: " + msg + " / " + message.getObject(index));
 		else
 			logger.debug("DebugActionMessage: " + msg);
 	}
@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.actions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 
 /**
@@ -30,9 +31,9 @@ import org.laseeb.LAIS.space.Cell2D;
 public class DegradeSupSubAction extends AgentAction {
 
 	/**
-	 * @see AgentAction#performAction(Agent, Cell2D, Object[])
+	 * @see AgentAction#performAction(Agent, Cell2D, GeneMessage)
 	 */
-	public void performAction(Agent agent, Cell2D cell, Object[] message) throws ActionException {
+	public void performAction(Agent agent, Cell2D cell, GeneMessage message) throws ActionException {
 		agent.degradeSupSub();
 	}
 
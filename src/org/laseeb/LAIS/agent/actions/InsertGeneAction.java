@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.actions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.agent.Gene;
 import org.laseeb.LAIS.space.Cell2D;
 import org.simpleframework.xml.Element;
@@ -61,11 +62,11 @@ public class InsertGeneAction extends AgentAction {
 	float mutationRate;
 
 	/**
-	 * @see AgentAction#performAction(Agent, Cell2D, Object[])
+	 * @see AgentAction#performAction(Agent, Cell2D, GeneMessage)
 	 */
-	public void performAction(Agent agent, Cell2D cell, Object[] message) throws ActionException {
+	public void performAction(Agent agent, Cell2D cell, GeneMessage message) throws ActionException {
 		/* Get agent where to insert gene. */
-		Agent otherAgent = (Agent) message[indexAg];
+		Agent otherAgent = (Agent) message.getObject(indexAg);
 		/* Insert gene. */
 		try {
 			otherAgent.insertGene(gene, mutationRate);
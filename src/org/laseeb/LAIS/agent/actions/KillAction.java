@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.actions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 import org.simpleframework.xml.Element;
 
@@ -39,11 +40,11 @@ public class KillAction extends AgentAction {
 	int index;
 
 	/**
-	 * @see AgentAction#performAction(Agent, Cell2D, Object[])
+	 * @see AgentAction#performAction(Agent, Cell2D, GeneMessage)
 	 */
-	public void performAction(Agent agent, Cell2D cell, Object[] message) throws ActionException {
+	public void performAction(Agent agent, Cell2D cell, GeneMessage message) throws ActionException {
 		/* Get agent to kill */
-		Agent agToKill = (Agent) message[index];
+		Agent agToKill = (Agent) message.getObject(index);
 		/* Kill the agent */
 		cell.setAgentToDie(agToKill);
 	}
@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.actions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.agent.AgentException;
 import org.laseeb.LAIS.space.Cell2D;
 import org.laseeb.LAIS.substance.Substance;
@@ -102,12 +103,12 @@ public class ProdConsSubOnAgentAction extends AgentAction {
 	String substance;
 	
 	/**
-	 * @see AgentAction#performAction(Agent, Cell2D, Object[])
+	 * @see AgentAction#performAction(Agent, Cell2D, GeneMessage)
 	 */
-	public void performAction(Agent agent, Cell2D cell, Object[] message) throws ActionException {
+	public void performAction(Agent agent, Cell2D cell, GeneMessage message) throws ActionException {
 		
 		/*Get Agent*/
-		Agent agToPlace = (Agent) message[index];
+		Agent agToPlace = (Agent) message.getObject(index);
 		
 		/* Get substance. */
 		Substance sub;
@@ -120,13 +121,13 @@ public class ProdConsSubOnAgentAction extends AgentAction {
 				throw new ActionException("Unable to get substance with reference '" + substance + "'.", ae);
 			}
 		} else {
-			sub = (Substance) message[indexSub];
+			sub = (Substance) message.getObject(indexSub);
 		}
 		
 		/* Get concentration to produce/consume. */
 		float conToChange;
 		if (indexCon >= 0) {
-			conToChange = ((Float) message[indexCon]) * conBase;
+			conToChange = message.getFloat(indexCon) * conBase;
 		} else {
 			conToChange = conBase;
 		}
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Iterator;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.agent.AgentException;
 import org.laseeb.LAIS.agent.AgentPrototype;
 import org.laseeb.LAIS.agent.AgentStateMap;
@@ -114,13 +115,13 @@ public class ProduceAgentAction extends AgentAction {
 	Map<String, Float> supSubConMap = new HashMap<String, Float>();
 
 	/**
-	 * @see AgentAction#performAction(Agent, Cell2D, Object[])
+	 * @see AgentAction#performAction(Agent, Cell2D, GeneMessage)
 	 */
-	public void performAction(Agent agent, Cell2D cell, Object[] message) throws ActionException {
+	public void performAction(Agent agent, Cell2D cell, GeneMessage message) throws ActionException {
 		/* Determine weight. */
 		float weight;
 		if (indexWeight >= 0)
-			weight = (Float) message[indexWeight];
+			weight = message.getFloat(indexWeight);
 		else
 			weight = 1;
 		/* Determine number of agents to produce. */
@@ -161,7 +162,8 @@ public class ProduceAgentAction extends AgentAction {
 				}
 				/* Perform required mutation. */
 				try {
-					refSubMap = AgentPrototype.cloneRefSubMap(refSubMap, mutRate, cell.getRng());
+					refSubMap = AgentPrototype.cloneRefSubMap(refSubMap, mutRate, cell.getRng(), 
+							newAgent.getPrototype().getSubstanceRegistry());
 				} catch (AgentException ae) {
 					throw new ActionException(ae);
 				}
@@ -19,9 +19,11 @@
 package org.laseeb.LAIS.agent.actions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.agent.AgentException;
 import org.laseeb.LAIS.space.Cell2D;
 import org.laseeb.LAIS.substance.Substance;
+import org.laseeb.LAIS.substance.SubstanceException;
 import org.laseeb.LAIS.substance.SubstanceProxy;
 import org.simpleframework.xml.Element;
 
@@ -82,26 +84,29 @@ public class SetSubRefAction extends AgentAction {
 	String subRef;
 	
 	/**
-	 * @see AgentAction#performAction(Agent, Cell2D, Object[])
+	 * @see AgentAction#performAction(Agent, Cell2D, GeneMessage)
 	 */
-	public void performAction(Agent agent, Cell2D cell, Object[] message) throws ActionException {
+	public void performAction(Agent agent, Cell2D cell, GeneMessage message) throws ActionException {
 		Agent agentOfInterest;
 		SubstanceProxy subProxyToSet;
 		/* If an agent is passed in the message, then change state of given agent. 
 		 * Otherwise, change substance reference in self. */
 		if (indexAg >= 0)
-			agentOfInterest = (Agent) message[indexAg];
+			agentOfInterest = (Agent) message.getObject(indexAg);
 		else
 			agentOfInterest = agent;
 		/* If substance is passed in the message, use it, else use substance set
-		 * in action. */
+		 * in action. Substance proxies belong to a single agent, so the latter is cloned. */
 		if (indexSub >= 0)
-			subProxyToSet = new SubstanceProxy((Substance) message[indexSub]);
+			subProxyToSet = new SubstanceProxy((Substance) message.getObject(indexSub));
 		else
 			try {
-				subProxyToSet = agent.getSubstanceByRef(newSubRef);
+				subProxyToSet = agent.getSubstanceByRef(newSubRef).clone(0, cell.getRng(), 
+						agent.getPrototype().getSubstanceRegistry());
 			} catch (AgentException ae) {
 				throw new ActionException(this.getClass().getSimpleName() + "is unable to set substance with reference " + newSubRef + " in agent '" + agent.getName() + "'.", ae);
+			} catch (SubstanceException se) {
+				throw new ActionException(this.getClass().getSimpleName() + "is unable to set substance with reference " + newSubRef + " in agent '" + agent.getName() + "'.", se);
 			}
 		/* Set reference. */
 		agentOfInterest.setSubRef(subRef, subProxyToSet);
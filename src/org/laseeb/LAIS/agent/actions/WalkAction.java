@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.actions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 import org.simpleframework.xml.Element;
 
@@ -40,18 +41,19 @@ public class WalkAction extends AgentAction {
 	int index;
 	
 	/**
-	 * @see AgentAction#performAction(Agent, Cell2D, Object[])
+	 * @see AgentAction#performAction(Agent, Cell2D, GeneMessage)
 	 */
-	public void performAction(Agent agent, Cell2D cell, Object[] message) throws ActionException {
+	public void performAction(Agent agent, Cell2D cell, GeneMessage message) throws ActionException {
 
-		int destination = (Integer) message[index];
-		if ((destination < 0) || (destination > cell.getNeighbors().size() - 1))
+		int destination = message.getInt(index);
+		int numNeighbors = cell.getNumNeighbors();
+		if ((destination < 0) || (destination > numNeighbors - 1))
 			throw new ActionException("Error in action '" + 
 					this.getClass().getSimpleName() + 
 					"': destination value is " + 
 					destination + ", " +
-					"but must be between 0 and " + (cell.getNeighbors().size() - 1) + ".");
-		cell.setAgentToMoveOut(agent, (Cell2D) cell.getNeighbors().get(destination));
+					"but must be between 0 and " + (numNeighbors - 1) + ".");
+		cell.setAgentToMoveOut(agent, cell.getNeighborCells()[destination]);
 	}
 
 }
@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.conditions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 
 import org.simpleframework.xml.Element;
@@ -46,9 +47,9 @@ public class AgeCondition extends AgentCondition {
 	int halflife;
 	
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
 		double p = 1.0/halflife;		
 		double doAction = cell.getRng().nextDoubleFromTo(0, 1);
 
@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.conditions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 
 import org.simpleframework.xml.Root;
@@ -26,7 +27,7 @@ import org.simpleframework.xml.Attribute;
 
 /**
  * Agent conditions extend this abstract class. More specifically, agent conditions implement the
- * {@link #evaluate(Agent, Cell2D, Object[])} method.
+ * {@link #evaluate(Agent, Cell2D, GeneMessage)} method.
  * 
  * @author Nuno Fachada
  */
@@ -52,7 +53,7 @@ public abstract class AgentCondition implements Cloneable {
 	 * @return True if this conditions condition verifies itself.
 	 * @throws ConditionException If an error occurs during the evaluation of the condition.
 	 */
-	public abstract boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException;
+	public abstract boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException;
 		
 	/**
 	 * Returns a boolean which will be XORed with the final condition decision.
@@ -62,6 +63,19 @@ public abstract class AgentCondition implements Cloneable {
 		return complement;
 	}
 	
+	/**
+	 * Indicates if this condition holds per-agent state, i.e. if its fields change when
+	 * it is evaluated. Conditions without per-agent state are shared by the genomes of 
+	 * cloned agents instead of being cloned, and may be evaluated concurrently for different 
+	 * agents. Conditions which hold per-agent state, or which mutate when cloned, must 
+	 * override this method in order to return true.
+	 * 
+	 * @return True if this condition holds per-agent state, false otherwise.
+	 */
+	public boolean isStateful() {
+		return false;
+	}
+	
 	/**
 	 * Clones this AgentCondition. This method may be overridden by concrete
 	 * implementations of AgentCondition (for example if the mutation rate
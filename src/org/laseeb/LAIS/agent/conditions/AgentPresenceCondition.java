@@ -18,17 +18,14 @@
 
 package org.laseeb.LAIS.agent.conditions;
 
-import java.util.List;
-import java.util.Set;
-
 import org.laseeb.LAIS.agent.Agent;
 import org.laseeb.LAIS.agent.AgentPrototype;
-import org.laseeb.LAIS.agent.AgentView;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 import org.simpleframework.xml.Element;
 
 /**
- * Checks for the presence of an agent with a given prototype.
+ * Checks for the presence of another agent with a given prototype in the agent's cell.
  * 
  * @author Nuno Fachada
  */
@@ -55,38 +52,19 @@ public class AgentPresenceCondition extends AgentCondition {
 	AgentPrototype prototype;
 
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message)
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message)
 			throws ConditionException {
 		
-		/* The agent view. */
-		AgentView typeView;
-		/* Get the agent view by prototype in this cell. */
-		if (!cell.isAgentViewUpdated(this.getClass().getName())) {
-			/* View does not exist, create it. */
-			typeView = new AgentView();
-			/* Cycle through all agents in cell. */
-			Set<Agent> agentsInCell = cell.getAgents();
-			for (Agent ag : agentsInCell) {
-				/* Add agent to view. */
-				typeView.addAgent(ag.getPrototype(), ag);
-			}
-			/* Set updated view. */
-			cell.setAgentView(this.getClass().getName(), typeView);
-		} else {
-			/* View exists, request it from cell. */
-			typeView = cell.getAgentView(this.getClass().getName());
-		}
-		
-		/* Get agents of given type. */
-		List<Agent> agents = typeView.getAgents(prototype);
+		/* Get number of agents of given type (other than this agent), kept by the cell. */
+		int numAgents = cell.getNumAgents(prototype);
 		/* If there are agents of the given type... */
-		if (agents != null) {
+		if (numAgents > 0) {
 			/* ...pass one of the agents randomly to the actions if index >= 0 and... */
 			if (index >= 0) {
-				int anAgentIndex = cell.getRng().nextIntFromTo(0, agents.size() - 1);
-				message[index] = agents.get(anAgentIndex);
+				int anAgentIndex = cell.getRng().nextIntFromTo(0, numAgents - 1);
+				message.setObject(index, cell.getAgent(prototype, anAgentIndex));
 			}
 			/* ...return true. */
 			return true;
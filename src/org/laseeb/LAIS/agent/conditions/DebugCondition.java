@@ -20,6 +20,7 @@ package org.laseeb.LAIS.agent.conditions;
 
 import org.apache.log4j.Logger;
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 import org.simpleframework.xml.Element;
 
@@ -56,12 +57,12 @@ public class DebugCondition extends AgentCondition {
 	private static Logger logger = Logger.getLogger(DebugCondition.class);
 
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
 		logger.debug("DebugconditionMessage: " + stringToPrint);
 		if (index >= 0)
-			message[index] = stringToPrint;
+			message.setObject(index, stringToPrint);
 		return true;
 	}
 
@@ -20,9 +20,9 @@ package org.laseeb.LAIS.agent.conditions;
 
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.Vector;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 import org.laseeb.LAIS.space.CellStepException;
 
@@ -104,26 +104,33 @@ public class InertialMovementCondition extends AgentCondition {
 	/* Previous cell where the agent was situated */
 	Cell2D previousCell = null;
 	
-	static int direction[] = {0,0,0,0,0,0,0,0};
+	/**
+	 * This condition remembers the previous cell of the agent, so it must be cloned.
+	 * 
+	 * @see AgentCondition#isStateful()
+	 */
+	@Override
+	public boolean isStateful() {
+		return true;
+	}
 	
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
 
-		/* Vector of neighbors. */
-		Vector<Cell2D> neighs = cell.getNeighbors();
+		/* Array of neighbors. */
+		Cell2D[] neighs = cell.getNeighborCells();
 
 		/* If agent was stopped or inertia is zero, movement will be random. */
 		if ((previousCell == null) || (inertia == 0) || (previousCell == cell)) {
-			int destination = cell.getRng().nextIntFromTo(-1, neighs.size() - 1);
+			int destination = cell.getRng().nextIntFromTo(-1, neighs.length - 1);
 			if (destination == -1) {
 				previousCell = null;
 				return false;
 			} else {
 				previousCell = cell;
-				message[index] = destination;
-				direction[destination]++;
+				message.setInt(index, destination);
 				return true;
 			}
 		}
@@ -136,17 +143,17 @@ public class InertialMovementCondition extends AgentCondition {
 			throw new ConditionException(cse.getMessage());
 		}
 		Map<Integer, Float> cellMap = new TreeMap<Integer, Float>();
-		for (int i = 0; i < neighs.size(); i++) {
+		for (int i = 0; i < neighs.length; i++) {
 			int d;
 			try {
-				d = Math.abs(cell.getDistanceBetweenNeighbors(currDirectionCell, neighs.get(i)));
+				d = Math.abs(cell.getDistanceBetweenNeighbors(currDirectionCell, neighs[i]));
 			} catch (CellStepException cse) {
 				throw new ConditionException(cse.getMessage());
 			}
-			float relProb = 1.0f - 2.0f * d / (neighs.size() + 1.0f);
+			float relProb = 1.0f - 2.0f * d / (neighs.length + 1.0f);
 			cellMap.put(i, relProb);
 		}
-		float relProbStop = 1.0f - neighs.size() / (neighs.size() + 1.0f); 
+		float relProbStop = 1.0f - neighs.length / (neighs.length + 1.0f); 
 		cellMap.put(-1, relProbStop);
 		/* Total non-normalized probability. */
 		float totalProb = 0.0f;
@@ -154,7 +161,7 @@ public class InertialMovementCondition extends AgentCondition {
 		if (inertia == 1) {
 			/* Special case: inertia = 1 */
 			previousCell = cell;
-			message[index] = neighs.indexOf(currDirectionCell);
+			message.setInt(index, cell.getNeighborIndex(currDirectionCell));
 			return true;			
 		} else if (inertia == 0.5f) {
 			/* Special case: inertia = 0.5 */
@@ -163,7 +170,7 @@ public class InertialMovementCondition extends AgentCondition {
 			}
 		} else {
 			/* General case */
-			for (int i = -1; i < neighs.size(); i++) {
+			for (int i = -1; i < neighs.length; i++) {
 				float prob = (float) Math.pow(
 						cellMap.get(i), 
 						inertia / (1 - inertia)
@@ -179,7 +186,7 @@ public class InertialMovementCondition extends AgentCondition {
 		float prob = cell.getRng().nextFloatFromTo(0.0f, totalProb);
 		float densityProbDist = 0.0f;
 		int destination = -1;
-		for (int i = -1; i < neighs.size(); i++) {
+		for (int i = -1; i < neighs.length; i++) {
 			densityProbDist += cellMap.get(i);
 			if (prob < densityProbDist) {
 				destination = i;
@@ -191,8 +198,7 @@ public class InertialMovementCondition extends AgentCondition {
 			return false;
 		} else {
 			previousCell = cell;
-			message[index] = destination;
-			direction[destination]++;
+			message.setInt(index, destination);
 			return true;
 		}
 	}	
@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.conditions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 
 import org.simpleframework.xml.Element;
@@ -42,13 +43,13 @@ public class RandomWalkCondition extends AgentCondition {
 	int index;
 	
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
 		
-		int walk = cell.getRng().nextIntFromTo(0, cell.getNeighbors().size());
+		int walk = cell.getRng().nextIntFromTo(0, cell.getNumNeighbors());
 		if (walk != 0) {
-			message[index] = walk - 1;
+			message.setInt(index, walk - 1);
 			return true;			
 		} else {
 			return false;
@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.conditions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.agent.AgentException;
 import org.laseeb.LAIS.space.Cell2D;
 import org.laseeb.LAIS.substance.Substance;
@@ -98,9 +99,9 @@ public class SimpleAffinityCondition extends AgentCondition {
 	String substance2;
 	
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
 		Substance sub1;
 		try {
 			sub1 = agent.getSubstanceByRef(substance1).getSubstance(agent);
@@ -125,7 +126,7 @@ public class SimpleAffinityCondition extends AgentCondition {
 		}
 		if (affin > minAffin) {
 			if (index >= 0)
-				message[index] = affin;
+				message.setFloat(index, affin);
 				return true;
 		} else {
 			return false;
@@ -19,6 +19,8 @@
 package org.laseeb.LAIS.agent.conditions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.AgentPrototype;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 import org.simpleframework.xml.Element;
 import org.simpleframework.xml.ElementArray;
@@ -48,17 +50,50 @@ public class StateCondition extends AgentCondition {
 	 * */
 	@ElementArray
 	String[] stateValues;
+	
+	/* State type and values coded for a given agent prototype. Instances are immutable. */
+	private static class CodedStates {
+		final AgentPrototype prototype;
+		final int typeCode;
+		final boolean[] matches;
+		CodedStates(AgentPrototype prototype, int typeCode, boolean[] matches) {
+			this.prototype = prototype;
+			this.typeCode = typeCode;
+			this.matches = matches;
+		}
+	}
+	
+	/* State type and values coded for the prototype of the last evaluated agent. */
+	private volatile CodedStates codedStates;
 
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
-		for (String str : stateValues) {
-			//if (str.compareTo(agent.getState(stateType)) == 0)
-			if (str.equals(agent.getState(stateType)))
-				return true;
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
+		CodedStates cs = codedStates;
+		if ((cs == null) || (cs.prototype != agent.getPrototype())) {
+			cs = codeStates(agent.getPrototype());
+			codedStates = cs;
+		}
+		if (cs.typeCode < 0)
+			return false;
+		int stateCode = agent.getStateCode(cs.typeCode);
+		return (stateCode >= 0) && cs.matches[stateCode];
+	}
+	
+	/* Codes the state type and values of this condition for the given agent prototype. */
+	private CodedStates codeStates(AgentPrototype prototype) {
+		int typeCode = prototype.getStateTypeCode(stateType);
+		boolean[] matches = null;
+		if (typeCode >= 0) {
+			matches = new boolean[prototype.getStateNames(stateType).length];
+			for (String str : stateValues) {
+				int stateCode = prototype.getStateCode(typeCode, str);
+				if (stateCode >= 0)
+					matches[stateCode] = true;
+			}
 		}
-		return false;
+		return new CodedStates(prototype, typeCode, matches);
 	}
 
 }
@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.conditions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 import org.simpleframework.xml.Element;
 
@@ -65,17 +66,17 @@ public class StochasticCondition extends AgentCondition {
 	Float probability = -1f;	
 	
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
 		float realProbability;
 		if (indexFromConditions >= 0)
-			realProbability = (Float) message[indexFromConditions];
+			realProbability = message.getFloat(indexFromConditions);
 		else
 			realProbability = probability;
 		float p = cell.getRng().nextFloatFromTo(0, 1);
 		if (indexToActions >= 0) 
-			message[indexToActions] = p;
+			message.setFloat(indexToActions, p);
 		if (p < realProbability) {
 			return true;
 		} else {
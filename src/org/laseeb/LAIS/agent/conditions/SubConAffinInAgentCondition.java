@@ -23,10 +23,13 @@ import java.util.Vector;
 
 import org.laseeb.LAIS.agent.Agent;
 import org.laseeb.LAIS.agent.AgentException;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
+import org.laseeb.LAIS.substance.AffinityIndex;
 import org.laseeb.LAIS.substance.Substance;
 import org.laseeb.LAIS.substance.SubstanceException;
 import org.laseeb.LAIS.substance.SubstanceFamily;
+import org.laseeb.LAIS.substance.SubstanceRegistry;
 import org.simpleframework.xml.Element;
 
 /**
@@ -133,11 +136,24 @@ public class SubConAffinInAgentCondition extends AgentCondition {
 	@Element
 	String substance;
 	
+	/* Affinity index of a given substance to compare. Instances are immutable. */
+	private static class CachedIndex {
+		final Substance substance;
+		final AffinityIndex index;
+		CachedIndex(Substance substance, AffinityIndex index) {
+			this.substance = substance;
+			this.index = index;
+		}
+	}
+	
+	/* Affinity index of the last substance to compare. */
+	private volatile CachedIndex cachedIndex;
+	
 	//TODO Should set a minimum local substance
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
 		/* Get substance to compare from agent. */
 		Substance substanceToCompare;
 		try {
@@ -150,6 +166,17 @@ public class SubConAffinInAgentCondition extends AgentCondition {
 		if (substanceToCompare == null) return false;
 		/* Concentration of substance to compare in current agent. */
 		float conSubToCompare = agent.getSubstanceCon(substanceToCompare);
+		/* Only substances of the required family with an affinity above the minimum 
+		 * match can yield a positive match, which the affinity index tells apart 
+		 * without determining the affinity again. */
+		SubstanceRegistry registry = agent.getPrototype().getSubstanceRegistry();
+		CachedIndex ci = cachedIndex;
+		if ((ci == null) || (ci.substance != substanceToCompare) || !ci.index.isValid()) {
+			ci = new CachedIndex(substanceToCompare, registry.getAffinityIndex(
+					substanceToCompare, family, startBit, endBit, minMatch));
+			cachedIndex = ci;
+		}
+		AffinityIndex affinityIndex = ci.index;
 		/* Get agent iterator. */
 		Iterator<Agent> iterAgents;
 		if (indexPrevAgent == null) {
@@ -158,7 +185,7 @@ public class SubConAffinInAgentCondition extends AgentCondition {
 		} else {
 			/* Use only one agent, chosen in a previous condition. */
 			Vector<Agent> oneAgentVector = new Vector<Agent>(1);
-			oneAgentVector.add((Agent) message[indexPrevAgent]);
+			oneAgentVector.add((Agent) message.getObject(indexPrevAgent));
 			iterAgents = oneAgentVector.iterator();
 		}
 		/* Cycle through agents. */
@@ -171,20 +198,19 @@ public class SubConAffinInAgentCondition extends AgentCondition {
 			while (iterSub.hasNext()) {
 				/* Get next substance of currently selected other agent. */
 				Substance sub = iterSub.next();
-				/* Check if substance belong to family, if not check next substance. */
-				if (family != null)
-					if (!sub.getFamily().equals(family))
-						continue;
-				/* Get concentration of such substance in surface of currently selected other agent. */
-				float conOtherAgentSub = ag.getSubstanceCon(sub);
 				/* Get affinity of this agent's substance to compare with 
-				 * substance of currently selected other agent. */
+				 * substance of currently selected other agent. If substance doesn't 
+				 * belong to family or affinity is too low, check next substance. */
 				float affinity;
 				try {
-					affinity = substanceToCompare.affinityWith(sub, startBit, endBit);
+					affinity = affinityIndex.getAffinity(registry.getId(sub));
 				} catch (SubstanceException se) {
 					throw new ConditionException(this.getClass().getName() + " is unable to determine affinity between substances '" + substanceToCompare.getName() + "' and '" + sub.getName() + "' (start bit:" + startBit + ", end bit:" + endBit + ").", se);
 				}
+				if (affinity < 0)
+					continue;
+				/* Get concentration of such substance in surface of currently selected other agent. */
+				float conOtherAgentSub = ag.getSubstanceCon(sub);
 				/* Get percentage of substance in other agent that matches the substance to compare 
 				 * in current agent. */
 				float percentConMatch = Math.min(1.0f, conOtherAgentSub / conSubToCompare);
@@ -202,11 +228,11 @@ public class SubConAffinInAgentCondition extends AgentCondition {
 			/* If any substances were found in this agent, return the best. */
 			if (currSub != null) {
 				if (indexAg >= 0)
-					message[indexAg] = ag;
+					message.setObject(indexAg, ag);
 				if (indexSub >= 0)
-					message[indexSub] = currSub;
+					message.setObject(indexSub, currSub);
 				if (indexMinMatch >= 0)
-					message[indexMinMatch] = currMinMatch;
+					message.setFloat(indexMinMatch, currMinMatch);
 				return true;
 			}
 		}		
@@ -18,14 +18,15 @@
 
 package org.laseeb.LAIS.agent.conditions;
 
-import java.util.Iterator;
-
 import org.laseeb.LAIS.agent.Agent;
 import org.laseeb.LAIS.agent.AgentException;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
+import org.laseeb.LAIS.substance.AffinityIndex;
 import org.laseeb.LAIS.substance.Substance;
 import org.laseeb.LAIS.substance.SubstanceException;
 import org.laseeb.LAIS.substance.SubstanceFamily;
+import org.laseeb.LAIS.substance.SubstanceRegistry;
 
 import org.simpleframework.xml.Element;
 
@@ -110,10 +111,23 @@ public class SubConAffinInCellCondition extends AgentCondition {
 	@Element
 	String substance;
 	
+	/* Affinity index of a given substance to compare. Instances are immutable. */
+	private static class CachedIndex {
+		final Substance substance;
+		final AffinityIndex index;
+		CachedIndex(Substance substance, AffinityIndex index) {
+			this.substance = substance;
+			this.index = index;
+		}
+	}
+	
+	/* Affinity index of the last substance to compare. */
+	private volatile CachedIndex cachedIndex;
+	
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
 		/* Get substance to compare from agent. */
 		Substance substanceToCompare;
 		try {
@@ -126,37 +140,55 @@ public class SubConAffinInCellCondition extends AgentCondition {
 		if (substanceToCompare == null) return false;
 		/* Concentration of substance to compare in current agent. */
 		float conSubToCompare = agent.getSubstanceCon(substanceToCompare);
-		/* Cycle through substances in current cell. */
-		Iterator<Substance> iterSub = cell.substanceIterator();
-		while (iterSub.hasNext()) {
-			/* Get substance. */
-			Substance sub = iterSub.next();
-			/* Determine if substance is of the required family. */
-			if (family != null)
-				if (!sub.getFamily().equals(family))
+		/* Only substances of the required family with an affinity above the minimum 
+		 * match can yield a positive match, so get them from the affinity index 
+		 * instead of checking every substance in current cell. */
+		SubstanceRegistry registry = agent.getPrototype().getSubstanceRegistry();
+		CachedIndex ci = cachedIndex;
+		if ((ci == null) || (ci.substance != substanceToCompare) || !ci.index.isValid()) {
+			ci = new CachedIndex(substanceToCompare, registry.getAffinityIndex(
+					substanceToCompare, family, startBit, endBit, minMatch));
+			cachedIndex = ci;
+		}
+		AffinityIndex affinityIndex = ci.index;
+		/* Find the first of these substances (in the order of the cell's substance 
+		 * iterator) which is present in current cell and fits the requirements. */
+		Substance matchSub = null;
+		float match = 0.0f;
+		int matchPosition = Integer.MAX_VALUE;
+		try {
+			int[] matches = affinityIndex.getMatches();
+			for (int i = 0; i < matches.length; i++) {
+				/* Check if substance is present in cell and before current match. */
+				int position = cell.getSubstancePosition(matches[i]);
+				if ((position < 0) || (position > matchPosition))
 					continue;
-			/* Get concentration of substance in cell. */
-			float conInCell = cell.getSubstanceCon(sub);
-			/* Get affinity of this substances with this agent's substance to compare. */
-			float affinity;
-			try {
-				affinity = substanceToCompare.affinityWith(sub, startBit, endBit);
-			} catch (SubstanceException se) {
-				throw new ConditionException(this.getClass().getName() + " is unable to determine affinity between substances '" + substanceToCompare.getName() + "' and '" + sub.getName() + "' (start bit:" + startBit + ", end bit:" + endBit + ").", se);
-			}
-			/* Get percentage of substance in cell that matches the substance to compare 
-			 * in current agent. */
-			float percentConMatch = Math.min(1.0f, conInCell / conSubToCompare);
-			/* Check if substance in cell fits the minimum requirements in terms of 
-			 * concentration and affinity in order for the condition to yield a positive match. */
-			if (percentConMatch * affinity > minMatch) {
-				if (indexSub >= 0)
-					message[indexSub] = sub;
-				if (indexCon >= 0)
-					message[indexCon] = percentConMatch * affinity;
-				return true;
+				/* Get concentration of substance in cell. */
+				Substance sub = registry.getSubstance(matches[i]);
+				float conInCell = cell.getSubstanceCon(sub);
+				/* Get affinity of this substances with this agent's substance to compare. */
+				float affinity = affinityIndex.getAffinity(matches[i]);
+				/* Get percentage of substance in cell that matches the substance to compare 
+				 * in current agent. */
+				float percentConMatch = Math.min(1.0f, conInCell / conSubToCompare);
+				/* Check if substance in cell fits the minimum requirements in terms of 
+				 * concentration and affinity in order for the condition to yield a positive match. */
+				if (percentConMatch * affinity > minMatch) {
+					matchSub = sub;
+					match = percentConMatch * affinity;
+					matchPosition = position;
+				}
 			}
-		}		
+		} catch (SubstanceException se) {
+			throw new ConditionException(this.getClass().getName() + " is unable to determine affinity with substance '" + substanceToCompare.getName() + "' (start bit:" + startBit + ", end bit:" + endBit + ").", se);
+		}
+		if (matchSub != null) {
+			if (indexSub >= 0)
+				message.setObject(indexSub, matchSub);
+			if (indexCon >= 0)
+				message.setFloat(indexCon, match);
+			return true;
+		}
 		return false;
 	}
 	
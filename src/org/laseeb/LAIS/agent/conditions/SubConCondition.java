@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.conditions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.agent.AgentException;
 import org.laseeb.LAIS.space.Cell2D;
 import org.laseeb.LAIS.substance.Substance;
@@ -76,9 +77,9 @@ public class SubConCondition extends AgentCondition {
 	String substance;
 	
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
 		/* Determine type of substance container. */
 		SubstanceContainer container;
 		if (localOrSuperficial)
@@ -96,7 +97,7 @@ public class SubConCondition extends AgentCondition {
 		}
 		Float con = container.getSubstanceCon(sub);
 		if (con == null) con = 0.0f;
-		if (index >= 0) message[index] = con;
+		if (index >= 0) message.setFloat(index, con);
 		if (con >= minQuantity) 
 			return true;
 		else 
@@ -23,6 +23,7 @@ import java.util.Iterator;
 import java.util.Vector;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 import org.laseeb.LAIS.substance.Substance;
 import org.simpleframework.xml.Element;
@@ -79,9 +80,9 @@ public class SubConInAgentCondition extends AgentCondition {
 	Substance substance;
 	
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
 		
 		/* List of agents that have the given superficial substance */
 		ArrayList<Agent> agents = new ArrayList<Agent>();
@@ -96,7 +97,7 @@ public class SubConInAgentCondition extends AgentCondition {
 		} else {
 			/* Use only one agent, chosen in a previous condition. */
 			Vector<Agent> oneAgentVector = new Vector<Agent>(1);
-			oneAgentVector.add((Agent) message[indexPrevAgent]);
+			oneAgentVector.add((Agent) message.getObject(indexPrevAgent));
 			iterAgents = oneAgentVector.iterator();
 		}
 		while (iterAgents.hasNext()) {
@@ -118,7 +119,7 @@ public class SubConInAgentCondition extends AgentCondition {
 			int whichAgent = cell.getRng().nextIntFromTo(0, agents.size() - 1);
 			Agent ag = agents.get(whichAgent);
 			if (indexAg >= 0)
-				message[indexAg] = ag;			
+				message.setObject(indexAg, ag);			
 		}
 		return decision;
 	}
@@ -22,6 +22,7 @@ import java.util.*;
 
 import org.apache.log4j.Logger;
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.agent.AgentException;
 import org.laseeb.LAIS.space.Cell2D;
 import org.laseeb.LAIS.substance.Substance;
@@ -111,25 +112,25 @@ public class SubConNeighMovCondition extends AgentCondition {
 	private static Logger logger = Logger.getLogger(SubConNeighMovCondition.class);
 
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
 		
 		
 		/* Determine map of sum of weighted substances */
 		HashMap<Integer, Float> cellPowerMap = new HashMap<Integer, Float>(),
 			cellProbMap = new HashMap<Integer, Float>();
-		Vector<Cell2D> neighs = cell.getNeighbors();
-		/*for (int i = 0; i < neighs.size(); i++)
+		Cell2D[] neighs = cell.getNeighborCells();
+		/*for (int i = 0; i < neighs.length; i++)
 			cellPowerMap.put(i, 0.0f);
 		cellPowerMap.put(-1, 0.0f);*/
 		
 		/* Determine the weighted chemotaxical power of substances in each destination */
 		float maxPower = 0.0f;
-		for (int i = -1; i < neighs.size(); i++) {
+		for (int i = -1; i < neighs.length; i++) {
 			Cell2D oneCell;
 			if (i != -1)
-				oneCell = neighs.get(i);
+				oneCell = neighs[i];
 			else
 				oneCell = cell;
 			float totalPower = 0.0f;
@@ -156,7 +157,7 @@ public class SubConNeighMovCondition extends AgentCondition {
 		float totalProb = 0.0f;
 		if ((chemopower == 0) || (maxPower == 0)) {
 			/* Special case 1: chemopower = 0 */
-			for (int i = -1; i < neighs.size(); i++) {
+			for (int i = -1; i < neighs.length; i++) {
 				if (cellPowerMap.get(i) > 0) {
 					cellProbMap.put(i, 1.0f);
 					totalProb += 1.0f;
@@ -165,7 +166,7 @@ public class SubConNeighMovCondition extends AgentCondition {
 			/* If no cell has any chemotaxic substance, make movement random. */
 			//TODO Make this quicker, random walk and get out
 			if (totalProb == 0) {
-				for (int i = -1; i < neighs.size(); i++) {
+				for (int i = -1; i < neighs.length; i++) {
 					cellProbMap.put(i, 1.0f / cellPowerMap.keySet().size());
 				}
 				totalProb = 1.0f;				
@@ -173,7 +174,7 @@ public class SubConNeighMovCondition extends AgentCondition {
 		} else if (chemopower == 1) {
 			/* Special case 2: chemopower = 1 */
 			//TODO Make this quicker, get the best and get out
-			for (int i = -1; i < neighs.size(); i++) {
+			for (int i = -1; i < neighs.length; i++) {
 				if (cellPowerMap.get(i) == maxPower) {
 					cellProbMap.put(i, 1.0f);
 					totalProb += 1.0f;
@@ -185,7 +186,7 @@ public class SubConNeighMovCondition extends AgentCondition {
 		} else {
 			/* General case */
 			//TODO Case in which inertia = 0.5, avoid doing this!
-			for (int i = -1; i < neighs.size(); i++) {
+			for (int i = -1; i < neighs.length; i++) {
 				float prob = (float) Math.pow(
 						cellPowerMap.get(i) / maxPower, 
 						chemopower / (1 - chemopower)
@@ -208,7 +209,7 @@ public class SubConNeighMovCondition extends AgentCondition {
 		}
 		float densityProbDist = 0.0f;
 		int destination = -1;
-		for (int i = -1; i < neighs.size(); i++) {
+		for (int i = -1; i < neighs.length; i++) {
 			densityProbDist += cellProbMap.get(i);
 			if (prob < densityProbDist) {
 				destination = i;
@@ -219,7 +220,7 @@ public class SubConNeighMovCondition extends AgentCondition {
 			return false;
 		}
 		else {
-			message[index] = destination;
+			message.setInt(index, destination);
 			return true;
 		}
 	}
@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.conditions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 import org.laseeb.LAIS.substance.Substance;
 import org.laseeb.LAIS.substance.SubstanceContainer;
@@ -87,9 +88,9 @@ public class SubFamilyConCondition extends AgentCondition {
 	SubstanceFamily subFamily;
 	
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
 		/* Determine type of substance container. */
 		SubstanceContainer container;
 		if (localOrSuperficial)
@@ -103,9 +104,9 @@ public class SubFamilyConCondition extends AgentCondition {
 			if (sub.getFamily().equals(subFamily)) {
 				if (container.getSubstanceCon(sub) > minQuantity) {
 					if (indexSub >= 0)
-						message[indexSub] = sub;
+						message.setObject(indexSub, sub);
 					if (indexCon >= 0)
-						message[indexCon] = container.getSubstanceCon(sub);
+						message.setFloat(indexCon, container.getSubstanceCon(sub));
 					return true;
 				}
 			}
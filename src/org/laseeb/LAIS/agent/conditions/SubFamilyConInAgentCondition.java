@@ -22,6 +22,7 @@ import java.util.Iterator;
 import java.util.Vector;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 import org.laseeb.LAIS.substance.Substance;
 import org.laseeb.LAIS.substance.SubstanceFamily;
@@ -97,9 +98,9 @@ public class SubFamilyConInAgentCondition extends AgentCondition {
 	SubstanceFamily subFamily;
 	
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
 		
 		/* Get agent iterator. */
 		Iterator<Agent> iterAgents;
@@ -109,7 +110,7 @@ public class SubFamilyConInAgentCondition extends AgentCondition {
 		} else {
 			/* Use only one agent, chosen in a previous condition. */
 			Vector<Agent> oneAgentVector = new Vector<Agent>(1);
-			oneAgentVector.add((Agent) message[indexPrevAgent]);
+			oneAgentVector.add((Agent) message.getObject(indexPrevAgent));
 			iterAgents = oneAgentVector.iterator();
 		}
 		while (iterAgents.hasNext()) {
@@ -131,11 +132,11 @@ public class SubFamilyConInAgentCondition extends AgentCondition {
 				/* Chose one randomly. */
 				Substance sub = possibleSubs.get(cell.getRng().nextIntFromTo(0, possibleSubs.size() - 1));
 				if (indexCon >= 0)
-					message[indexCon] = ag.getSubstanceCon(sub);
+					message.setFloat(indexCon, ag.getSubstanceCon(sub));
 				if (indexSub >= 0)
-					message[indexSub] = sub;
+					message.setObject(indexSub, sub);
 				if (indexAg >= 0)
-					message[indexAg] = ag;
+					message.setObject(indexAg, ag);
 				return true;
 			}
 		}
@@ -19,6 +19,7 @@
 package org.laseeb.LAIS.agent.conditions;
 
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.agent.AgentException;
 import org.laseeb.LAIS.space.Cell2D;
 import org.laseeb.LAIS.substance.Substance;
@@ -70,9 +71,9 @@ public class SubstanceStringCondition extends AgentCondition {
 	String subRef;
 
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message) throws ConditionException {
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message) throws ConditionException {
 		Substance sub = null;
 		SubstanceProxy sp;
 		try {
@@ -89,9 +90,9 @@ public class SubstanceStringCondition extends AgentCondition {
 		if (sub != null) {
 			String substanceName = "";
 			if (indexSubstanceStringPrev >= 0)
-				substanceName = (String) message[indexSubstanceStringPrev];
+				substanceName = (String) message.getObject(indexSubstanceStringPrev);
 			substanceName = substanceName + SubstanceUtils.subNameRemoveAppend(sub);
-			message[indexSubstanceString] = substanceName;
+			message.setObject(indexSubstanceString, substanceName);
 			return true;
 		} else {
 			return false;
@@ -23,6 +23,7 @@ import java.util.Iterator;
 
 import org.apache.log4j.Logger;
 import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 import org.simpleframework.xml.Element;
 import org.simpleframework.xml.ElementMap;
@@ -74,25 +75,30 @@ public class WeightedWalkCondition extends AgentCondition {
 	@Element
 	int index;
 	
-	/* Existing angles (calculated only once, depends on the space). */
-	private static volatile float angles[] = null;
+	/* Existing angles (calculated once per condition and shared by its clones, 
+	 * depends on the space of the model where the condition is used). The array 
+	 * is only published after being filled, since it may be set concurrently. */
+	private volatile float angles[] = null;
 
 	/* The logger. */
 	private static Logger logger = Logger.getLogger(WeightedWalkCondition.class);
 	
 	
 	/**
-	 * @see AgentCondition#evaluate(Agent, Cell2D, Object[])
+	 * @see AgentCondition#evaluate(Agent, Cell2D, GeneMessage)
 	 */
-	public boolean evaluate(Agent agent, Cell2D cell, Object[] message)
+	public boolean evaluate(Agent agent, Cell2D cell, GeneMessage message)
 			throws ConditionException {
 		/* If angles not set, set them. */
+		float[] angles = this.angles;
 		if (angles == null) {
-			float angle = (float) (2*Math.PI / (cell.getNeighbors().size() + 1));
-			angles = new float[cell.getNeighbors().size() + 1];
-			for (int i = 0; i < cell.getNeighbors().size() + 1; i++) {
+			int numNeighbors = cell.getNumNeighbors();
+			float angle = (float) (2*Math.PI / (numNeighbors + 1));
+			angles = new float[numNeighbors + 1];
+			for (int i = 0; i < numNeighbors + 1; i++) {
 				angles[i] = i * angle;
 			}
+			this.angles = angles;
 		}
 		/* Set initial vector. */
 		float angle = 0;
@@ -103,7 +109,7 @@ public class WeightedWalkCondition extends AgentCondition {
 			/* Get destination suggested by condition. */
 			int aDestination;
 			if (ac.evaluate(agent, cell, message))
-				aDestination = (Integer) message[index];
+				aDestination = message.getInt(index);
 			else
 				aDestination = -1;
 			/* Get polar coordinates for this condition selection. */
@@ -138,7 +144,7 @@ public class WeightedWalkCondition extends AgentCondition {
 		
 		if (finalDestination >= 0) {
 			/* Move to an adjacent cell. */
-			message[index] = finalDestination;
+			message.setInt(index, finalDestination);
 			return true;
 		} else {
 			/* Don't move. */
@@ -146,6 +152,20 @@ public class WeightedWalkCondition extends AgentCondition {
 		}
 	}
 
+	/**
+	 * This condition holds per-agent state if any of its walk conditions does.
+	 * 
+	 * @see AgentCondition#isStateful()
+	 */
+	@Override
+	public boolean isStateful() {
+		for (AgentCondition ac : conditionMap.keySet()) {
+			if (ac.isStateful())
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Overrides {@link AgentCondition} because it is necessary to perform explicit cloning
 	 * of encapsulated objects.
@@ -162,7 +182,7 @@ public class WeightedWalkCondition extends AgentCondition {
 		while (acIter.hasNext()) {
 			AgentCondition ac = acIter.next();
 			clonedCondition.conditionMap.put(
-					ac.clone(mutationRate), 
+					ac.isStateful() ? ac.clone(mutationRate) : ac, 
 					this.conditionMap.get(ac));
 		}
 		return clonedCondition;
@@ -0,0 +1,58 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package org.laseeb.LAIS.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Full factorial design: there is a point for each combination of the values
+ * of the parameters, the last parameter varying faster.
+ * 
+ * @author Nuno Fachada
+ */
+public class FullFactorialDesign extends SweepDesign {
+
+	/**
+	 * @see SweepDesign#getPoints()
+	 */
+	public List<String[]> getPoints() throws SweepException {
+		int numParams = parameters.size();
+		int numPoints = 1;
+		for (SweepParameter param : parameters) {
+			if (param.getValues().isEmpty())
+				throw new SweepException("No values given for parameter '" + param.getName() + "'.");
+			numPoints *= param.getValues().size();
+		}
+		List<String[]> points = new ArrayList<String[]>(numPoints);
+		for (int p = 0; p < numPoints; p++) {
+			String[] point = new String[numParams];
+			int remaining = p;
+			for (int i = numParams - 1; i >= 0; i--) {
+				List<String> values = parameters.get(i).getValues();
+				point[i] = values.get(remaining % values.size());
+				remaining /= values.size();
+			}
+			points.add(point);
+		}
+		return points;
+	}
+
+}
@@ -0,0 +1,91 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package org.laseeb.LAIS.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.laseeb.LAIS.utils.random.IRng;
+import org.laseeb.LAIS.utils.random.RngColtFactory;
+import org.simpleframework.xml.Attribute;
+
+/**
+ * Latin hypercube design: the range of each parameter, given by its 
+ * <code>min</code> and <code>max</code> attributes, is divided in as many 
+ * equal strata as samples, and each stratum of each parameter is sampled exactly 
+ * once. The strata of the different parameters are randomly combined.
+ * 
+ * @author Nuno Fachada
+ */
+public class LatinHypercubeDesign extends SweepDesign {
+
+	/** 
+	 * <strong>XML Attribute (integer)</strong>
+	 * <p>
+	 * Number of samples, i.e. of points of the design.
+	 * <p> 
+	 * <em>REQUIRED: YES</em>. 
+	 * */
+	@Attribute
+	int samples;
+
+	/** 
+	 * <strong>XML Attribute (integer)</strong>
+	 * <p>
+	 * Seed used for sampling, so the same batch file always yields the same points.
+	 * <p> 
+	 * <em>REQUIRED: NO</em>. Default is zero. 
+	 * */
+	@Attribute(required=false)
+	long seed = 0;
+
+	/**
+	 * @see SweepDesign#getPoints()
+	 */
+	public List<String[]> getPoints() throws SweepException {
+		if (samples <= 0)
+			throw new SweepException("A latin hypercube design requires a positive number of samples.");
+		int numParams = parameters.size();
+		IRng rng = new RngColtFactory().createRng(seed);
+		String[][] pointArray = new String[samples][numParams];
+		int[] strata = new int[samples];
+		for (int i = 0; i < numParams; i++) {
+			/* Random permutation of the strata (Fisher-Yates). */
+			for (int s = 0; s < samples; s++)
+				strata[s] = s;
+			for (int s = samples - 1; s > 0; s--) {
+				int r = rng.nextIntFromTo(0, s);
+				int aux = strata[s];
+				strata[s] = strata[r];
+				strata[r] = aux;
+			}
+			/* Sample a value within the stratum of each point. */
+			for (int s = 0; s < samples; s++) {
+				double fraction = (strata[s] + rng.nextDoubleFromTo(0, 1)) / samples;
+				pointArray[s][i] = parameters.get(i).valueAt(fraction);
+			}
+		}
+		List<String[]> points = new ArrayList<String[]>(samples);
+		for (int s = 0; s < samples; s++)
+			points.add(pointArray[s]);
+		return points;
+	}
+
+}
@@ -0,0 +1,53 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package org.laseeb.LAIS.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * List design: the n<sup>th</sup> point is composed by the n<sup>th</sup> value of
+ * each parameter, so all parameters must have the same number of values.
+ * 
+ * @author Nuno Fachada
+ */
+public class ListDesign extends SweepDesign {
+
+	/**
+	 * @see SweepDesign#getPoints()
+	 */
+	public List<String[]> getPoints() throws SweepException {
+		int numParams = parameters.size();
+		int numPoints = numParams > 0 ? parameters.get(0).getValues().size() : 0;
+		for (SweepParameter param : parameters) {
+			if (param.getValues().size() != numPoints)
+				throw new SweepException("All parameters of a list design must have the same number of values.");
+		}
+		List<String[]> points = new ArrayList<String[]>(numPoints);
+		for (int p = 0; p < numPoints; p++) {
+			String[] point = new String[numParams];
+			for (int i = 0; i < numParams; i++)
+				point[i] = parameters.get(i).getValues().get(p);
+			points.add(point);
+		}
+		return points;
+	}
+
+}
@@ -0,0 +1,148 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package org.laseeb.LAIS.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collates the outputs of the runs of a batch into a single results folder. 
+ * The results folder contains an index table, <code>runs.csv</code>, with a row per
+ * run (run number, point, replicate, seed and parameter values), and, for each 
+ * data file produced by the runs, a table with the rows of all runs. The rows of 
+ * these tables start with the run number, which indexes the run table.
+ * 
+ * @author Nuno Fachada
+ */
+public class ResultCollator {
+
+	/* Name of the run index table. */
+	private static final String INDEX_FILE = "runs.csv";
+	/* Start of the column header line of the Repast data recorder files. */
+	private static final String DATA_HEADER = "\"run\"";
+	
+	/* Folder where collated results are saved. */
+	private File resultsDir;
+	/* The run index table. */
+	private PrintWriter index;
+	/* The collated data tables, indexed by file name. */
+	private Map<String, PrintWriter> tables;
+
+	/**
+	 * Creates a new collator, which saves results in the given folder. The folder
+	 * must not exist, so that results of different batches are never mixed.
+	 * 
+	 * @param resultsDir Folder where collated results are saved.
+	 * @param indexColumns Names of the columns of the run index table, starting
+	 * with the run number.
+	 * @throws IOException If the results folder or the run index table can't be
+	 * created.
+	 */
+	public ResultCollator(File resultsDir, String[] indexColumns) throws IOException {
+		if (resultsDir.exists() || !resultsDir.mkdirs())
+			throw new IOException("Unable to create results folder '" + resultsDir + "'.");
+		this.resultsDir = resultsDir;
+		this.tables = new LinkedHashMap<String, PrintWriter>();
+		this.index = new PrintWriter(new FileWriter(new File(resultsDir, INDEX_FILE)));
+		index.println(toCsvLine(indexColumns, true));
+	}
+
+	/**
+	 * Adds the outputs of a run to the collated results. 
+	 * 
+	 * @param indexValues Values of the run in the run index table, starting with
+	 * the run number.
+	 * @param runDir Output folder of the run; data files are searched in it and
+	 * in its sub-folders, so it must only hold the outputs of this run.
+	 * @throws IOException If a data file can't be read or a table can't be written.
+	 */
+	public void addRun(String[] indexValues, File runDir) throws IOException {
+		index.println(toCsvLine(indexValues, false));
+		collateDir(indexValues[0], runDir);
+	}
+
+	/**
+	 * Closes all tables.
+	 */
+	public void close() {
+		index.close();
+		for (PrintWriter table : tables.values())
+			table.close();
+	}
+
+	/* Adds the data files in the given folder and its sub-folders to the tables. */
+	private void collateDir(String run, File dir) throws IOException {
+		File[] files = dir.listFiles();
+		if (files == null)
+			return;
+		Arrays.sort(files);
+		for (File file : files) {
+			if (file.isDirectory())
+				collateDir(run, file);
+			else if (file.getName().endsWith(".csv"))
+				collateFile(run, file);
+		}
+	}
+
+	/* Adds the data rows of a Repast data recorder file to the respective table. */
+	private void collateFile(String run, File file) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			/* Skip file title and parameters. */
+			while (((line = reader.readLine()) != null) && !line.startsWith(DATA_HEADER)) {}
+			if (line == null)
+				return;
+			PrintWriter table = tables.get(file.getName());
+			if (table == null) {
+				table = new PrintWriter(new FileWriter(new File(resultsDir, file.getName())));
+				table.println("\"batchRun\"," + line);
+				tables.put(file.getName(), table);
+			}
+			/* Data rows end at the first empty line. */
+			while (((line = reader.readLine()) != null) && (line.length() > 0))
+				table.println(run + "," + line);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/* Joins values in a CSV line, optionally quoting them. */
+	private static String toCsvLine(String[] values, boolean quote) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0)
+				sb.append(',');
+			if (quote)
+				sb.append('"').append(values[i]).append('"');
+			else
+				sb.append(values[i]);
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,82 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package org.laseeb.LAIS.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.simpleframework.xml.ElementList;
+import org.simpleframework.xml.Root;
+import org.w3c.dom.Document;
+
+/**
+ * Abstract experimental design of a parameter sweep. A design combines the values
+ * of its parameters into points, each point being a set of model parameters
+ * for which runs are performed. Concrete designs are selected in the
+ * <strong>XML Batch File</strong> with the <code>class</code> attribute, e.g.
+ * <code>&lt;design class="org.laseeb.LAIS.batch.FullFactorialDesign"&gt;</code>.
+ * 
+ * @author Nuno Fachada
+ */
+@Root
+public abstract class SweepDesign {
+
+	/** 
+	 * <strong>XML ElementList (List of {@link SweepParameter}s)</strong>
+	 * <p>
+	 * The swept parameters, each one given within a <code>&lt;parameter&gt;</code> 
+	 * tag inside the <code>&lt;parameters&gt;</code> tag.
+	 * <p> 
+	 * <em>REQUIRED: YES</em>. 
+	 * */
+	@ElementList(entry="parameter")
+	List<SweepParameter> parameters = new ArrayList<SweepParameter>();
+
+	/**
+	 * Returns the swept parameters.
+	 * 
+	 * @return The swept parameters.
+	 */
+	public List<SweepParameter> getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * Returns the points of this design. Each point is an array with a value for
+	 * each parameter, in the order given by {@link #getParameters()}.
+	 * 
+	 * @return The points of this design.
+	 * @throws SweepException If the design is not correctly defined.
+	 */
+	public abstract List<String[]> getPoints() throws SweepException;
+
+	/**
+	 * Sets the parameters of the given model XML document to the values of a point.
+	 * 
+	 * @param modelDoc The model XML document.
+	 * @param point The point, as returned by {@link #getPoints()}.
+	 * @throws SweepException If a parameter can't be set in the model XML document.
+	 */
+	public void apply(Document modelDoc, String[] point) throws SweepException {
+		for (int i = 0; i < parameters.size(); i++)
+			parameters.get(i).apply(modelDoc, point[i]);
+	}
+
+}
@@ -0,0 +1,179 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package org.laseeb.LAIS.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.ElementList;
+import org.simpleframework.xml.Root;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+/**
+ * A swept parameter. The parameter is any attribute or element of the 
+ * <strong>XML Model File</strong>, selected with an XPath expression, so model fields,
+ * globals and agent prototype or substance attributes can all be swept. For example,
+ * the diffusion coefficient of the substance with id <code>pheromone</code> is 
+ * selected with <code>//substance[@id='pheromone']/@kDif</code>, while the model's 
+ * <code>dt</code> element is selected with <code>/LAISModel/dt</code>.
+ * <p>
+ * Depending on the design, the parameter values are given as a list, e.g.
+ * <p>
+ * <code>
+ * &lt;parameter name="kDif" path="//substance[@id='pheromone']/@kDif"&gt;<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&lt;value&gt;0.1&lt;&#47;value&gt;<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&lt;value&gt;0.3&lt;&#47;value&gt;<br>
+ * &lt;&#47;parameter&gt;
+ * </code>
+ * <p>
+ * or as a range, using the <code>min</code> and <code>max</code> attributes.
+ * 
+ * @author Nuno Fachada
+ */
+@Root(name="parameter")
+public class SweepParameter {
+
+	/** 
+	 * <strong>XML Attribute (string)</strong>
+	 * <p>
+	 * Parameter name, used in the run index of the collated results.
+	 * <p> 
+	 * <em>REQUIRED: YES</em>. 
+	 * */
+	@Attribute
+	String name;
+
+	/** 
+	 * <strong>XML Attribute (string)</strong>
+	 * <p>
+	 * XPath expression selecting the attributes or elements of the model XML
+	 * which are set to the parameter value. It must select at least one node.
+	 * <p> 
+	 * <em>REQUIRED: YES</em>. 
+	 * */
+	@Attribute
+	String path;
+
+	/** 
+	 * <strong>XML ElementList (List of strings)</strong>
+	 * <p>
+	 * Parameter values, each one enclosed in a <code>&lt;value&gt;</code> tag. 
+	 * Used by designs which take the values from a list.
+	 * <p> 
+	 * <em>REQUIRED: NO</em>. 
+	 * */
+	@ElementList(entry="value",inline=true,required=false)
+	List<String> values = new ArrayList<String>();
+
+	/** 
+	 * <strong>XML Attribute (real)</strong>
+	 * <p>
+	 * Minimum parameter value, used by designs which sample a range.
+	 * <p> 
+	 * <em>REQUIRED: NO</em>. 
+	 * */
+	@Attribute(required=false)
+	double min = 0;
+
+	/** 
+	 * <strong>XML Attribute (real)</strong>
+	 * <p>
+	 * Maximum parameter value, used by designs which sample a range.
+	 * <p> 
+	 * <em>REQUIRED: NO</em>. 
+	 * */
+	@Attribute(required=false)
+	double max = 0;
+
+	/** 
+	 * <strong>XML Attribute (boolean)</strong>
+	 * <p>
+	 * If true, values sampled from a range are rounded to integers.
+	 * <p> 
+	 * <em>REQUIRED: NO</em>. Default is false. 
+	 * */
+	@Attribute(required=false)
+	boolean integer = false;
+
+	/**
+	 * Returns the parameter name.
+	 * 
+	 * @return The parameter name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the parameter values given as a list.
+	 * 
+	 * @return The parameter values given as a list.
+	 */
+	public List<String> getValues() {
+		return values;
+	}
+
+	/**
+	 * Returns the string representation of a value sampled from the parameter
+	 * range.
+	 * 
+	 * @param fraction Position of the value in the range, between 0 (the minimum)
+	 * and 1 (the maximum).
+	 * @return The string representation of the sampled value.
+	 */
+	public String valueAt(double fraction) {
+		double value = min + fraction * (max - min);
+		if (integer)
+			return Long.toString(Math.round(value));
+		return Double.toString(value);
+	}
+
+	/**
+	 * Sets the nodes selected by this parameter in the given model XML document 
+	 * to the given value.
+	 * 
+	 * @param modelDoc The model XML document.
+	 * @param value The value to set.
+	 * @throws SweepException If the path is not a valid XPath expression or doesn't
+	 * select any node.
+	 */
+	public void apply(Document modelDoc, String value) throws SweepException {
+		/* XPath objects aren't thread-safe, so each application uses its own. */
+		XPath xpath = XPathFactory.newInstance().newXPath();
+		NodeList nodes;
+		try {
+			nodes = (NodeList) xpath.evaluate(path, modelDoc, XPathConstants.NODESET);
+		} catch (XPathExpressionException xpee) {
+			throw new SweepException("Invalid path for parameter '" + name + "': " + path, xpee);
+		}
+		if (nodes.getLength() == 0)
+			throw new SweepException("Path of parameter '" + name + "' doesn't select anything: " + path);
+		for (int i = 0; i < nodes.getLength(); i++)
+			nodes.item(i).setTextContent(value);
+	}
+
+}
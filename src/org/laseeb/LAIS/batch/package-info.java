@@ -0,0 +1,27 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+/**
+ * Provides the classes which define parameter sweeps in the <strong>XML Batch File</strong>
+ * (see {@link org.laseeb.LAIS.LAISBatch}): the swept parameters, the experimental designs
+ * which combine their values into run points, and the collation of the outputs of all runs.
+ * 
+ * @author Nuno Fachada
+ */
+package org.laseeb.LAIS.batch;
@@ -0,0 +1,354 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package org.laseeb.LAIS.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.apache.log4j.Logger;
+import org.laseeb.LAIS.LAISDataTrack;
+import org.laseeb.LAIS.LAISModel;
+import org.laseeb.LAIS.LAISScript;
+import org.laseeb.LAIS.batch.ResultCollator;
+import org.laseeb.LAIS.batch.SweepDesign;
+import org.laseeb.LAIS.batch.SweepException;
+import org.simpleframework.xml.Serializer;
+import org.simpleframework.xml.core.Persister;
+import org.simpleframework.xml.strategy.CycleStrategy;
+import org.w3c.dom.Document;
+
+import uchicago.src.sim.parameter.ParameterSetter;
+import uchicago.src.sim.parameter.ParameterSetterFactory;
+import uchicago.src.sim.parameter.ParameterUtility;
+
+/**
+ * Performs several independent simulation runs concurrently in the same VM. 
+ * Runs are the points of a parameter sweep design (see {@link org.laseeb.LAIS.LAISBatch})
+ * or, if no design is given, the parameter points defined by an (optional) Repast 
+ * batch parameter file, each one repeated for a number of replicates. Each run has its own model,
+ * script and data tracker, loaded from the XML modules, and its own 
+ * {@link HeadlessController}.
+ * <p>
+ * The total thread budget is split between concurrent runs and the simulation 
+ * threads of each run: a pool of concurrent runs is used, each run having the 
+ * total number of threads divided by the number of concurrent runs as its
+ * number of simulation threads. Many small concurrent runs usually make better 
+ * use of the available processors than a single run with many threads.
+ * <p>
+ * Each batch has its own folder, <code>batchYYYYMMDDHHMMSS</code>, inside the output 
+ * folder specified in the model, and the output of each run is saved in its own 
+ * new folder, <code>runN</code>, inside the batch folder. When the model specifies a random
+ * seed, replicate <em>i</em> (starting at zero) uses that seed plus <em>i</em>,
+ * so the first replicate reproduces a single run of the same parameters. When
+ * all runs are over, their outputs are collated in the <code>results</code> folder
+ * of the batch folder (see {@link ResultCollator}), so results of previous batches 
+ * in the same output folder are never mixed in.
+ * 
+ * @author Nuno Fachada
+ */
+public class BatchRunner {
+
+	/* Logger. */
+	private static Logger logger = Logger.getLogger(BatchRunner.class);
+	/* Model XML file. */
+	private String modelFile;
+	/* Script XML file. */
+	private String scriptFile;
+	/* Data track XML file. */
+	private String dataTrackFile;
+	/* Repast batch parameter file (may be null). */
+	private String batchParametersFile;
+	/* Parameter sweep design (may be null). */
+	private SweepDesign design;
+	/* Points of the parameter sweep design. */
+	private List<String[]> sweepPoints;
+	/* Simulation ticks for each run. */
+	private long ticks;
+	/* Number of replicates of each parameter point. */
+	private int replicates;
+	/* Maximum number of runs performed concurrently. */
+	private int concurrentRuns;
+	/* Total number of threads to use. */
+	private int totalThreads;
+
+	/**
+	 * Creates a new batch runner, which performs a single run of each parameter point, 
+	 * one run at a time, using as many threads as available processors.
+	 * 
+	 * @param modelFile Model XML file.
+	 * @param scriptFile Script XML file.
+	 * @param dataTrackFile Data track XML file.
+	 * @param batchParametersFile Repast batch parameter file. If null or empty, a 
+	 * single parameter point is run with the parameters given in the model.
+	 * @param ticks Simulation ticks for each run.
+	 */
+	public BatchRunner(String modelFile, String scriptFile, String dataTrackFile,
+			String batchParametersFile, long ticks) {
+		this.modelFile = modelFile;
+		this.scriptFile = scriptFile;
+		this.dataTrackFile = dataTrackFile;
+		this.batchParametersFile = batchParametersFile;
+		this.ticks = ticks;
+		this.replicates = 1;
+		this.concurrentRuns = 1;
+		this.totalThreads = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Sets the parameter sweep design, which defines the parameter points instead of 
+	 * the Repast batch parameter file.
+	 * 
+	 * @param design The parameter sweep design.
+	 */
+	public void setDesign(SweepDesign design) {
+		this.design = design;
+	}
+
+	/**
+	 * Sets the number of replicates of each parameter point.
+	 * 
+	 * @param replicates Number of replicates of each parameter point.
+	 */
+	public void setReplicates(int replicates) {
+		this.replicates = Math.max(1, replicates);
+	}
+
+	/**
+	 * Sets the maximum number of runs performed concurrently.
+	 * 
+	 * @param concurrentRuns Maximum number of runs performed concurrently.
+	 */
+	public void setConcurrentRuns(int concurrentRuns) {
+		this.concurrentRuns = Math.max(1, concurrentRuns);
+	}
+
+	/**
+	 * Sets the total number of threads to use, split between concurrent runs.
+	 * 
+	 * @param totalThreads Total number of threads to use.
+	 */
+	public void setTotalThreads(int totalThreads) {
+		this.totalThreads = Math.max(1, totalThreads);
+	}
+
+	/**
+	 * Performs all the runs, returning only when they are over. Runs which fail 
+	 * (including errors such as those thrown by Repast's data recorders) are logged, 
+	 * don't stop the remaining runs and are left out of the collated results.
+	 * 
+	 * @return The number of runs which failed.
+	 * @throws IOException If the batch parameter file or the XML modules can't 
+	 * be read, or if the results can't be collated.
+	 * @throws SweepException If the parameter sweep design is not valid for the model.
+	 */
+	public int startRuns() throws IOException, SweepException {
+		/* Repast data recorders obtain the batch parameters from here. */
+		ParameterUtility.createInstance(design != null 
+				? ParameterSetterFactory.createDefaultParameterSetter()
+				: HeadlessController.createParameterSetter(batchParametersFile));
+		LAISModel scratch = read(LAISModel.class, modelFile);
+		final File batchDir = new File(scratch.getOutputDir(), 
+				"batch" + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date()));
+		/* Count parameter points. */
+		int points = 1;
+		if (design != null) {
+			sweepPoints = design.getPoints();
+			points = sweepPoints.size();
+			if (points == 0)
+				throw new SweepException("The parameter sweep design has no points.");
+			/* Check if design is valid for the model before starting any run. */
+			design.apply(parseModel(), sweepPoints.get(0));
+		} else if (HeadlessController.isParameterFile(batchParametersFile)) {
+			/* Follow the sequence of the headless controller. */
+			ParameterSetter params = HeadlessController.createParameterSetter(batchParametersFile);
+			params.setModelParameters(scratch);
+			params.setNextModelParameters(scratch);
+			while (params.hasNext()) {
+				points++;
+				params.setNextModelParameters(scratch);
+			}
+		}
+		final int totalRuns = points * replicates;
+		int poolSize = Math.min(concurrentRuns, totalRuns);
+		final int threadsPerRun = Math.max(1, totalThreads / poolSize);
+		logger.info("Batch of " + totalRuns + " run(s), " + poolSize + " at a time with " 
+				+ threadsPerRun + " thread(s) each.");
+		if (batchDir.exists() || !batchDir.mkdirs())
+			throw new IOException("Unable to create batch folder '" + batchDir + "'.");
+		/* Index of each run in the collated results, and its output folder. */
+		final String[][] runIndex = new String[totalRuns][];
+		final File[] runDirs = new File[totalRuns];
+		/* Submit runs to the pool. */
+		final AtomicInteger runsDone = new AtomicInteger(0);
+		final AtomicInteger runsFailed = new AtomicInteger(0);
+		ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+		for (int p = 0; p < points; p++) {
+			for (int r = 0; r < replicates; r++) {
+				final int point = p;
+				final int replicate = r;
+				final int runNumber = p * replicates + r + 1;
+				pool.execute(new Runnable() {
+					public void run() {
+						String status = "done";
+						try {
+							performRun(point, replicate, runNumber, threadsPerRun, 
+									batchDir, runIndex, runDirs);
+						} catch (Throwable t) {
+							/* Errors must not escape, otherwise the run would not be counted. */
+							logger.error("Run " + runNumber + " failed: " + t, t);
+							runsFailed.incrementAndGet();
+							status = "failed";
+						}
+						System.out.println("Run " + runNumber + " " + status + " (" 
+								+ runsDone.incrementAndGet() + " of " + totalRuns + ")");
+					}
+				});
+			}
+		}
+		pool.shutdown();
+		try {
+			while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {}
+		} catch (InterruptedException ie) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		/* Collate the results of all runs. */
+		int numParams = design != null ? design.getParameters().size() : 0;
+		String[] indexColumns = new String[4 + numParams];
+		indexColumns[0] = "batchRun";
+		indexColumns[1] = "point";
+		indexColumns[2] = "replicate";
+		indexColumns[3] = "seed";
+		for (int i = 0; i < numParams; i++)
+			indexColumns[4 + i] = design.getParameters().get(i).getName();
+		ResultCollator collator = new ResultCollator(new File(batchDir, "results"), indexColumns);
+		try {
+			for (int r = 0; r < totalRuns; r++) {
+				if (runIndex[r] != null)
+					collator.addRun(runIndex[r], runDirs[r]);
+			}
+		} finally {
+			collator.close();
+		}
+		int failed = runsFailed.get();
+		if (failed > 0)
+			System.out.println("Batch Done, " + failed + " of " + totalRuns + " run(s) failed");
+		else
+			System.out.println("Batch Done");
+		return failed;
+	}
+
+	/* Loads the modules for the given run, sets its parameters and performs it. The
+	 * index of the run in the collated results and its output folder are kept in the 
+	 * given arrays. */
+	private void performRun(int point, int replicate, int runNumber, int numThreads,
+			File batchDir, String[][] runIndex, File[] runDirs) throws IOException, SweepException {
+		LAISModel model;
+		if (design != null) {
+			Document modelDoc = parseModel();
+			design.apply(modelDoc, sweepPoints.get(point));
+			model = read(LAISModel.class, modelDoc);
+		} else {
+			model = read(LAISModel.class, modelFile);
+		}
+		model.setSimulationScript(read(LAISScript.class, scriptFile));
+		model.setDataTrack(read(LAISDataTrack.class, dataTrackFile));
+		/* Output folder must be known before the model is set up. It must be new, so 
+		 * that it only holds the output of this run when results are collated. */
+		File runDir = new File(batchDir, "run" + runNumber);
+		if (runDir.exists() || !runDir.mkdir())
+			throw new IOException("Unable to create output folder '" + runDir + "'.");
+		model.setOutputDir(runDir.getPath());
+		/* The controller sets up the model, the parameter point is then set. */
+		HeadlessController controller = new HeadlessController(
+				ParameterSetterFactory.createDefaultParameterSetter(), false, false);
+		controller.setModel(model);
+		if ((design == null) && HeadlessController.isParameterFile(batchParametersFile)) {
+			ParameterSetter params = HeadlessController.createParameterSetter(batchParametersFile);
+			params.setModelParameters(model);
+			for (int p = 0; p < point; p++)
+				params.setNextModelParameters(model);
+		}
+		/* Run specific settings. */
+		if (model.getUserSeed() != null)
+			model.setUserSeed(model.getUserSeed() + replicate);
+		model.setTicks(ticks);
+		model.setNumThreads(numThreads);
+		controller.startSim();
+		/* Keep index of run. */
+		int numParams = design != null ? design.getParameters().size() : 0;
+		String[] index = new String[4 + numParams];
+		index[0] = Integer.toString(runNumber);
+		index[1] = Integer.toString(point + 1);
+		index[2] = Integer.toString(replicate + 1);
+		index[3] = String.valueOf(model.getRngManager().getSeed());
+		for (int i = 0; i < numParams; i++)
+			index[4 + i] = sweepPoints.get(point)[i];
+		runIndex[runNumber - 1] = index;
+		runDirs[runNumber - 1] = runDir;
+	}
+
+	/* Parses the model XML file, so that parameters can be set before the model is read. 
+	 * Document builders aren't thread-safe, so each run uses its own. */
+	private Document parseModel() throws IOException {
+		try {
+			return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(modelFile));
+		} catch (Exception e) {
+			throw new IOException("Unable to parse '" + modelFile + "': " + e.getMessage());
+		}
+	}
+
+	/* Reads a LAIS XML module from an XML document. */
+	private static <T> T read(Class<T> type, Document doc) throws IOException {
+		StringWriter writer = new StringWriter();
+		try {
+			TransformerFactory.newInstance().newTransformer().transform(
+					new DOMSource(doc), new StreamResult(writer));
+			Serializer serializer = new Persister(new CycleStrategy("id","reference"));
+			return serializer.read(type, writer.toString());
+		} catch (Exception e) {
+			throw new IOException("Unable to read swept model: " + e.getMessage());
+		}
+	}
+
+	/* Reads a LAIS XML module. */
+	private static <T> T read(Class<T> type, String filename) throws IOException {
+		Serializer serializer = new Persister(new CycleStrategy("id","reference"));
+		try {
+			return serializer.read(type, new File(filename));
+		} catch (Exception e) {
+			throw new IOException("Unable to read '" + filename + "': " + e.getMessage());
+		}
+	}
+
+}
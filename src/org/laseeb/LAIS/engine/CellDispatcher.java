@@ -0,0 +1,184 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.engine;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.laseeb.LAIS.space.Abstract2DSpaceAdapter;
+
+/**
+ * Distributes the cells of the simulation space among the simulation threads
+ * (workers) in contiguous chunks. Cells are numbered row by row, i.e. the
+ * index of the cell at position (x, y) is <code>y * sizeX + x</code>, and each
+ * chunk is a run of consecutive cell indexes.
+ * <p>
+ * At the start of each pass (see {@link #reInit()}) the chunks are evenly split
+ * among the workers, each worker holding a contiguous range of chunks in its own
+ * deque. A worker takes chunks from the head of its deque and, when the deque is
+ * empty, steals chunks from the tail of the other workers' deques. Each deque is
+ * represented by a single atomic cursor (head and tail packed in a long), so
+ * no locks are taken and no objects are allocated while cells are dispatched.
+ * 
+ * @author Nuno Fachada
+ */
+public class CellDispatcher {
+	
+	/* Number of cells in the simulation space. */
+	private final int numCells;
+	/* Number of cells in each chunk. */
+	private final int chunkSize;
+	/* Total number of chunks. */
+	private final int numChunks;
+	/* Per-worker deques of chunks, with head (upper 32 bits) and tail (lower 32 bits) packed together. */
+	private final AtomicLong[] deques;
+	/* Number of cells not yet dispatched in the current pass. */
+	private final AtomicInteger remainingCells;
+	
+	/**
+	 * Creates a new cell dispatcher for the given space.
+	 * 
+	 * @param space The simulation space.
+	 * @param numWorkers Number of workers (simulation threads) which will request chunks.
+	 * @param chunkSize Number of cells in each chunk. If zero or negative, each chunk will 
+	 * correspond to a row of the simulation space.
+	 */
+	public CellDispatcher(Abstract2DSpaceAdapter space, int numWorkers, int chunkSize) {
+		int sizeX = space.getSizeX();
+		int sizeY = space.getSizeY();
+		this.numCells = sizeX * sizeY;
+		this.chunkSize = chunkSize > 0 ? chunkSize : sizeX;
+		this.numChunks = (numCells + this.chunkSize - 1) / this.chunkSize;
+		this.deques = new AtomicLong[Math.max(numWorkers, 1)];
+		for (int i = 0; i < deques.length; i++)
+			deques[i] = new AtomicLong(0);
+		this.remainingCells = new AtomicInteger(0);
+	}
+	
+	/**
+	 * Restarts the dispatching of cells, evenly splitting the chunks among the 
+	 * workers. Must not be invoked while workers are requesting chunks.
+	 */
+	public void reInit() {
+		for (int i = 0; i < deques.length; i++) {
+			int head = (int) ((long) numChunks * i / deques.length);
+			int tail = (int) ((long) numChunks * (i + 1) / deques.length);
+			deques[i].set(pack(head, tail));
+		}
+		remainingCells.set(numCells);
+	}
+	
+	/**
+	 * Returns the next chunk to be processed by the given worker. The worker's own
+	 * chunks are returned first; afterwards, chunks are stolen from other workers.
+	 * 
+	 * @param worker The worker index, between 0 and the number of workers minus one.
+	 * @return The index of the next chunk to process, or -1 if there are no more 
+	 * cells to process in the current pass.
+	 */
+	public int nextChunk(int worker) {
+		/* Take chunk from the head of own deque. */
+		int chunk = takeHead(deques[worker]);
+		/* If own deque is empty, steal from the tail of others. */
+		for (int i = 1; (chunk < 0) && (i < deques.length); i++)
+			chunk = takeTail(deques[(worker + i) % deques.length]);
+		if (chunk >= 0)
+			remainingCells.addAndGet(getChunkStart(chunk) - getChunkEnd(chunk));
+		return chunk;
+	}
+	
+	/**
+	 * Returns the index of the first cell in the given chunk.
+	 * 
+	 * @param chunk The chunk index.
+	 * @return The index of the first cell in the given chunk.
+	 */
+	public int getChunkStart(int chunk) {
+		return chunk * chunkSize;
+	}
+	
+	/**
+	 * Returns the index after the last cell in the given chunk.
+	 * 
+	 * @param chunk The chunk index.
+	 * @return The index after the last cell in the given chunk.
+	 */
+	public int getChunkEnd(int chunk) {
+		return Math.min((chunk + 1) * chunkSize, numCells);
+	}
+	
+	/**
+	 * Returns the total number of cells handled by this dispatcher.
+	 * 
+	 * @return The total number of cells handled by this dispatcher.
+	 */
+	public int getNumCells() {
+		return numCells;
+	}
+	
+	/**
+	 * Returns the number of workers this dispatcher was created for.
+	 * 
+	 * @return The number of workers this dispatcher was created for.
+	 */
+	public int getNumWorkers() {
+		return deques.length;
+	}
+	
+	/**
+	 * Returns the number of cells which were not yet dispatched in the current pass.
+	 * 
+	 * @return The number of cells which were not yet dispatched in the current pass.
+	 */
+	public int getRemainingCells() {
+		return remainingCells.get();
+	}
+	
+	/* Removes and returns the chunk at the head of the given deque, or -1 if empty. */
+	private static int takeHead(AtomicLong deque) {
+		while (true) {
+			long current = deque.get();
+			int head = (int) (current >>> 32);
+			int tail = (int) current;
+			if (head >= tail)
+				return -1;
+			if (deque.compareAndSet(current, pack(head + 1, tail)))
+				return head;
+		}
+	}
+	
+	/* Removes and returns the chunk at the tail of the given deque, or -1 if empty. */
+	private static int takeTail(AtomicLong deque) {
+		while (true) {
+			long current = deque.get();
+			int head = (int) (current >>> 32);
+			int tail = (int) current;
+			if (head >= tail)
+				return -1;
+			if (deque.compareAndSet(current, pack(head, tail - 1)))
+				return tail - 1;
+		}
+	}
+	
+	/* Packs the head and tail of a deque in a long. */
+	private static long pack(int head, int tail) {
+		return ((long) head << 32) | (tail & 0xFFFFFFFFL);
+	}
+
+}
@@ -0,0 +1,133 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.laseeb.LAIS.space.Abstract2DSpaceAdapter;
+import org.laseeb.LAIS.space.CellStepException;
+
+/**
+ * Tick executor which uses a {@link java.util.concurrent.ForkJoinPool}. In each
+ * pass the simulation space is recursively split in half, along its longest 
+ * dimension, until the regions are no larger than the chunk size; the pool's 
+ * work stealing then balances the regions among the simulation threads.
+ * 
+ * @author Nuno Fachada
+ */
+public class ForkJoinTickExecutor extends TickExecutor {
+	
+	/* Pool of simulation threads. */
+	private ForkJoinPool pool;
+	/* Horizontal dimension of the simulation space. */
+	private int sizeX;
+	/* Vertical dimension of the simulation space. */
+	private int sizeY;
+	/* Maximum number of cells in a region which is not further split. */
+	private int granularity;
+	/* Number of cells not yet processed in the current pass. */
+	private final AtomicInteger remainingCells = new AtomicInteger(0);
+
+	/* Wraps cell step exceptions so they can cross the fork/join framework. */
+	@SuppressWarnings("serial")
+	private static class CellStepFailure extends RuntimeException {
+		CellStepFailure(CellStepException cause) {
+			super(cause);
+		}
+	}
+	
+	/* Performs a task on a rectangular region of the simulation space, one row segment at a time. */
+	@SuppressWarnings("serial")
+	private class RegionAction extends RecursiveAction {
+		private RangeTask task;
+		private int x0, y0, x1, y1;
+		RegionAction(RangeTask task, int x0, int y0, int x1, int y1) {
+			this.task = task;
+			this.x0 = x0;
+			this.y0 = y0;
+			this.x1 = x1;
+			this.y1 = y1;
+		}
+		protected void compute() {
+			int w = x1 - x0;
+			int h = y1 - y0;
+			if (w * h <= granularity) {
+				try {
+					for (int y = y0; y < y1; y++)
+						task.perform(y * sizeX + x0, y * sizeX + x1);
+				} catch (CellStepException cse) {
+					throw new CellStepFailure(cse);
+				}
+				remainingCells.addAndGet(-w * h);
+			} else if (w >= h) {
+				int xm = x0 + w / 2;
+				invokeAll(new RegionAction(task, x0, y0, xm, y1), new RegionAction(task, xm, y0, x1, y1));
+			} else {
+				int ym = y0 + h / 2;
+				invokeAll(new RegionAction(task, x0, y0, x1, ym), new RegionAction(task, x0, ym, x1, y1));
+			}
+		}
+	}
+
+	/**
+	 * @see org.laseeb.LAIS.engine.TickExecutor#start(org.laseeb.LAIS.space.Abstract2DSpaceAdapter, int, int)
+	 */
+	public void start(Abstract2DSpaceAdapter space, int numThreads, int chunkSize) {
+		sizeX = space.getSizeX();
+		sizeY = space.getSizeY();
+		granularity = Math.max(chunkSize > 0 ? chunkSize : sizeX, 1);
+		pool = new ForkJoinPool(numThreads);
+	}
+
+	/**
+	 * @see org.laseeb.LAIS.engine.TickExecutor#executeRangePass(org.laseeb.LAIS.engine.TickExecutor.RangeTask)
+	 */
+	public void executeRangePass(RangeTask task) throws CellStepException {
+		remainingCells.set(sizeX * sizeY);
+		try {
+			pool.invoke(new RegionAction(task, 0, 0, sizeX, sizeY));
+		} catch (RuntimeException re) {
+			/* The pool may rethrow a copy of the failure, so look for the original cause. */
+			for (Throwable t = re; t != null; t = t.getCause())
+				if (t instanceof CellStepException)
+					throw (CellStepException) t;
+			throw re;
+		}
+	}
+
+	/**
+	 * @see org.laseeb.LAIS.engine.TickExecutor#getRemainingCells()
+	 */
+	public int getRemainingCells() {
+		return remainingCells.get();
+	}
+
+	/**
+	 * @see org.laseeb.LAIS.engine.TickExecutor#shutdown()
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+}
@@ -0,0 +1,393 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.laseeb.LAIS.LAISModel;
+
+import uchicago.src.sim.engine.BasicAction;
+import uchicago.src.sim.engine.IController;
+import uchicago.src.sim.engine.Schedule;
+import uchicago.src.sim.engine.SimEvent;
+import uchicago.src.sim.engine.SimEventListener;
+import uchicago.src.sim.engine.SimModel;
+import uchicago.src.sim.parameter.ParameterSetter;
+import uchicago.src.sim.parameter.ParameterSetterFactory;
+import uchicago.src.sim.parameter.ParameterUtility;
+
+/**
+ * Controller for batch runs which does not depend on the Repast batch controller,
+ * its {@link uchicago.src.sim.engine.Schedule} or Swing. All runs are performed 
+ * in the calling thread: in each tick, the actions scheduled by the model (cell 
+ * action, scripted events, output) are directly invoked in the order they were 
+ * scheduled.
+ * <p>
+ * Model parameters for each run are set using an (optional) Repast batch parameter 
+ * file, so the same parameter files can be used as with the Repast batch controller.
+ * <p>
+ * Several headless controllers, each with its own model, may run concurrently in 
+ * the same VM (see {@link BatchRunner}).
+ * 
+ * @author Nuno Fachada
+ */
+public class HeadlessController implements IController {
+	
+	/* Logger. */
+	private static Logger logger = Logger.getLogger(HeadlessController.class);
+	/* Repast data recorders are built with a shared byte code builder which isn't
+	 * thread-safe, so concurrently running models are built one at a time. */
+	private static final Object buildLock = new Object();
+	/* The model being run. */
+	private LAISModel model;
+	/* Sets model parameters for each run. */
+	private ParameterSetter params;
+	/* Indicates if runs are defined by a parameter file (otherwise a single run is performed). */
+	private boolean multiRun;
+	/* Current simulation tick. */
+	private double currentTime;
+	/* Number of the current run. */
+	private long runCount;
+	/* Indicates if the current run was stopped. */
+	private volatile boolean stopped;
+	/* Indicates if the VM should exit after all runs are performed. */
+	private boolean exitOnExit;
+	/* Indicates if run progress is printed to the standard output. */
+	private boolean verbose;
+	/* Listeners of simulation events. */
+	private List<SimEventListener> listeners;
+	/* Objects which persist between runs (used by Repast data recorders). */
+	private Hashtable<Object, Object> persistentObjs;
+	/* Actions performed during ticks, in scheduling order. */
+	private List<TickAction> tickActions;
+	/* Actions performed at the end of each run. */
+	private List<BasicAction> endActions;
+	
+	/* An action scheduled for a specific tick or at regular intervals. */
+	private static class TickAction {
+		/* Tick at which to perform the action, used if interval is zero. */
+		double tick;
+		/* Interval between performances of the action. */
+		double interval;
+		/* The action. */
+		BasicAction action;
+		TickAction(double tick, double interval, BasicAction action) {
+			this.tick = tick;
+			this.interval = interval;
+			this.action = action;
+		}
+		/* Checks if action should be performed at the given tick. */
+		boolean isDue(double currentTick) {
+			if (interval > 0)
+				return (currentTick > 0) && (currentTick % interval == 0);
+			return currentTick == tick;
+		}
+	}
+	
+	/**
+	 * Creates a new headless controller.
+	 * 
+	 * @param batchParametersFile Repast batch parameter file. If null or empty, 
+	 * a single run is performed with the parameters given in the model.
+	 * @throws IOException If the parameter file can't be read.
+	 */
+	public HeadlessController(String batchParametersFile) throws IOException {
+		this(createParameterSetter(batchParametersFile), 
+				isParameterFile(batchParametersFile), true);
+		/* Repast data recorders obtain the batch parameters from here. */
+		ParameterUtility.createInstance(params);
+	}
+
+	/**
+	 * Creates a new headless controller with the given parameter setter. The
+	 * Repast parameter utility must be initialized by the caller.
+	 * 
+	 * @param params Sets model parameters for each run.
+	 * @param multiRun If true, runs are performed while the parameter setter has
+	 * more parameters, otherwise a single run is performed.
+	 * @param verbose If true, run progress is printed to the standard output.
+	 */
+	HeadlessController(ParameterSetter params, boolean multiRun, boolean verbose) {
+		this.params = params;
+		this.multiRun = multiRun;
+		this.verbose = verbose;
+		this.listeners = new ArrayList<SimEventListener>();
+		this.persistentObjs = new Hashtable<Object, Object>();
+		this.tickActions = new ArrayList<TickAction>();
+		this.endActions = new ArrayList<BasicAction>();
+		this.exitOnExit = false;
+		this.runCount = 0;
+	}
+
+	/**
+	 * Checks if the given file is a Repast batch parameter file which can be used
+	 * to define multiple runs.
+	 * 
+	 * @param batchParametersFile Repast batch parameter file (may be null).
+	 * @return True if the file is given and exists, false otherwise.
+	 */
+	static boolean isParameterFile(String batchParametersFile) {
+		return (batchParametersFile != null) && (batchParametersFile.length() > 0) 
+				&& (new File(batchParametersFile)).exists();
+	}
+
+	/**
+	 * Creates a parameter setter for the given Repast batch parameter file.
+	 * 
+	 * @param batchParametersFile Repast batch parameter file. If null, empty or
+	 * missing, the default parameter setter is returned.
+	 * @return A parameter setter for the given file.
+	 * @throws IOException If the parameter file can't be read.
+	 */
+	static ParameterSetter createParameterSetter(String batchParametersFile) throws IOException {
+		if (isParameterFile(batchParametersFile))
+			return ParameterSetterFactory.createParameterSetter(batchParametersFile);
+		return ParameterSetterFactory.createDefaultParameterSetter();
+	}
+
+	/**
+	 * Schedules an action to be performed at the given tick.
+	 * 
+	 * @param tick Tick at which to perform the action.
+	 * @param action The action to perform.
+	 */
+	public void scheduleActionAt(double tick, BasicAction action) {
+		tickActions.add(new TickAction(tick, 0, action));
+	}
+
+	/**
+	 * Schedules an action to be performed at regular intervals, starting at
+	 * the tick equal to the given interval.
+	 * 
+	 * @param interval Interval between performances of the action.
+	 * @param action The action to perform.
+	 */
+	public void scheduleActionAtInterval(double interval, BasicAction action) {
+		tickActions.add(new TickAction(0, interval, action));
+	}
+
+	/**
+	 * Schedules an action to be performed at the end of the run.
+	 * 
+	 * @param action The action to perform.
+	 */
+	public void scheduleActionAtEnd(BasicAction action) {
+		endActions.add(action);
+	}
+
+	/**
+	 * Performs all the batch runs, returning only when they are over.
+	 * 
+	 * @see uchicago.src.sim.engine.IController#startSim()
+	 */
+	public void startSim() {
+		do {
+			runCount++;
+			if (verbose)
+				System.out.println("Run: " + runCount);
+			listeners.clear();
+			tickActions.clear();
+			endActions.clear();
+			stopped = false;
+			currentTime = 0;
+			/* Build model and schedule. */
+			synchronized (buildLock) {
+				model.begin();
+			}
+			/* Perform ticks until simulation is stopped or the maximum ticks are reached. */
+			long ticks = model.getTicks();
+			long tickIntervalPrint = model.getTickIntervalPrint();
+			for (long tick = 0; !stopped && (tick <= ticks); tick++) {
+				currentTime = tick;
+				for (int i = 0; i < tickActions.size(); i++) {
+					TickAction ta = tickActions.get(i);
+					if (ta.isDue(currentTime))
+						ta.action.execute();
+				}
+				if ((tickIntervalPrint > 0) && (tick > 0) && (tick % tickIntervalPrint == 0))
+					System.out.println("Tick " + currentTime + " of " + ticks + " (" + ((int) (100 * currentTime / ticks)) + "%)");
+			}
+			for (BasicAction action : endActions)
+				action.execute();
+			/* Prepare model for next run (same sequence as Repast's batch controller). */
+			model.generateNewSeed();
+			model.setup();
+			params.setNextModelParameters(model);
+		} while (multiRun && params.hasNext());
+		exitSim();
+	}
+
+	/**
+	 * @see uchicago.src.sim.engine.IController#getCurrentTime()
+	 */
+	public double getCurrentTime() {
+		return currentTime;
+	}
+
+	/**
+	 * @see uchicago.src.sim.engine.TickCounter#getTickCount()
+	 */
+	public double getTickCount() {
+		return currentTime;
+	}
+
+	/**
+	 * Stops the current run; the remaining actions of the current tick
+	 * are still performed.
+	 * 
+	 * @see uchicago.src.sim.engine.IController#stopSim()
+	 */
+	public void stopSim() {
+		stopped = true;
+	}
+
+	/**
+	 * Batch runs can't be paused, so this stops the current run.
+	 * 
+	 * @see uchicago.src.sim.engine.IController#pauseSim()
+	 */
+	public void pauseSim() {
+		stopSim();
+	}
+
+	/**
+	 * Informs listeners that the batch is over (so data recorders write their 
+	 * data), exiting the VM if required.
+	 * 
+	 * @see uchicago.src.sim.engine.IController#exitSim()
+	 */
+	public void exitSim() {
+		SimEvent evt = new SimEvent(this, SimEvent.END_EVENT);
+		for (SimEventListener listener : new ArrayList<SimEventListener>(listeners))
+			listener.simEventPerformed(evt);
+		if (verbose)
+			System.out.println("Batch Done");
+		logger.info("Headless batch finished after " + runCount + " run(s).");
+		if (exitOnExit)
+			System.exit(0);
+	}
+
+	/**
+	 * @see uchicago.src.sim.engine.IController#getModel()
+	 */
+	public SimModel getModel() {
+		return model;
+	}
+
+	/**
+	 * Sets the model to run, which must be a {@link LAISModel}. The model is set up 
+	 * and the parameters for the first run are set.
+	 * 
+	 * @see uchicago.src.sim.engine.IController#setModel(uchicago.src.sim.engine.SimModel)
+	 */
+	public void setModel(SimModel model) {
+		this.model = (LAISModel) model;
+		this.model.setController(this);
+		this.model.setup();
+		params.setModelParameters(this.model);
+	}
+
+	/**
+	 * The headless controller doesn't use a Repast schedule.
+	 * 
+	 * @return Always null.
+	 * @see uchicago.src.sim.engine.IController#getSchedule()
+	 */
+	public Schedule getSchedule() {
+		return null;
+	}
+
+	/**
+	 * The headless controller doesn't use a Repast schedule, so this method does nothing.
+	 * 
+	 * @see uchicago.src.sim.engine.IController#setSchedule(uchicago.src.sim.engine.Schedule)
+	 */
+	public void setSchedule(Schedule schedule) {}
+
+	/**
+	 * @see uchicago.src.sim.engine.IController#addSimEventListener(uchicago.src.sim.engine.SimEventListener)
+	 */
+	public void addSimEventListener(SimEventListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * @see uchicago.src.sim.engine.IController#removeSimEventListener(uchicago.src.sim.engine.SimEventListener)
+	 */
+	public void removeSimEventListener(SimEventListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @return Always false.
+	 * @see uchicago.src.sim.engine.IController#isGUI()
+	 */
+	public boolean isGUI() {
+		return false;
+	}
+
+	/**
+	 * @return Always true.
+	 * @see uchicago.src.sim.engine.IController#isBatch()
+	 */
+	public boolean isBatch() {
+		return true;
+	}
+
+	/**
+	 * @see uchicago.src.sim.engine.IController#putPersistentObj(java.lang.Object, java.lang.Object)
+	 */
+	public void putPersistentObj(Object key, Object value) {
+		persistentObjs.put(key, value);
+	}
+
+	/**
+	 * @see uchicago.src.sim.engine.IController#getPersistentObj(java.lang.Object)
+	 */
+	public Object getPersistentObj(Object key) {
+		return persistentObjs.get(key);
+	}
+
+	/**
+	 * @see uchicago.src.sim.engine.IController#getRunCount()
+	 */
+	public long getRunCount() {
+		return runCount;
+	}
+
+	/**
+	 * @see uchicago.src.sim.engine.IController#setExitOnExit(boolean)
+	 */
+	public void setExitOnExit(boolean exitOnExit) {
+		this.exitOnExit = exitOnExit;
+	}
+
+	/**
+	 * @see uchicago.src.sim.engine.IController#getExitOnExit()
+	 */
+	public boolean getExitOnExit() {
+		return exitOnExit;
+	}
+
+}
@@ -0,0 +1,137 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.engine;
+
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+import org.laseeb.LAIS.space.Abstract2DSpaceAdapter;
+import org.laseeb.LAIS.space.CellStepException;
+
+/**
+ * Tick executor which uses a fixed set of simulation threads synchronized by a 
+ * {@link java.util.concurrent.Phaser}. Cells are handed to the threads by a 
+ * {@link CellDispatcher}. This is the default tick executor.
+ * 
+ * @author Nuno Fachada
+ */
+public class PhaserTickExecutor extends TickExecutor {
+	
+	/* Logger. */
+	private static Logger logger = Logger.getLogger(PhaserTickExecutor.class);
+	/* Distributes cells among the simulation threads. */
+	private CellDispatcher dispatcher;
+	/* Barrier shared by the simulation threads and the thread which requests the passes. */
+	private Phaser phaser;
+	/* Task of the current pass, null when threads should terminate. */
+	private volatile RangeTask currentTask;
+	/* First error which occurred during the current pass. */
+	private final AtomicReference<CellStepException> error = new AtomicReference<CellStepException>();
+
+	/* This class represents a simulation thread. */
+	private class SimThread extends Thread {
+		/* Index of this thread in the cell dispatcher. */
+		private final int worker;
+		/* The cell dispatcher and the barrier this thread was started with. */
+		private final CellDispatcher dispatcher;
+		private final Phaser phaser;
+		/* Creates a simulation thread. */
+		SimThread(int worker, CellDispatcher dispatcher, Phaser phaser) {
+			this.worker = worker;
+			this.dispatcher = dispatcher;
+			this.phaser = phaser;
+			setName("LAIS SimThread number " + worker);
+			setDaemon(true);
+		}
+		/* The code executed in each simulation pass. */
+		public void run() {
+			logger.info("Thread " + getName() + " started!");
+			while (true) {
+				/* Wait for the next pass. */
+				phaser.arriveAndAwaitAdvance();
+				RangeTask task = currentTask;
+				/* Check if simulation is over before proceeding. */
+				if (task == null)
+					break;
+				try {
+					int chunk;
+					while ((chunk = dispatcher.nextChunk(worker)) >= 0)
+						task.perform(dispatcher.getChunkStart(chunk), dispatcher.getChunkEnd(chunk));
+				} catch (CellStepException cse) {
+					error.compareAndSet(null, cse);
+				} catch (Throwable t) {
+					/* Keep the thread alive, including on errors such as stack overflows, 
+					 * otherwise the barrier would never be reached. */
+					error.compareAndSet(null, new CellStepException("Unexpected error in " + getName() + ": " + t, t));
+				}
+				/* Inform main thread I'm done! */
+				phaser.arriveAndAwaitAdvance();
+			}
+			logger.info("Thread " + getName() + " terminated!");
+		}
+	}
+
+	/**
+	 * @see org.laseeb.LAIS.engine.TickExecutor#start(org.laseeb.LAIS.space.Abstract2DSpaceAdapter, int, int)
+	 */
+	public void start(Abstract2DSpaceAdapter space, int numThreads, int chunkSize) {
+		dispatcher = new CellDispatcher(space, numThreads, chunkSize);
+		phaser = new Phaser(numThreads + 1);
+		currentTask = null;
+		for (int i = 0; i < numThreads; i++)
+			new SimThread(i, dispatcher, phaser).start();
+	}
+
+	/**
+	 * @see org.laseeb.LAIS.engine.TickExecutor#executeRangePass(org.laseeb.LAIS.engine.TickExecutor.RangeTask)
+	 */
+	public void executeRangePass(RangeTask task) throws CellStepException {
+		dispatcher.reInit();
+		error.set(null);
+		currentTask = task;
+		/* Release threads... */
+		phaser.arriveAndAwaitAdvance();
+		/* ...and wait for them to process all cells. */
+		phaser.arriveAndAwaitAdvance();
+		CellStepException cse = error.get();
+		if (cse != null)
+			throw cse;
+	}
+
+	/**
+	 * @see org.laseeb.LAIS.engine.TickExecutor#getRemainingCells()
+	 */
+	public int getRemainingCells() {
+		return (dispatcher != null) ? dispatcher.getRemainingCells() : 0;
+	}
+
+	/**
+	 * @see org.laseeb.LAIS.engine.TickExecutor#shutdown()
+	 */
+	public void shutdown() {
+		if (phaser != null) {
+			/* Release threads with no task, so they terminate. */
+			currentTask = null;
+			phaser.arriveAndDeregister();
+			phaser = null;
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.engine;
+
+import org.laseeb.LAIS.space.Abstract2DSpaceAdapter;
+import org.laseeb.LAIS.space.CellStepException;
+
+/**
+ * Tick executors should extend this abstract class. A tick executor owns the
+ * simulation threads and performs each simulation pass (see {@link RangeTask})
+ * over all the cells of the simulation space, only returning when every cell
+ * has been processed. The tick executor to use is selected in the 
+ * <strong>XML Model File</strong> using the <code>class</code> attribute of the 
+ * <code>&lt;tickExecutor&gt;</code> tag.
+ * 
+ * @author Nuno Fachada
+ */
+public abstract class TickExecutor {
+	
+	/**
+	 * A pass over ranges of consecutive cell indexes (see 
+	 * {@link Abstract2DSpaceAdapter#getCellIndex(int, int)}). Grid-wide kernels
+	 * work directly over flat arrays, while per-cell work looks up the cells of
+	 * the range.
+	 */
+	public interface RangeTask {
+		/**
+		 * Processes the cells in the given range.
+		 * 
+		 * @param start Index of the first cell in the range.
+		 * @param end Index after the last cell in the range.
+		 * @throws CellStepException When an error occurs while processing the cells.
+		 */
+		void perform(int start, int end) throws CellStepException;
+	}
+
+	/**
+	 * Starts the simulation threads for the given space. Must be invoked before 
+	 * any pass is executed.
+	 * 
+	 * @param space The simulation space.
+	 * @param numThreads Number of simulation threads.
+	 * @param chunkSize Number of cells processed by a thread at a time. If zero or
+	 * negative, a row of the simulation space is processed at a time.
+	 */
+	public abstract void start(Abstract2DSpaceAdapter space, int numThreads, int chunkSize);
+	
+	/**
+	 * Performs the given task on ranges of cells covering the whole simulation 
+	 * space, returning only when all ranges have been processed. Ranges never
+	 * overlap.
+	 * 
+	 * @param task The task to perform on each range of cells.
+	 * @throws CellStepException When an error occurs while processing a range of cells.
+	 */
+	public abstract void executeRangePass(RangeTask task) throws CellStepException;
+	
+	/**
+	 * Returns the number of cells which remain to be processed in the current pass.
+	 * 
+	 * @return The number of cells which remain to be processed in the current pass.
+	 */
+	public abstract int getRemainingCells();
+	
+	/**
+	 * Terminates the simulation threads.
+	 */
+	public abstract void shutdown();
+
+}
@@ -21,7 +21,6 @@ package org.laseeb.LAIS.event;
 import org.apache.log4j.Logger;
 import org.laseeb.LAIS.LAISModel;
 import org.laseeb.LAIS.utils.random.IRng;
-import org.laseeb.LAIS.utils.random.RngManager;
 
 import org.simpleframework.xml.Root;
 
@@ -51,26 +50,28 @@ public abstract class Event extends BasicAction {
 	
 	/**
 	 * Returns the random number generator associated with scripted events (which
-	 * is the global one, for serial LAIS code).
+	 * is the model's global one, for serial LAIS code).
 	 * 
+	 * @param model The model in which the event is performed.
 	 * @return The random number generator associated with scripted events.
 	 */
-	public static IRng getEventRng() {
+	public static IRng getEventRng(LAISModel model) {
 		if (logger.isDebugEnabled()) {
 			StackTraceElement[] steArray = Thread.currentThread().getStackTrace();
 			logger.debug("EventRng requested by method '" + steArray[2].getMethodName() + "' in class '" + steArray[2].getClassName() + "'");
 		}
-		return RngManager.getInstance().getRng(null);
+		return model.getRngManager().getRng(null);
 	}
 	
 	/**
 	 * Returns a unique and deterministic ID based on client properties.
 	 * This value will be used as a unique agent identifier.
 	 * 
+	 * @param model The model in which the event is performed.
 	 * @return A unique and deterministic ID based on client properties.
 	 */
 	
-	public static int getUniqueID() {
-		return RngManager.getInstance().getUniqueID();
+	public static long getUniqueID(LAISModel model) {
+		return model.getRngManager().getUniqueID();
 	}
 }
@@ -49,6 +49,6 @@ public class ScheduleAtInterval implements ScriptingType {
 	 * @see org.laseeb.LAIS.event.ScriptingType#scriptEvent(LAISModel, Event)
 	 */
 	public void scriptEvent(LAISModel model, Event event) {
-		model.getSchedule().scheduleActionAtInterval(interval, event, Schedule.LAST);
+		model.scheduleActionAtInterval(interval, event);
 	}
 }
@@ -22,8 +22,6 @@ import org.laseeb.LAIS.LAISModel;
 import org.simpleframework.xml.Element;
 import org.simpleframework.xml.Root;
 
-import uchicago.src.sim.engine.Schedule;
-
 /**
  * Perform simulation event at a specific simulation tick.
  * @see org.laseeb.LAIS.event.ScriptingType
@@ -49,7 +47,7 @@ public class ScheduleAtTick implements ScriptingType {
 	 * @see org.laseeb.LAIS.event.ScriptingType#scriptEvent(LAISModel, Event)
 	 */
 	public void scriptEvent(LAISModel model, Event event) {
-		model.getSchedule().scheduleActionAt(tick, event, Schedule.LAST);
+		model.scheduleActionAt(tick, event);
 	}
 
 }
@@ -205,8 +205,8 @@ public class AgentDeploy extends Event {
 				newAgent = model.getAgentFactory().createAgent(
 						agentPrototype, 
 						mutRate,
-						Event.getUniqueID(),
-						Event.getEventRng());
+						Event.getUniqueID(model),
+						Event.getEventRng(model));
 			} catch (CloneNotSupportedException cnse) {
 				model.getController().stopSim();
 				logger.error("Could not deploy agent of type '" + agentPrototype + "'. " + cnse.getMessage());
@@ -223,7 +223,8 @@ public class AgentDeploy extends Event {
 						AgentPrototype.cloneRefSubMap(
 								runtimeSubRefMap, 
 								mutRate,
-								Event.getEventRng()));
+								Event.getEventRng(model),
+								newAgent.getPrototype().getSubstanceRegistry()));
 				} catch (AgentException ae) {
 					model.getController().stopSim();
 					logger.error(ae.getMessage());
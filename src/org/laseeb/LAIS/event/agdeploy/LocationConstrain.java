@@ -34,6 +34,9 @@ import java.awt.Point;
 @Root
 public abstract class LocationConstrain {
 
+	/* The model in which agents are deployed. */
+	protected LAISModel model;
+
 	/**
 	 * Returns next coordinate for agent deployment.
 	 * @return Next coordinate for agent deployment.
@@ -47,9 +50,10 @@ public abstract class LocationConstrain {
 	 */
 	public void initialize(LAISModel model) {
 		/*
-		 * There is no general initialization; implementations of this class
-		 * can override this method if needed.
+		 * Only the model is kept; implementations of this class
+		 * can override this method if they need more.
 		 */
+		this.model = model;
 	}
 	
 
@@ -87,14 +87,19 @@ public class NumberDependentQuantityConstrain extends
 	/* Agent watcher object, obtained through the LAISModel. */
 	private AgentWatcher agentWatcher;
 	
+	/* Compiled query for the number of agents of given type and state. */
+	private int agentQuery;
+	
 	/**
-	 * Initializes this constrain object with an AgentWatcher object, obtained through the model.
+	 * Initializes this constrain object with an AgentWatcher object, obtained through the model,
+	 * and compiles the query for the number of agents of given type and state.
 	 * @param model The LAISModel, master of all simulation objects.
 	 * @see org.laseeb.LAIS.event.agdeploy.QuantityConstrain#initialize(LAISModel)
 	 */	
 	public void initialize(LAISModel model) {
 		super.initialize(model);
 		this.agentWatcher = model.getAgentWatcher();
+		this.agentQuery = agentWatcher.compileQuery(agent, agStateMap);
 	}
 
 	/**
@@ -105,8 +110,8 @@ public class NumberDependentQuantityConstrain extends
 	 * @see org.laseeb.LAIS.event.agdeploy.QuantityConstrain#getQuantity()
 	 */
 	public int getQuantity() {
-		int currentQuantity = agentWatcher.getNumbers(agent, agStateMap);
+		int currentQuantity = agentWatcher.getNumbers(agentQuery);
 		int possibleToCreate = Math.min(Math.max(0, preferredQuantity - currentQuantity), maxQuantity);		
-		return Event.getEventRng().nextIntFromTo(0, possibleToCreate);
+		return Event.getEventRng(model).nextIntFromTo(0, possibleToCreate);
 	}
 }
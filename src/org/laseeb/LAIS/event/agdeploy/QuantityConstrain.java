@@ -29,11 +29,16 @@ import org.simpleframework.xml.Root;
 @Root
 public abstract class QuantityConstrain {
 
+	/* The model in which agents are deployed. */
+	protected LAISModel model;
+
 	/**
 	 * Initializes the constrain object with whichever information it requires from the model.
 	 * @param model The LAISModel, master of all simulation objects.
 	 */	
-	public void initialize(LAISModel model) {}
+	public void initialize(LAISModel model) {
+		this.model = model;
+	}
 	
 	/**
 	 * Returns an indication of how many agents to deploy. If the constrain is the top or parent 
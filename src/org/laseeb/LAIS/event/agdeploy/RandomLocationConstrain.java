@@ -38,8 +38,8 @@ public class RandomLocationConstrain extends LocationConstrain {
 	 */
 	public Point getNextCoord() {
 		return new Point(
-				Event.getEventRng().nextIntFromTo(0, maxX - 1),
-				Event.getEventRng().nextIntFromTo(0, maxY - 1));
+				Event.getEventRng(model).nextIntFromTo(0, maxX - 1),
+				Event.getEventRng(model).nextIntFromTo(0, maxY - 1));
 	}
 	
 
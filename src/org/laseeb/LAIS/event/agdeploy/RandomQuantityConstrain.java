@@ -45,7 +45,7 @@ public class RandomQuantityConstrain extends QuantityConstrain {
 	public int getQuantity() {
 		int quantityToReturn;
 		quantityToReturn = maxQuantity;
-		return Event.getEventRng().nextIntFromTo(0, quantityToReturn);
+		return Event.getEventRng(model).nextIntFromTo(0, quantityToReturn);
 	}
 
 }
@@ -99,8 +99,8 @@ public class RectangularLocationConstrain extends LocationConstrain {
 	 */
 	public Point getNextCoord() {
 		if (random) {
-			nextPoint.x = Event.getEventRng().nextIntFromTo(minX, maxX);
-			nextPoint.y = Event.getEventRng().nextIntFromTo(minY, maxY);
+			nextPoint.x = Event.getEventRng(model).nextIntFromTo(minX, maxX);
+			nextPoint.y = Event.getEventRng(model).nextIntFromTo(minY, maxY);
 		} else {
 			nextPoint.x += 1;
 			if (nextPoint.x > maxX) {
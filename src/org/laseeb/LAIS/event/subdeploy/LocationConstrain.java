@@ -34,6 +34,9 @@ import org.simpleframework.xml.Root;
 @Root
 public abstract class LocationConstrain {
 	
+	/* The model in which substances are deployed. */
+	protected LAISModel model;
+	
 	/**
 	 * Add weight to a point in the weight map.
 	 * @param weightMap The map to which to add the weight in the given point.
@@ -66,6 +69,8 @@ public abstract class LocationConstrain {
 	 * Initialize constrain.
 	 * @param model The simulation model.
 	 */
-	public void initialize(LAISModel model) {}
+	public void initialize(LAISModel model) {
+		this.model = model;
+	}
 
 }
@@ -68,11 +68,11 @@ public class RandomLocationConstrain extends LocationConstrain {
 	 */
 	public Map<Point, Float> getWeightMap() {
 		Map<Point, Float> weightMap = createEmptyWeightMap();
-		int deFactoSpread = Event.getEventRng().nextIntFromTo(minSpread, maxSpread);
+		int deFactoSpread = Event.getEventRng(model).nextIntFromTo(minSpread, maxSpread);
 		for (int i = 0; i < deFactoSpread; i++) {
 			Point point = new Point(
-					Event.getEventRng().nextIntFromTo(0, xSize),
-					Event.getEventRng().nextIntFromTo(0, ySize));
+					Event.getEventRng(model).nextIntFromTo(0, xSize),
+					Event.getEventRng(model).nextIntFromTo(0, ySize));
 			float weight = 1.0f / deFactoSpread;
 			addPointWeight(weightMap, point, weight);
 		}
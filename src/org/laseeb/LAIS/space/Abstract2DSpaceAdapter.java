@@ -44,10 +44,26 @@ public abstract class Abstract2DSpaceAdapter {
 	 */
 	protected Object2DGrid space;
 	
+	/* Substance concentrations in all cells of the space. */
+	private SubstanceField substanceField;
+	
+	/* Neighbor cells of each cell, indexed by cell index. */
+	private Cell2D[][] neighborCells;
+	
+	/* Indexes of the neighbor cells of each cell, indexed by cell index. */
+	private int[][] neighborIndexes;
+	
+	/* Region of the space where cells can change in the current tick. */
+	private ActiveRegion activeRegion;
+	
 	/**
 	 * Returns a {@link java.util.Vector} containing the cell neighbors of 
 	 * the given cell location. The vector will only contain the available
 	 * neighbors, it will never contain <code>null</code>s.
+	 * <p>
+	 * A new vector is created each time this method is invoked. During the
+	 * simulation, the precomputed neighbor tables (see {@link #buildNeighborTables()})
+	 * should be used instead.
 	 * 
 	 * @param x X position of the given cell.
 	 * @param y Y position of the given cell.
@@ -55,6 +71,75 @@ public abstract class Abstract2DSpaceAdapter {
 	 */
 	public abstract Vector<Cell2D> getNeighbors(int x, int y);
 	
+	/**
+	 * Builds the neighbor tables of all cells, using {@link #getNeighbors(int, int)},
+	 * and the space's {@link ActiveRegion}. Must be invoked after all cells are in 
+	 * place, and before any of the neighbor table methods ({@link #getNeighborCells(int)}, 
+	 * {@link #getNeighborIndexes(int)}, {@link #getNumNeighbors(int)}) is used.
+	 */
+	public void buildNeighborTables() {
+		int sizeX = getSizeX();
+		int sizeY = getSizeY();
+		Cell2D[][] cells = new Cell2D[sizeX * sizeY][];
+		int[][] indexes = new int[sizeX * sizeY][];
+		for (int y = 0; y < sizeY; y++) {
+			for (int x = 0; x < sizeX; x++) {
+				int cell = getCellIndex(x, y);
+				Vector<Cell2D> neighbors = getNeighbors(x, y);
+				cells[cell] = neighbors.toArray(new Cell2D[neighbors.size()]);
+				indexes[cell] = new int[cells[cell].length];
+				for (int n = 0; n < indexes[cell].length; n++)
+					indexes[cell][n] = getCellIndex(cells[cell][n].getX(), cells[cell][n].getY());
+			}
+		}
+		neighborCells = cells;
+		neighborIndexes = indexes;
+		activeRegion = new ActiveRegion(this);
+	}
+	
+	/**
+	 * Returns the region of the space where cells can change in the current tick.
+	 * 
+	 * @return The region of the space where cells can change in the current tick.
+	 */
+	public ActiveRegion getActiveRegion() {
+		return activeRegion;
+	}
+	
+	/**
+	 * Returns the neighbor cells of the cell with the given index, in the same order
+	 * as given by {@link #getNeighbors(int, int)}. The returned array is shared, and
+	 * must not be modified.
+	 * 
+	 * @param cellIndex Index of the cell.
+	 * @return The neighbor cells of the given cell.
+	 */
+	public Cell2D[] getNeighborCells(int cellIndex) {
+		return neighborCells[cellIndex];
+	}
+	
+	/**
+	 * Returns the indexes of the neighbor cells of the cell with the given index, in
+	 * the same order as given by {@link #getNeighbors(int, int)}. The returned array
+	 * is shared, and must not be modified.
+	 * 
+	 * @param cellIndex Index of the cell.
+	 * @return The indexes of the neighbor cells of the given cell.
+	 */
+	public int[] getNeighborIndexes(int cellIndex) {
+		return neighborIndexes[cellIndex];
+	}
+	
+	/**
+	 * Returns the number of neighbors of the cell with the given index.
+	 * 
+	 * @param cellIndex Index of the cell.
+	 * @return The number of neighbors of the given cell.
+	 */
+	public int getNumNeighbors(int cellIndex) {
+		return neighborCells[cellIndex].length;
+	}
+	
 	/**
 	 * Returns the encapsulated Repast space.
 	 * 
@@ -109,4 +194,27 @@ public abstract class Abstract2DSpaceAdapter {
 //		return null;
 	}
 	
+	/**
+	 * Returns the index of the cell placed in the given spatial location, 
+	 * used to access the cell's data in {@link SubstanceField}.
+	 * 
+	 * @param x Horizontal location of the cell.
+	 * @param y Vertical location of the cell.
+	 * @return The index of the cell placed in the given spatial location.
+	 */
+	public int getCellIndex(int x, int y) {
+		return y * getSizeX() + x;
+	}
+	
+	/**
+	 * Returns the substance concentrations in all cells of the space.
+	 * 
+	 * @return The substance concentrations in all cells of the space.
+	 */
+	public synchronized SubstanceField getSubstanceField() {
+		if (substanceField == null)
+			substanceField = new SubstanceField(getSizeX() * getSizeY());
+		return substanceField;
+	}
+	
 }
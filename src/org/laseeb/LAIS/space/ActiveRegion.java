@@ -0,0 +1,338 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.space;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps track of the region of the simulation space where cells can change in
+ * the current tick, so that the simulation passes can skip the remaining cells.
+ * <p>
+ * A cell can only change if it holds agents, if some substance is present in
+ * it, or if it borders such a cell (where agents can move to, and from where 
+ * substances can diffuse). The region of each tick is the bounding box of the 
+ * cells holding agents after the previous tick and of the cells where substances 
+ * were present after the previous step one, enlarged by the neighborhood reach. 
+ * Cells directly modified, e.g. by events (see {@link Cell2D#addAgent(org.laseeb.LAIS.agent.Agent)}
+ * and {@link Cell2D#modifySubstanceCon(org.laseeb.LAIS.substance.Substance, Float)}), 
+ * are also included. Diffusion uses a separate box for each substance. Since 
+ * only cells which would not change are skipped, results are the same as 
+ * when processing all cells.
+ * <p>
+ * Regions are rectangles; in toroidal spaces, a region which would wrap around
+ * the border spans the whole dimension.
+ * <p>
+ * Agents moving between cells are collected during step one in a separate outbox 
+ * for each thread (see {@link MoveOutbox}), and are delivered to their destination 
+ * cells during step two by the thread which processes the destination cells, so 
+ * that cells are only changed by the thread which processes them.
+ * 
+ * @author Nuno Fachada
+ */
+public class ActiveRegion {
+	
+	/* Positions of the rectangle limits (inclusive). */
+	private static final int X0 = 0, X1 = 1, Y0 = 2, Y1 = 3;
+	
+	/* Cells of the simulation space, indexed by cell index. */
+	private final Cell2D[] cells;
+	/* Substance concentrations in the simulation space. */
+	private final SubstanceField field;
+	/* Dimensions of the simulation space. */
+	private final int sizeX, sizeY;
+	/* Maximum horizontal and vertical distance between neighbor cells. */
+	private final int reachX, reachY;
+	/* Indicate if neighborhoods wrap around the horizontal and vertical borders. */
+	private final boolean wrapX, wrapY;
+	/* Cells which hold agents. */
+	private final CellBox agentBox = new CellBox();
+	/* Cells whose substance concentrations were directly modified. */
+	private final CellBox modifiedBox = new CellBox();
+	/* Regions of step one and step two in the current tick. */
+	private final int[] stepOneRect = new int[4], stepTwoRect = new int[4];
+	/* Diffusion region of each substance slot in the current tick. */
+	private int[] diffusionRects = new int[0];
+	/* Current tick, used to tell apart the moving agents of previous ticks. */
+	private int tick = 0;
+	/* Outboxes of agents moving to other cells, of all the threads which moved agents. */
+	private final List<MoveOutbox> moveOutboxes = new ArrayList<MoveOutbox>();
+	/* Outboxes to deliver in the current step two. */
+	private MoveOutbox[] deliveryOutboxes = new MoveOutbox[0];
+	/* Outbox of agents moving to other cells, of the current thread. */
+	private final ThreadLocal<MoveOutbox> moveOutbox = new ThreadLocal<MoveOutbox>() {
+		protected MoveOutbox initialValue() {
+			MoveOutbox outbox = new MoveOutbox(sizeY);
+			synchronized (moveOutboxes) {
+				moveOutboxes.add(outbox);
+			}
+			return outbox;
+		}
+	};
+	
+	/**
+	 * Creates the active region tracker for the given space. The neighbor tables of
+	 * the space must already be built (see {@link Abstract2DSpaceAdapter#buildNeighborTables()}).
+	 * 
+	 * @param space The simulation space.
+	 */
+	public ActiveRegion(Abstract2DSpaceAdapter space) {
+		this.field = space.getSubstanceField();
+		this.sizeX = space.getSizeX();
+		this.sizeY = space.getSizeY();
+		this.cells = new Cell2D[sizeX * sizeY];
+		/* Determine how far neighbors can be, and if they wrap around the borders. */
+		int maxDX = 0, maxDY = 0;
+		boolean wrapsX = false, wrapsY = false;
+		for (int cell = 0; cell < cells.length; cell++) {
+			int x = cell % sizeX, y = cell / sizeX;
+			cells[cell] = space.getCell2DAt(x, y);
+			for (int neighbor : space.getNeighborIndexes(cell)) {
+				int dx = Math.abs(neighbor % sizeX - x);
+				int dy = Math.abs(neighbor / sizeX - y);
+				if (2 * dx > sizeX) {
+					dx = sizeX - dx;
+					wrapsX = true;
+				}
+				if (2 * dy > sizeY) {
+					dy = sizeY - dy;
+					wrapsY = true;
+				}
+				maxDX = Math.max(maxDX, dx);
+				maxDY = Math.max(maxDY, dy);
+			}
+		}
+		this.reachX = maxDX;
+		this.reachY = maxDY;
+		this.wrapX = wrapsX;
+		this.wrapY = wrapsY;
+		setEmpty(stepOneRect, 0);
+		setEmpty(stepTwoRect, 0);
+	}
+	
+	/**
+	 * Informs that the cell at the given location holds agents.
+	 * 
+	 * @param x Horizontal location of the cell.
+	 * @param y Vertical location of the cell.
+	 */
+	public void includeAgents(int x, int y) {
+		agentBox.include(x, y);
+	}
+	
+	/**
+	 * Informs that the substance concentrations of the cell at the given location
+	 * were directly modified (e.g. by an event), so the cell must be processed in 
+	 * the next tick.
+	 * 
+	 * @param x Horizontal location of the cell.
+	 * @param y Vertical location of the cell.
+	 */
+	public void includeModified(int x, int y) {
+		modifiedBox.include(x, y);
+	}
+	
+	/**
+	 * Determines the regions of step one and step two for a new tick. Must be 
+	 * invoked before step one, while no simulation pass is running.
+	 */
+	public void beginStepOne() {
+		tick++;
+		setBox(stepOneRect, 0, agentBox, 0);
+		union(stepOneRect, modifiedBox, 0);
+		int numSlots = field.getNumSlots();
+		for (int s = 0; s < numSlots; s++) {
+			CellBox presence = field.getPresence(s);
+			/* Substances may have diffused to neighbor cells. */
+			union(stepOneRect, presence, 1);
+			/* Presence will be determined again during step one. */
+			presence.clear();
+		}
+		/* Agents can move to neighbor cells during step one. */
+		setRect(stepTwoRect, 0, stepOneRect[X0], stepOneRect[X1], stepOneRect[Y0], stepOneRect[Y1], 1);
+		agentBox.clear();
+		modifiedBox.clear();
+	}
+	
+	/**
+	 * Determines the diffusion region of each substance, after reclaiming the slots 
+	 * of substances no longer present (see {@link SubstanceField#reclaimEmptySlots()}). 
+	 * Must be invoked after step one and before diffusion, while no simulation pass is running.
+	 */
+	public void beginDiffusion() {
+		field.reclaimEmptySlots();
+		int numSlots = field.getNumSlots();
+		int[] rects = new int[4 * numSlots];
+		for (int s = 0; s < numSlots; s++)
+			setBox(rects, 4 * s, field.getPresence(s), 1);
+		diffusionRects = rects;
+	}
+	
+	/**
+	 * Performs step one on the cells in the given range which are within the step one region.
+	 * 
+	 * @param start Index of the first cell in the range.
+	 * @param end Index after the last cell in the range.
+	 * @throws CellStepException When an error occurs while processing a cell.
+	 */
+	public void stepOne(int start, int end) throws CellStepException {
+		int lastRow = getLastRow(stepOneRect, 0, end);
+		for (int row = getFirstRow(stepOneRect, 0, start); row <= lastRow; row++) {
+			int hi = getRowEnd(stepOneRect, 0, row, end);
+			for (int c = getRowStart(stepOneRect, 0, row, start); c < hi; c++)
+				cells[c].stepOne();
+		}
+	}
+	
+	/**
+	 * Returns the outbox of the current thread, where agents moving to other cells 
+	 * are added, paired with their destination cells.
+	 * 
+	 * @return The outbox of the current thread.
+	 */
+	MoveOutbox getMoveOutbox() {
+		MoveOutbox outbox = moveOutbox.get();
+		outbox.begin(tick);
+		return outbox;
+	}
+	
+	/**
+	 * Prepares the delivery, during step two, of the agents which moved during step 
+	 * one. Must be invoked after step one and before step two, while no simulation 
+	 * pass is running.
+	 */
+	public void beginStepTwo() {
+		synchronized (moveOutboxes) {
+			if (deliveryOutboxes.length != moveOutboxes.size())
+				deliveryOutboxes = moveOutboxes.toArray(new MoveOutbox[moveOutboxes.size()]);
+		}
+	}
+	
+	/**
+	 * Diffuses the substances in the cells in the given range, skipping for each 
+	 * substance the cells outside its diffusion region.
+	 * 
+	 * @param kernel The diffusion kernel.
+	 * @param start Index of the first cell in the range.
+	 * @param end Index after the last cell in the range.
+	 */
+	public void diffuse(DiffusionKernel kernel, int start, int end) {
+		int[] rects = diffusionRects;
+		int numSlots = rects.length / 4;
+		for (int s = 0; s < numSlots; s++) {
+			int lastRow = getLastRow(rects, 4 * s, end);
+			for (int row = getFirstRow(rects, 4 * s, start); row <= lastRow; row++)
+				kernel.diffuse(s, getRowStart(rects, 4 * s, row, start), getRowEnd(rects, 4 * s, row, end));
+		}
+	}
+
+	/**
+	 * Performs step two on the cells in the given range which are within the step two 
+	 * region, after delivering to them the agents which moved in during step one.
+	 * 
+	 * @param start Index of the first cell in the range.
+	 * @param end Index after the last cell in the range.
+	 */
+	public void stepTwo(int start, int end) {
+		MoveOutbox[] outboxes = deliveryOutboxes;
+		int lastRow = getLastRow(stepTwoRect, 0, end);
+		for (int row = getFirstRow(stepTwoRect, 0, start); row <= lastRow; row++) {
+			for (MoveOutbox outbox : outboxes)
+				outbox.deliver(tick, row, start, end);
+			int hi = getRowEnd(stepTwoRect, 0, row, end);
+			for (int c = getRowStart(stepTwoRect, 0, row, start); c < hi; c++)
+				cells[c].stepTwo();
+		}
+	}
+	
+	/* First row of a range within a rectangle. */
+	private int getFirstRow(int[] rect, int pos, int start) {
+		return Math.max(start / sizeX, rect[pos + Y0]);
+	}
+
+	/* Last row of a range within a rectangle. */
+	private int getLastRow(int[] rect, int pos, int end) {
+		return Math.min((end - 1) / sizeX, rect[pos + Y1]);
+	}
+	
+	/* Index of the first cell of a row within a range and a rectangle. */
+	private int getRowStart(int[] rect, int pos, int row, int start) {
+		return Math.max(start, row * sizeX + rect[pos + X0]);
+	}
+
+	/* Index after the last cell of a row within a range and a rectangle. */
+	private int getRowEnd(int[] rect, int pos, int row, int end) {
+		return Math.min(end, row * sizeX + rect[pos + X1] + 1);
+	}
+	
+	/* Sets the rectangle to the given box, enlarged by the given number of neighborhood hops. */
+	private void setBox(int[] rect, int pos, CellBox box, int hops) {
+		setRect(rect, pos, box.getMinX(), box.getMaxX(), box.getMinY(), box.getMaxY(), hops);
+	}
+	
+	/* Sets the rectangle to the union of itself with the given box, enlarged by the given number of neighborhood hops. */
+	private void union(int[] rect, CellBox box, int hops) {
+		int[] other = new int[4];
+		setBox(other, 0, box, hops);
+		if (other[X0] > other[X1]) {
+			return;
+		} else if (rect[X0] > rect[X1]) {
+			System.arraycopy(other, 0, rect, 0, 4);
+		} else {
+			rect[X0] = Math.min(rect[X0], other[X0]);
+			rect[X1] = Math.max(rect[X1], other[X1]);
+			rect[Y0] = Math.min(rect[Y0], other[Y0]);
+			rect[Y1] = Math.max(rect[Y1], other[Y1]);
+		}
+	}
+	
+	/* Sets the rectangle to the given limits, enlarged by the given number of neighborhood hops. */
+	private void setRect(int[] rect, int pos, int minX, int maxX, int minY, int maxY, int hops) {
+		if ((minX > maxX) || (minY > maxY)) {
+			setEmpty(rect, pos);
+			return;
+		}
+		minX -= hops * reachX;
+		maxX += hops * reachX;
+		minY -= hops * reachY;
+		maxY += hops * reachY;
+		/* A region which wraps around the border spans the whole dimension. */
+		if (wrapX && ((minX < 0) || (maxX >= sizeX))) {
+			minX = 0;
+			maxX = sizeX - 1;
+		}
+		if (wrapY && ((minY < 0) || (maxY >= sizeY))) {
+			minY = 0;
+			maxY = sizeY - 1;
+		}
+		rect[pos + X0] = Math.max(minX, 0);
+		rect[pos + X1] = Math.min(maxX, sizeX - 1);
+		rect[pos + Y0] = Math.max(minY, 0);
+		rect[pos + Y1] = Math.min(maxY, sizeY - 1);
+	}
+	
+	/* Sets the rectangle to empty. */
+	private static void setEmpty(int[] rect, int pos) {
+		rect[pos + X0] = 0;
+		rect[pos + X1] = -1;
+		rect[pos + Y0] = 0;
+		rect[pos + Y1] = -1;
+	}
+
+}
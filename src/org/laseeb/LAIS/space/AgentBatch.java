@@ -0,0 +1,187 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package org.laseeb.LAIS.space;
+
+import java.util.Arrays;
+
+import org.laseeb.LAIS.agent.Agent;
+
+/**
+ * A batch of agents kept in plain arrays, optionally pairing each agent with a cell. 
+ * Cells use batches to collect agent births, deaths and moves during step one, which 
+ * are then applied all at once to the cell's sorted agent array.
+ * <p>
+ * Batches are not thread-safe.
+ * 
+ * @author Nuno Fachada
+ */
+class AgentBatch {
+	
+	/* Shared empty array. */
+	static final Agent[] NO_AGENTS = new Agent[0];
+	
+	/* Minimum capacity of non-empty batches. */
+	private static final int MIN_CAPACITY = 4;
+	
+	/* Agents in the batch. */
+	Agent[] agents = NO_AGENTS;
+	
+	/* Cells paired with the agents, allocated only when used. */
+	Cell2D[] cells;
+	
+	/* Number of agents in the batch. */
+	int size = 0;
+	
+	/**
+	 * Adds an agent to the batch.
+	 * 
+	 * @param ag Agent to add.
+	 */
+	void add(Agent ag) {
+		if (size == agents.length)
+			grow(size + 1);
+		agents[size++] = ag;
+	}
+	
+	/**
+	 * Adds an agent paired with a cell to the batch. If the agent is the last one 
+	 * added, only its cell is replaced.
+	 * 
+	 * @param ag Agent to add.
+	 * @param cell Cell to pair with the agent.
+	 */
+	void add(Agent ag, Cell2D cell) {
+		if ((size > 0) && (agents[size - 1] == ag)) {
+			cells[size - 1] = cell;
+			return;
+		}
+		if (cells == null)
+			cells = new Cell2D[agents.length];
+		if (size == agents.length)
+			grow(size + 1);
+		agents[size] = ag;
+		cells[size] = cell;
+		size++;
+	}
+	
+	/**
+	 * Inserts an agent in the batch, in the given position. Paired cells are not moved.
+	 * 
+	 * @param pos Position where to insert the agent.
+	 * @param ag Agent to insert.
+	 */
+	void insert(int pos, Agent ag) {
+		if (size == agents.length)
+			grow(size + 1);
+		System.arraycopy(agents, pos, agents, pos + 1, size - pos);
+		agents[pos] = ag;
+		size++;
+	}
+	
+	/**
+	 * Adds all agents in the given batch to this batch. Paired cells are not copied.
+	 * 
+	 * @param batch Batch with the agents to add.
+	 */
+	void addAll(AgentBatch batch) {
+		if (size + batch.size > agents.length)
+			grow(size + batch.size);
+		System.arraycopy(batch.agents, 0, agents, size, batch.size);
+		size += batch.size;
+	}
+	
+	/**
+	 * Sorts the agents in the batch by their identifier (see {@link Agent#compareTo(Agent)}),
+	 * and removes repeated agents. Of repeated agents paired with cells, the last one 
+	 * added is kept.
+	 */
+	void sortUnique() {
+		if (size < 2)
+			return;
+		if (cells == null) {
+			Arrays.sort(agents, 0, size);
+		} else {
+			/* Stable insertion sort; agents paired with cells are usually added in order. */
+			for (int i = 1; i < size; i++) {
+				Agent ag = agents[i];
+				Cell2D cell = cells[i];
+				int j = i - 1;
+				while ((j >= 0) && (agents[j].compareTo(ag) > 0)) {
+					agents[j + 1] = agents[j];
+					cells[j + 1] = cells[j];
+					j--;
+				}
+				agents[j + 1] = ag;
+				cells[j + 1] = cell;
+			}
+		}
+		/* Remove repeated agents, keeping the last one. */
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			if ((i < size - 1) && (agents[i + 1] == agents[i]))
+				continue;
+			agents[n] = agents[i];
+			if (cells != null)
+				cells[n] = cells[i];
+			n++;
+		}
+		truncate(n);
+	}
+	
+	/**
+	 * Looks for the given agent in the batch, which must be sorted, starting at the given
+	 * position. Agents are usually looked for in increasing order, so the returned position
+	 * can be used to continue looking for the next agent.
+	 * 
+	 * @param ag Agent to look for.
+	 * @param from Position where to start looking.
+	 * @return Position of the first agent in the batch which is not lower than the given
+	 * agent, or the size of the batch if there is no such agent.
+	 */
+	int seek(Agent ag, int from) {
+		while ((from < size) && (agents[from].compareTo(ag) < 0))
+			from++;
+		return from;
+	}
+	
+	/**
+	 * Removes all agents from the batch.
+	 */
+	void clear() {
+		truncate(0);
+	}
+	
+	/* Keeps only the first n agents in the batch, releasing references to the remaining ones. */
+	private void truncate(int n) {
+		Arrays.fill(agents, n, size, null);
+		if (cells != null)
+			Arrays.fill(cells, n, size, null);
+		size = n;
+	}
+	
+	/* Grows the batch arrays so they can hold at least the given number of agents. */
+	private void grow(int minCapacity) {
+		int capacity = Math.max(Math.max(MIN_CAPACITY, agents.length * 2), minCapacity);
+		agents = Arrays.copyOf(agents, capacity);
+		if (cells != null)
+			cells = Arrays.copyOf(cells, capacity);
+	}
+	
+}
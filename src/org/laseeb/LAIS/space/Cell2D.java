@@ -19,15 +19,17 @@
 package org.laseeb.LAIS.space;
 
 import java.awt.Color;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.Vector;
 
 import org.apache.log4j.Logger;
@@ -35,16 +37,18 @@ import org.laseeb.LAIS.LAISModel;
 import org.laseeb.LAIS.agent.Agent;
 import org.laseeb.LAIS.agent.AgentException;
 import org.laseeb.LAIS.agent.AgentManager;
-import org.laseeb.LAIS.agent.AgentView;
+import org.laseeb.LAIS.agent.AgentPrototype;
 import org.laseeb.LAIS.agent.actions.ActionException;
 import org.laseeb.LAIS.agent.conditions.ConditionException;
 import org.laseeb.LAIS.substance.SubMergeRule;
+import org.laseeb.LAIS.substance.SubMergeRuleIndex;
 import org.laseeb.LAIS.substance.Substance;
 import org.laseeb.LAIS.substance.SubstanceContainer;
 import org.laseeb.LAIS.substance.SubstanceManager;
+import org.laseeb.LAIS.substance.SubstanceRegistry;
 import org.laseeb.LAIS.utils.random.IRng;
+import org.laseeb.LAIS.utils.random.IdGenerator;
 import org.laseeb.LAIS.utils.random.RngClient;
-import org.laseeb.LAIS.utils.random.RngManager;
 //import org.laseeb.LAIS.utils.QuickProfiler;
 
 import uchicago.src.sim.engine.CustomProbeable;
@@ -64,25 +68,51 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 
 	/* Logger. */
 	private static Logger logger = Logger.getLogger(Cell2D.class);
-	/* Necessary agents sets; agentsInCell must be synchronized */
-	protected Set<Agent> agentsInCell, agentsToDie, agentsToBorn, agentsToMoveIn;
-	/* Agents to move out */
-	protected Map<Agent, Cell2D> agentsToMoveOut;
-	/* Agent views. */
-	protected Map<String, AgentView> agentViews;
-	protected Map<String, Double> agentViewsLastUpdate;
+	/* Agents in this cell, sorted by identifier (see Agent#compareTo(Agent)); only the first 
+	 * numAgents positions are used. The array is only changed in batch, during step two 
+	 * or by events, while holding the cell lock. */
+	protected Agent[] agentsInCell;
+	protected int numAgents;
+	/* Spare array where agents are merged during step two, then swapped with agentsInCell. */
+	protected Agent[] spareAgents;
+	/* Agents in this cell by prototype index (see AgentPrototype#getIndex()), each sorted 
+	 * by identifier. Updated together with agentsInCell. */
+	protected AgentBatch[] agentsByPrototype;
+	/* Agent currently playing, which is hidden from the other agents in this cell. */
+	protected Agent playingAgent;
+	/* Agents to die, to be born and to move in, applied in batch during step two. */
+	protected AgentBatch agentsToDie, agentsToBorn, agentsToMoveIn;
+	/* Agents to move out, paired with their destination cells. */
+	protected AgentBatch agentsToMoveOut;
 	/* The space where the cell is at */
 	protected Abstract2DSpaceAdapter space;
 	/* Cell2D coordinates */
 	protected int x, y;
-	/* Maps of global and local substance concentration. */
-	protected Map<Substance, Float> localSubCon, localSubConFuture;
+	/* Substance concentrations of the whole space, and index of this cell in it. */
+	protected SubstanceField subField;
+	protected int cellIndex;
+	/* Slots of the substances present in this cell, in increasing order. Rebuilt when
+	 * current concentrations are updated in step one, and read by neighbor cells in step two. */
+	protected int[] presentSlots;
+	protected int numPresentSlots;
+	/* Slots not in presentSlots whose future concentration in this cell may be non-zero,
+	 * because substances were added to or diffused into this cell. Cleared in step one. */
+	protected int[] addedSlots;
+	protected int numAddedSlots;
+	/* Per-thread scratch arrays for substance merging: slots, identifiers and family indexes. */
+	private static final ThreadLocal<int[][]> mergeScratch = new ThreadLocal<int[][]>() {
+		protected int[][] initialValue() {
+			return new int[3][0];
+		}
+	};
+	/* Provides the identifiers of substances, used to find them in the substance field. */
+	protected SubstanceRegistry subRegistry;
 	/* Substance manager */
 	protected SubstanceManager substanceMan;
 	/* Agent manager */
 	protected AgentManager agentMan;
-	/* Number of agents produced. */
-	protected int agentsProduced;
+	/* Generator of unique IDs for agents produced in this cell. */
+	protected IdGenerator idGenerator;
 	/* The overlying AIS model */
 	protected LAISModel model;
 
@@ -102,97 +132,185 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 					SubstanceManager substanceMan,
 					AgentManager agentMan,
 					LAISModel laisModel) {
-		agentsInCell = Collections.synchronizedSet(new TreeSet<Agent>());
-		agentsToDie = new HashSet<Agent>();
-		agentsToBorn = new HashSet<Agent>();
-		agentsToMoveIn = new HashSet<Agent>();
-		agentsToMoveOut = new HashMap<Agent, Cell2D>();
-		agentViews = new HashMap<String, AgentView>();
-		agentViewsLastUpdate = new HashMap<String, Double>();
+		agentsInCell = AgentBatch.NO_AGENTS;
+		spareAgents = AgentBatch.NO_AGENTS;
+		numAgents = 0;
+		agentsToDie = new AgentBatch();
+		agentsToBorn = new AgentBatch();
+		agentsToMoveIn = new AgentBatch();
+		agentsToMoveOut = new AgentBatch();
+		agentsByPrototype = new AgentBatch[0];
+		presentSlots = new int[0];
+		numPresentSlots = 0;
+		addedSlots = new int[0];
+		numAddedSlots = 0;
 		this.x = x;
 		this.y = y;
 		this.space = space;
 		this.substanceMan = substanceMan;
 		this.agentMan = agentMan;
 		this.model = laisModel;
-		this.agentsProduced = 0;
 		
-		this.localSubCon = new HashMap<Substance, Float>();
-		this.localSubConFuture = new HashMap<Substance, Float>();
+		if (space != null) {
+			this.subField = space.getSubstanceField();
+			this.cellIndex = space.getCellIndex(x, y);
+		}
+		/* Partition zero belongs to the random number manager. */
+		this.idGenerator = new IdGenerator(cellIndex + 1);
+		if (substanceMan != null)
+			this.subRegistry = substanceMan.getSubstanceRegistry();
 	}
 	
 	/**
-	 * Sets an agent view.
+	 * Returns the index of this cell in the {@link SubstanceField} of its space.
 	 * 
-	 * @param viewName Name (reference) of the view.
-	 * @param view The view object.
+	 * @return The index of this cell in the substance field of its space.
 	 */
-	public void setAgentView(String viewName, AgentView view) {
-		agentViews.put(viewName, view);
-		agentViewsLastUpdate.put(viewName, model.getController().getCurrentTime());
+	public int getCellIndex() {
+		return cellIndex;
 	}
 	
 	/**
-	 * Returns an agent view.
+	 * Returns the number of agents with the given prototype in this cell. While agents 
+	 * are playing, the playing agent is not counted.
 	 * 
-	 * @param viewName Name (reference) of the view.
-	 * @return The requested view object.
+	 * @param prototype Agent prototype.
+	 * @return The number of agents with the given prototype in this cell.
 	 */
-	public AgentView getAgentView(String viewName) {
-		return agentViews.get(viewName);
+	public int getNumAgents(AgentPrototype prototype) {
+		int p = prototype.getIndex();
+		if (p >= agentsByPrototype.length)
+			return 0;
+		int n = agentsByPrototype[p].size;
+		if ((playingAgent != null) && (playingAgent.getPrototype() == prototype))
+			n--;
+		return n;
 	}
 	
 	/**
-	 * Returns true if given agent view is updated for the current simulation tick, false otherwise.
+	 * Returns an agent with the given prototype in this cell. Agents with the same 
+	 * prototype are ordered by identifier. While agents are playing, the playing agent 
+	 * is skipped.
 	 * 
-	 * @param viewName viewName Name (reference) of the view.
-	 * @return True if given agent view is updated for the current simulation tick, false otherwise.
+	 * @param prototype Agent prototype.
+	 * @param i Position of the agent among the agents with the given prototype, between 
+	 * zero and {@link #getNumAgents(AgentPrototype)} minus one.
+	 * @return The agent in the given position among the agents with the given prototype.
 	 */
-	public boolean isAgentViewUpdated(String viewName) {
-		if (agentViews.get(viewName) != null) {
-			if (agentViewsLastUpdate.get(viewName) == model.getController().getCurrentTime())
-				return true;
-		}
-		return false;
+	public Agent getAgent(AgentPrototype prototype, int i) {
+		AgentBatch agents = agentsByPrototype[prototype.getIndex()];
+		if ((playingAgent != null) && (playingAgent.getPrototype() == prototype)
+				&& (i >= Arrays.binarySearch(agents.agents, 0, agents.size, playingAgent)))
+			i++;
+		return agents.agents[i];
 	}
 
 	/**
 	 * Add or remove a quantity of substance. Method to be primarily called by agents.
+	 * Agents only modify the substances of their own cell, so during step one this 
+	 * method is only called by the thread which processes the cell, and is not 
+	 * synchronized.
 	 *  
 	 * @param sub Substance to add or remove a quantity of.
 	 * @param con Quantity of the given substance.
 	 * @return Substance concentration after modification.
 	 * @see org.laseeb.LAIS.substance.SubstanceContainer#modifySubstanceCon(Substance, Float)
 	 */
-	public synchronized float modifySubstanceCon(Substance sub, Float con) {
-		float newCon = 0.0f;
-		if (this.localSubConFuture.containsKey(sub)) {
-			newCon = localSubConFuture.get(sub);				
-		}
-		newCon = newCon + con;
+	public float modifySubstanceCon(Substance sub, Float con) {
+		space.getActiveRegion().includeModified(x, y);
+		int slot = slotFor(sub);
+		addSlot(slot);
+		float[] future = subField.getFuture(slot);
+		float newCon = future[cellIndex] + con;
 		if (newCon > this.getMinConThreshold()) {
-			this.localSubConFuture.put(sub, newCon);
+			future[cellIndex] = newCon;
 			return newCon;
 		} else {
-			this.localSubConFuture.remove(sub);
+			future[cellIndex] = 0.0f;
 			return 0.0f;
 		}
 	}
 	
+	/* Returns the slot of the given substance in the substance field, creating it if necessary. */
+	private int slotFor(Substance sub) {
+		return subField.slotFor(subRegistry.getId(sub), sub);
+	}
+	
+	/* Notes that the future concentration of the substance in the given slot may be non-zero in this cell. */
+	private void addSlot(int slot) {
+		if (Arrays.binarySearch(presentSlots, 0, numPresentSlots, slot) >= 0)
+			return;
+		for (int k = 0; k < numAddedSlots; k++) {
+			if (addedSlots[k] == slot)
+				return;
+		}
+		if (numAddedSlots == addedSlots.length)
+			addedSlots = Arrays.copyOf(addedSlots, Math.max(4, numAddedSlots * 2));
+		addedSlots[numAddedSlots++] = slot;
+	}
+	
+	/* Notes the substances which may have diffused into this cell from its neighbors. */
+	private void addDiffusedSlots() {
+		for (Cell2D neigh : space.getNeighborCells(cellIndex)) {
+			for (int k = 0; k < neigh.numPresentSlots; k++) {
+				int s = neigh.presentSlots[k];
+				if (subField.getFuture(s)[cellIndex] != 0)
+					addSlot(s);
+			}
+		}
+	}
+	
+	/* Sets current substance concentrations equal to future ones, and rebuilds the list of present slots. */
+	private void commitSubstances() {
+		/* Keep present slots which are still present, in order. */
+		int n = 0;
+		for (int k = 0; k < numPresentSlots; k++) {
+			int s = presentSlots[k];
+			float con = subField.getFuture(s)[cellIndex];
+			subField.getCurrent(s)[cellIndex] = con;
+			if (con != 0)
+				presentSlots[n++] = s;
+		}
+		/* Insert added slots which became present. */
+		for (int k = 0; k < numAddedSlots; k++) {
+			int s = addedSlots[k];
+			float con = subField.getFuture(s)[cellIndex];
+			subField.getCurrent(s)[cellIndex] = con;
+			if (con == 0)
+				continue;
+			if (n == presentSlots.length)
+				presentSlots = Arrays.copyOf(presentSlots, Math.max(4, n * 2));
+			int pos = -Arrays.binarySearch(presentSlots, 0, n, s) - 1;
+			System.arraycopy(presentSlots, pos, presentSlots, pos + 1, n - pos);
+			presentSlots[pos] = s;
+			n++;
+		}
+		numPresentSlots = n;
+		numAddedSlots = 0;
+	}
+	
 	/**
-	 * Update substance manager with substance concentration in this cell.
+	 * Update substance manager with substance concentration in this cell, and the
+	 * presence boxes of the substances (see {@link SubstanceField#getPresence(int)}).
 	 */
 	public void updateSubstanceManager() {
-		if (localSubCon.size() > 0)
-			substanceMan.updateConcentrations(localSubCon);
+		for (int k = 0; k < numPresentSlots; k++) {
+			int s = presentSlots[k];
+			float con = subField.getCurrent(s)[cellIndex];
+			if (con != 0) {
+				substanceMan.updateConcentration(subField.getSubstance(s), con);
+				subField.getPresence(s).include(x, y);
+			}
+		}
 	}
 
 	/**
-	 * Update agent manager regarding the agents currently in this cell.
+	 * Update agent manager and the active region regarding the agents currently in this cell.
 	 */
 	public void updateAgentManager() {
-		if (!agentsInCell.isEmpty()) {
-			agentMan.updateAgents(agentsInCell.iterator());
+		if (numAgents > 0) {
+			agentMan.updateAgents(agentIterator());
+			space.getActiveRegion().includeAgents(x, y);
 		}
 	}
 	
@@ -201,176 +319,210 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 	 * <p> 1 - Agent actions;
 	 * <p> 2 - Substance merging;
 	 * <p> 3 - Set local substance concentration considering 1 and 2; 
+	 * <p>
+	 * Agents moving to other cells are left in the current thread's outbox, and are
+	 * delivered to their destination cells in step two (see {@link ActiveRegion#stepTwo(int, int)}).
 	 * @throws CellStepException When an error occurs during a cell simulation step.
 	 */
 	public void stepOne() throws CellStepException {
-		/* Clear views. */
-		agentViews.clear();
-		agentViewsLastUpdate.clear();
 		/* Perform agent actions. */
 		stepAgents();
 		/* Perform substance merging. */
 		stepSubstanceMerging();
-		/* Update substance concentration references. */
-		localSubCon = localSubConFuture;
+		/* Update current substance concentrations. */
+		commitSubstances();
 		/* Update substance manager with substances from this cell. */
 		updateSubstanceManager();
 	}
 
 	/**
 	 * Perform step two:
-	 * <p> 1 - Substance diffusion and evaporation;
+	 * <p> 1 - Remove dead agents and agents which moved to adjacent cells;
 	 * <p> 2 - Add newly created agents;
 	 * <p> 3 - Add agents traveling from adjacent cells; 
+	 * <p>
+	 * Substance diffusion and evaporation is performed for the whole simulation 
+	 * space by a {@link DiffusionKernel}, before step two.
 	 */
 	public void stepTwo() {
-		/* Perform substance diffusion and evaporation. */
-		stepSubstanceDiffEvap();
-		/* Add newly born agents. */
-		agentsInCell.addAll(agentsToBorn);
-		agentsToBorn.clear();
-		/* Add agents to move in. */
-		agentsInCell.addAll(agentsToMoveIn);
-		agentsToMoveIn.clear();
+		/* Note substances diffused from neighbor cells. */
+		addDiffusedSlots();
+		/* Apply agent deaths, births and moves. */
+		updateAgents();
 		/* Update agent manager with new agent numbers. */
 		updateAgentManager();								
 	}
 	
-	/**
-	 * Perform substance diffusion / evaporation.
-	 */
-	protected void stepSubstanceDiffEvap() {
-		/* Local substance concentration */
-		float localConNextSub;
-		/* Get an iterator that cycles through all neighbors in order to determine which substances
-		 * are present in the neighborhood. 
-		 * Previously we had an iterator which cycled through all the substances present
-		 * in the simulation, which was too slow: 
-		 * Iterator<Substance> gSubIterator = substanceMan.substanceIterator(); */
-		Iterator<Cell2D> cellIter = neighborIterator();
-		/* Create the data structure where to hold the substances. It is initialized with 
-		 * the substances in the current cell. */
-		HashSet<Substance> localNeighSubs = new HashSet<Substance>(localSubCon.keySet());
-		/* Determine which substances are in the neighborhood. */
-		while (cellIter.hasNext()) {
-			Cell2D cell = (Cell2D) cellIter.next();
-			localNeighSubs.addAll(cell.localSubCon.keySet());
-		}
-		/* Create future substance concentration. */
-		localSubConFuture = new HashMap<Substance, Float>();
-		/* Do substance diffusion. */
-		for (Substance nextSub : localNeighSubs) {				
-			/* Initialize current substance concentration to zero. */
-			float neighborsTotalSubCon = 0;
-			/* Obtain substance concentration in current cell. */
-			if (localSubCon.containsKey(nextSub)) {
-				localConNextSub = localSubCon.get(nextSub);
-			} else {
-				localConNextSub = 0;
-			}				
-			/* Obtain the neighborhood concentration of current substance. */
-			Vector<Cell2D> neighbors = space.getNeighbors(x, y);
-			for (Cell2D neighbor : neighbors) {
-				float subConNeighbor;
-				if (neighbor.containsSubstance(nextSub)) {
-					subConNeighbor = neighbor.getSubstanceCon(nextSub);
-				} else {
-					subConNeighbor = 0;
-				}
-				neighborsTotalSubCon += subConNeighbor;
-			}				
-			/* Avoid wasting time if substance is not present. */
-			if ((neighborsTotalSubCon != 0) || (localConNextSub != 0)) {
-				/* Calculate adimensional coefficients. */
-				float lKdif = nextSub.getKDif() * model.getDtDivDx2(),
-					lKdeg = nextSub.getKDeg() * model.getDt();
-				
-				float currCon;
-				if (localSubCon.containsKey(nextSub)) currCon = localSubCon.get(nextSub);
-				else currCon = 0.0f;
-				float difCon = (1 + lKdeg) * (currCon + lKdif * (neighborsTotalSubCon/neighbors.size() - currCon));
-				
-				/* Update local concentration of current substance. */
-				if (difCon > model.getMinConThreshold())
-					localSubConFuture.put(nextSub, difCon);
-			}
-		}			
-	}
-	
 	/**
 	 * Prompt agents to act.
 	 * @throws CellStepException When an error occurs during the cell processing step.
 	 */
 	private void stepAgents() throws CellStepException {
-		/* Cycle through all the agents in the cell. */
-		Agent[] agents = new Agent[agentsInCell.size()];
-		agents = agentsInCell.toArray(agents);
-		for (Agent ag : agents) {
-			/* Avoid that the agent plays with himself! */
-			agentsInCell.remove(ag);
-			try {
+		/* Cycle through all the agents in the cell. The agent array is not changed
+		 * until step two, so agents killed or moved by other agents still play. */
+		Agent[] agents = agentsInCell;
+		int n = numAgents;
+		try {
+			for (int i = 0; i < n; i++) {
+				Agent ag = agents[i];
+				/* Avoid that the agent plays with himself! */
+				playingAgent = ag;
 				ag.play(this);
-			} catch (ConditionException ce) {
-				throw new CellStepException(ce);
-			} catch (ActionException ae) {
-				throw new CellStepException(ae);
-			} catch (AgentException ae) {
-				throw new CellStepException(ae);
-			}			
-			agentsInCell.add(ag);
+			}
+		} catch (ConditionException ce) {
+			throw new CellStepException(ce);
+		} catch (ActionException ae) {
+			throw new CellStepException(ae);
+		} catch (AgentException ae) {
+			throw new CellStepException(ae);
+		} finally {
+			playingAgent = null;
+		}
+		/* Send agents to destination cells, except dead ones. */
+		agentsToDie.sortUnique();
+		agentsToMoveOut.sortUnique();
+		MoveOutbox outbox = space.getActiveRegion().getMoveOutbox();
+		int d = 0;
+		for (int i = 0; i < agentsToMoveOut.size; i++) {
+			Agent ag = agentsToMoveOut.agents[i];
+			d = agentsToDie.seek(ag, d);
+			if ((d < agentsToDie.size) && (agentsToDie.agents[d] == ag))
+				continue;
+			outbox.add(ag, agentsToMoveOut.cells[i]);
+		}
+	}
+	
+	/**
+	 * Removes dead agents and agents which moved out from the agent array, and merges 
+	 * newly born agents and agents which moved in, keeping the array sorted.
+	 */
+	private synchronized void updateAgents() {
+		boolean changed = false;
+		/* Compact agent array, skipping dead agents and agents which moved out. */
+		if ((agentsToDie.size > 0) || (agentsToMoveOut.size > 0)) {
+			int d = 0, o = 0, n = 0;
+			for (int i = 0; i < numAgents; i++) {
+				Agent ag = agentsInCell[i];
+				d = agentsToDie.seek(ag, d);
+				o = agentsToMoveOut.seek(ag, o);
+				if (((d < agentsToDie.size) && (agentsToDie.agents[d] == ag))
+						|| ((o < agentsToMoveOut.size) && (agentsToMoveOut.agents[o] == ag)))
+					continue;
+				agentsInCell[n++] = ag;
+			}
+			Arrays.fill(agentsInCell, n, numAgents, null);
+			numAgents = n;
+			agentsToDie.clear();
+			agentsToMoveOut.clear();
+			changed = true;
 		}
-		/* Remove dead agents */
-		for (Agent ag : agentsToDie) {
-			agentsInCell.remove(ag);
-			agentsToMoveOut.remove(ag);
+		/* Merge newly born agents and agents which moved in. */
+		agentsToBorn.addAll(agentsToMoveIn);
+		agentsToMoveIn.clear();
+		if (agentsToBorn.size > 0) {
+			agentsToBorn.sortUnique();
+			Agent[] toAdd = agentsToBorn.agents;
+			int k = agentsToBorn.size;
+			if (spareAgents.length < numAgents + k)
+				spareAgents = new Agent[Math.max(agentsInCell.length * 2, numAgents + k)];
+			int i = 0, j = 0, n = 0;
+			while ((i < numAgents) || (j < k)) {
+				if ((j >= k) || ((i < numAgents) && (agentsInCell[i].compareTo(toAdd[j]) < 0))) {
+					spareAgents[n++] = agentsInCell[i++];
+				} else if ((i >= numAgents) || (agentsInCell[i] != toAdd[j])) {
+					spareAgents[n++] = toAdd[j++];
+				} else {
+					/* Agent already in cell. */
+					spareAgents[n++] = agentsInCell[i++];
+					j++;
+				}
+			}
+			Arrays.fill(agentsInCell, 0, numAgents, null);
+			Agent[] merged = spareAgents;
+			spareAgents = agentsInCell;
+			agentsInCell = merged;
+			numAgents = n;
+			agentsToBorn.clear();
+			changed = true;
+		}
+		/* Update agents by prototype, in a single pass over the sorted agent array. */
+		if (changed) {
+			for (AgentBatch protoAgents : agentsByPrototype)
+				protoAgents.clear();
+			for (int i = 0; i < numAgents; i++)
+				getPrototypeAgents(agentsInCell[i]).add(agentsInCell[i]);
 		}
-		/* Remove agents to move out, and move them to destination cells */
-		for (Agent ag : agentsToMoveOut.keySet()) {
-			agentsInCell.remove(ag);
-			Cell2D cellToTravel = agentsToMoveOut.get(ag);
-			cellToTravel.setAgentToMoveIn(ag);
+	}
+	
+	/* Returns the agents in this cell with the same prototype of the given agent. */
+	private AgentBatch getPrototypeAgents(Agent ag) {
+		int p = ag.getPrototype().getIndex();
+		if (p >= agentsByPrototype.length) {
+			int oldLength = agentsByPrototype.length;
+			agentsByPrototype = Arrays.copyOf(agentsByPrototype, p + 1);
+			for (int i = oldLength; i <= p; i++)
+				agentsByPrototype[i] = new AgentBatch();
 		}
-		agentsToMoveOut.clear();
-		agentsToDie.clear();
+		return agentsByPrototype[p];
 	}
 	
 	/**
 	 * Perform substance merging.
 	 */
 	private void stepSubstanceMerging() {
-		Vector<Substance> subs = new Vector<Substance>(localSubConFuture.keySet());
-		while (!subs.isEmpty()) {
-			/* Do this until there are no more substances to merge. */
-			if (subs.get(0).isMergeable()) { 
-				/* Only for substances that are mergeable. */
-				for (int i = 1; i < subs.size(); i++) { 
-					/* Check mergeability with other substances. */
-					if(subs.get(i).isMergeable()) {
-						/* If other substance is also mergeable, look for a merging rule. */
-						Iterator<SubMergeRule> smrIter = substanceMan.mergeRuleIterator();
-						while (smrIter.hasNext()) {
-							SubMergeRule smr = smrIter.next();
-							if (smr.isPair(subs.get(0), subs.get(i))) {
-								/* There is a merging rule, let's apply it! */
-								/* First determine concentration of substance to merge. */
-								float conSub_0 = localSubConFuture.get(subs.get(0));
-								float conSub_i = localSubConFuture.get(subs.get(i));
-								Float conNewSub = localSubConFuture.get(smr.newSub);
-								if (conNewSub == null) conNewSub = 0.0f; 
-								float conToMerge = Math.min(conSub_0, conSub_i);
-								conToMerge *= smr.affin;
-								/* Very simple merging takes half of each substance to 
-								 * create a new one. */
-								localSubConFuture.put(subs.get(0), conSub_0 - conToMerge / 2);
-								localSubConFuture.put(subs.get(i), conSub_i - conToMerge / 2);
-								localSubConFuture.put(smr.newSub, conNewSub + conToMerge);
-							}
-						}
-					}
+		SubMergeRuleIndex mergeRules = substanceMan.getMergeRuleIndex();
+		/* Slots of the mergeable substances present in this cell, in increasing order. */
+		int[][] scratch = mergeScratch.get();
+		int maxSubs = numPresentSlots + numAddedSlots;
+		if (scratch[0].length < maxSubs) {
+			for (int a = 0; a < scratch.length; a++)
+				scratch[a] = new int[Math.max(maxSubs, scratch[a].length * 2)];
+		}
+		int[] slots = scratch[0];
+		int numSubs = 0;
+		for (int k = 0; k < maxSubs; k++) {
+			int s = (k < numPresentSlots) ? presentSlots[k] : addedSlots[k - numPresentSlots];
+			if ((subField.getFuture(s)[cellIndex] != 0) && subField.getSubstance(s).isMergeable())
+				slots[numSubs++] = s;
+		}
+		Arrays.sort(slots, 0, numSubs);
+		/* Registry identifiers and family indexes of these substances. */
+		int[] ids = scratch[1];
+		int[] families = scratch[2];
+		for (int k = 0; k < numSubs; k++) {
+			Substance sub = subField.getSubstance(slots[k]);
+			ids[k] = subRegistry.getId(sub);
+			families[k] = mergeRules.getFamilyIndex(sub.getFamily());
+		}
+		/* Check each substance against the ones after it. */
+		for (int j = 0; j < numSubs; j++) {
+			if (families[j] < 0)
+				continue;
+			for (int i = j + 1; i < numSubs; i++) { 
+				/* Only look for a merging rule if there are rules for both families. */
+				if (!mergeRules.canMerge(families[j], families[i]))
+					continue;
+				SubMergeRule smr = mergeRules.get(ids[j], ids[i]);
+				if (smr != null) {
+					/* There is a merging rule, let's apply it! */
+					/* First determine concentration of substance to merge. */
+					float[] future_j = subField.getFuture(slots[j]);
+					float[] future_i = subField.getFuture(slots[i]);
+					int newSlot = slotFor(smr.newSub);
+					addSlot(newSlot);
+					float[] futureNewSub = subField.getFuture(newSlot);
+					float conSub_j = future_j[cellIndex];
+					float conSub_i = future_i[cellIndex];
+					float conNewSub = futureNewSub[cellIndex];
+					float conToMerge = Math.min(conSub_j, conSub_i);
+					conToMerge *= smr.affin;
+					/* Very simple merging takes half of each substance to 
+					 * create a new one. */
+					future_j[cellIndex] = conSub_j - conToMerge / 2;
+					future_i[cellIndex] = conSub_i - conToMerge / 2;
+					futureNewSub[cellIndex] = conNewSub + conToMerge;
 				}
 			}
-			/* Remove reference substance from temporary vector. */
-			subs.remove(0);
 		}			
 	}
 	
@@ -381,30 +533,126 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 	 * @param ag An agent to add to this cell.
 	 */
 	public void addAgent(Agent ag) {
-		agentsInCell.add(ag);
+		synchronized (this) {
+			int pos = Arrays.binarySearch(agentsInCell, 0, numAgents, ag);
+			if (pos < 0) {
+				pos = -pos - 1;
+				if (numAgents == agentsInCell.length)
+					agentsInCell = Arrays.copyOf(agentsInCell, Math.max(4, numAgents * 2));
+				System.arraycopy(agentsInCell, pos, agentsInCell, pos + 1, numAgents - pos);
+				agentsInCell[pos] = ag;
+				numAgents++;
+				AgentBatch protoAgents = getPrototypeAgents(ag);
+				protoAgents.insert(-Arrays.binarySearch(protoAgents.agents, 0, protoAgents.size, ag) - 1, ag);
+			}
+		}
+		space.getActiveRegion().includeAgents(x, y);
 	}
 	
 	/**
 	 * @see org.laseeb.LAIS.substance.SubstanceContainer#modifySubstanceCon(Substance, Float)
 	 */
 	public Iterator<Substance> substanceIterator() {
-		return localSubCon.keySet().iterator();
+		Vector<Substance> subs = new Vector<Substance>();
+		for (int k = 0; k < numPresentSlots; k++) {
+			int s = presentSlots[k];
+			if (subField.getCurrent(s)[cellIndex] != 0)
+				subs.add(subField.getSubstance(s));
+		}
+		return subs.iterator();
+	}
+	
+	/**
+	 * Returns true if any substance is present in this cell, false otherwise.
+	 * 
+	 * @return True if any substance is present in this cell, false otherwise.
+	 */
+	public boolean hasSubstances() {
+		for (int k = 0; k < numPresentSlots; k++) {
+			if (subField.getCurrent(presentSlots[k])[cellIndex] != 0)
+				return true;
+		}
+		return false;
 	}
 	
 	/**
-	 * Returns an iterator which cycles through all agents in this cell.
+	 * Returns an iterator which cycles through all agents in this cell, in identifier order.
+	 * While agents are playing, the playing agent is not included.
 	 * @return An iterator which cycles through all agents in this cell.
 	 */
 	public Iterator<Agent> agentIterator() {
-		return agentsInCell.iterator();
+		return new Iterator<Agent>() {
+			/* Iterator private info. */
+			private Agent[] agents = agentsInCell;
+			private int size = Math.min(numAgents, agents.length);
+			private Agent hidden = playingAgent;
+			private int next = skip(0);
+			/* Returns the first position, starting at the given one, with a visible agent. */
+			private int skip(int pos) {
+				while ((pos < size) && ((agents[pos] == hidden) || (agents[pos] == null)))
+					pos++;
+				return pos;
+			}
+			/* Returns true if there are more agents to return. */
+			public boolean hasNext() {
+				return next < size;
+			}
+			/* Returns next agent. */
+			public Agent next() {
+				if (next >= size)
+					throw new NoSuchElementException();
+				Agent ag = agents[next];
+				next = skip(next + 1);
+				return ag;
+			}
+			/* Agents are only removed in batch. */
+			public void remove() {
+				/* Throw required exception in order to conform with Iterator interface. */
+				throw new UnsupportedOperationException(
+						"The remove() operation is not supported by the agent iterator!");
+			}
+		};
 	}
 	
 	/**
-	 * Obtain this cell's neighbors.
+	 * Obtain this cell's neighbors. A new vector is created each time this method
+	 * is invoked; {@link #getNeighborCells()} should be preferred.
 	 * @return Vector containing this cell's neighbors.
 	 */
 	public Vector<Cell2D> getNeighbors() {
-		return space.getNeighbors(x, y);
+		return new Vector<Cell2D>(Arrays.asList(getNeighborCells()));
+	}
+	
+	/**
+	 * Obtain this cell's neighbors, from the neighbor tables precomputed by the 
+	 * simulation space. The returned array is shared, and must not be modified.
+	 * @return Array containing this cell's neighbors.
+	 */
+	public Cell2D[] getNeighborCells() {
+		return space.getNeighborCells(cellIndex);
+	}
+	
+	/**
+	 * Returns the number of neighbors of this cell.
+	 * @return The number of neighbors of this cell.
+	 */
+	public int getNumNeighbors() {
+		return space.getNumNeighbors(cellIndex);
+	}
+	
+	/**
+	 * Returns the position of the given cell among this cell's neighbors (see 
+	 * {@link #getNeighborCells()}).
+	 * @param cell A cell.
+	 * @return The position of the given cell among this cell's neighbors, or -1 if the 
+	 * given cell is not a neighbor of this cell.
+	 */
+	public int getNeighborIndex(Cell2D cell) {
+		Cell2D[] neighbors = getNeighborCells();
+		for (int n = 0; n < neighbors.length; n++)
+			if (neighbors[n] == cell)
+				return n;
+		return -1;
 	}
 	
 	/**
@@ -434,16 +682,18 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 	 * @param travelToCell The cell where the agent will move to.
 	 */
 	public void setAgentToMoveOut(Agent ag, Cell2D travelToCell) {
-		agentsToMoveOut.put(ag, travelToCell);
+		agentsToMoveOut.add(ag, travelToCell);
 	}
 
 	/**
 	 * Instruct that the specified agent will move in to this cell in the end of the current iteration.
-	 * Needs to be synchronized because this method can be called simultaneously by neighbor cells.
+	 * Agents moving from other cells during step one are delivered by the {@link ActiveRegion} 
+	 * in step two, by the thread which processes this cell, so this method is never called 
+	 * concurrently.
 	 * 
 	 * @param ag Agent that will move in to this cell.
 	 */
-	public synchronized void setAgentToMoveIn(Agent ag) {
+	public void setAgentToMoveIn(Agent ag) {
 		agentsToMoveIn.add(ag);
 	}
 
@@ -453,7 +703,7 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 	public void draw(SimGraphics g) {
 
 		/* Fill cell with color from substances */
-        if (localSubCon.size() > 0) {
+        if (hasSubstances()) {
 //			Graphics2D g2d = g.getGraphics();
 //	        Rectangle r = g2d.getClipBounds();
 //	        int x = (int) r.getMinX();
@@ -468,20 +718,23 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
         }
 
         /* Insert agent presence */
-		if (!agentsInCell.isEmpty()) {
+		Agent firstAgent = null;
+		synchronized (this) {
+			/* We have to synchronize because calls to draw can be concurrent to
+			 * changes in agentsInCell. */
+			if (numAgents > 0)
+				firstAgent = agentsInCell[0];
+		}
+		if (firstAgent != null) {
 	        //g.setDrawingCoordinates(x - DisplayConstants.CELL_WIDTH / 6,
               //      				y - DisplayConstants.CELL_HEIGHT / 6, 
                 //    				0);
 	        g.setDrawingParameters(DisplayConstants.CELL_WIDTH - 3,
                     DisplayConstants.CELL_HEIGHT - 3,
                     DisplayConstants.CELL_DEPTH - 3);
-	        synchronized (agentsInCell) {
-	        	/* We have to synchronize because calls to draw can be concurrent to
-	        	 * changes in agentsInCell. */
-	        	g.drawFastCircle(agentMan.getColor(agentsInCell.iterator().next().getPrototypeName()));
-				/* It would be nicer for the drawing to take into account several agents, but 
-				 * we would lose simulation efficiency. */
-	        }
+	        g.drawFastCircle(agentMan.getColor(firstAgent.getPrototypeName()));
+			/* It would be nicer for the drawing to take into account several agents, but 
+			 * we would lose simulation efficiency. */
 		} 
 		
 		/*else {
@@ -518,7 +771,7 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 	 * @see org.laseeb.LAIS.substance.SubstanceContainer#containsSubstance(Substance)
 	 */
 	public boolean containsSubstance(Substance aisSub) {
-		return localSubCon.containsKey(aisSub);
+		return getSubstanceCon(aisSub) != 0;
 	}
 	
 	/**
@@ -528,12 +781,29 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 	 * @see org.laseeb.LAIS.substance.SubstanceContainer#getSubstanceCon(Substance)
 	 */
 	public float getSubstanceCon(Substance sub) {
-		if (containsSubstance(sub)) {
-			return localSubCon.get(sub);
+		int slot = subField.getSlot(subRegistry.getId(sub));
+		if (slot >= 0) {
+			return subField.getCurrent(slot)[cellIndex];
 		} else {
 			return 0.0f;
 		}
 	}
+	
+	/**
+	 * Returns the position of the substance with the given registry identifier
+	 * among the substances present in this cell. Substances are returned by 
+	 * {@link #substanceIterator()} in increasing order of position.
+	 * 
+	 * @param id Identifier of substance in the substance registry.
+	 * @return The position of the given substance, or -1 if the substance is not 
+	 * present in this cell.
+	 */
+	public int getSubstancePosition(int id) {
+		int slot = subField.getSlot(id);
+		if ((slot >= 0) && (subField.getCurrent(slot)[cellIndex] != 0))
+			return slot;
+		return -1;
+	}
 
 	/**
 	 * Returns the minimum substance concentration threshold.
@@ -568,7 +838,14 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 	 * @return A copy of this cell's substance concentration map
 	 */
 	public Map<Substance, Float> getSubConMap() {
-		return new HashMap<Substance, Float>(this.localSubCon);
+		Map<Substance, Float> subConMap = new HashMap<Substance, Float>();
+		for (int k = 0; k < numPresentSlots; k++) {
+			int s = presentSlots[k];
+			float con = subField.getCurrent(s)[cellIndex];
+			if (con != 0)
+				subConMap.put(subField.getSubstance(s), con);
+		}
+		return subConMap;
 	}
 	
 	/**
@@ -577,7 +854,13 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 	 * @return A copy of this cell's agent set.
 	 */
 	public Set<Agent> getAgents() {
-		return new HashSet<Agent>(this.agentsInCell);
+		List<Agent> agents = new ArrayList<Agent>(numAgents);
+		synchronized (this) {
+			Iterator<Agent> iter = agentIterator();
+			while (iter.hasNext())
+				agents.add(iter.next());
+		}
+		return new HashSet<Agent>(agents);
 	}
 	
 
@@ -592,11 +875,15 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 		HashMap<Color, Double> colorImpact = new HashMap<Color, Double>();
 		
 		/* Determine which colors should be present, and the visual impact of each one */
-		for (Substance sub : localSubCon.keySet()) {
+		for (int k = 0; k < numPresentSlots; k++) {
+			int s = presentSlots[k];
+			float con = subField.getCurrent(s)[cellIndex];
+			if (con == 0) continue;
+			Substance sub = subField.getSubstance(s);
 			/* Determine relative substance concentration */
 			double maxImpactCon = sub.getFamily().getSubMaxColorImpactCon();
 			/* Normalize concentration */
-			double relCon = localSubCon.get(sub) / maxImpactCon;
+			double relCon = con / maxImpactCon;
 			/* And add it to the respective color impact */
 			Color color = sub.getColor();
 			Double impact = colorImpact.get(color);
@@ -643,7 +930,7 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 	 */
 	public Cell2D getOppositeCell(Cell2D cell) throws CellStepException {
 		/* Get number of neighbors. */
-		int numNeighbors = space.getNeighbors(x, y).size();
+		int numNeighbors = getNumNeighbors();
 		/* Get distance between given cell and opposite. */
 		int distance = numNeighbors / 2;
 		/* If number of neighbors is not pair, then there is no exact opposite neighbor. 
@@ -693,11 +980,11 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 	 */
 	public Cell2D getNeighbor(Cell2D cell, int proximity) throws CellStepException {
 		/* Get neighbors. */
-		Vector<Cell2D> neighbors = space.getNeighbors(x, y);
+		Cell2D[] neighbors = getNeighborCells();
 		/* Get number of neighbors. */
-		int numNeighbors = neighbors.size();
+		int numNeighbors = neighbors.length;
 		/* Get given cell location. */
-		int indexGivenCell = neighbors.indexOf(cell);
+		int indexGivenCell = getNeighborIndex(cell);
 		/* If given cell is not a valid neighbor, return null. */
 		if (indexGivenCell == -1)
 			throw new CellStepException("Given cell (" + cell.x + ", " + cell.y 
@@ -705,7 +992,7 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 		/* Determine index of required neighbor cell. */
 		int indexRequestedCell = normalizeNeighborIndex(indexGivenCell + proximity, numNeighbors);
 		/* Return required cell. */
-		return neighbors.get(indexRequestedCell);
+		return neighbors[indexRequestedCell];
 	}
 	
 	
@@ -723,12 +1010,12 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 	 */
 	public int getDistanceBetweenNeighbors(Cell2D cell1, Cell2D cell2) throws CellStepException {
 		int direction;
-		Vector<Cell2D> neighbors = space.getNeighbors(x, y);
-		int indexCell1 = neighbors.indexOf(cell1);
+		int numNeighbors = getNumNeighbors();
+		int indexCell1 = getNeighborIndex(cell1);
 		if (indexCell1 == -1)
 			throw new CellStepException("Given cell (" + cell1.x + ", " + cell1.y 
 					+ ") is not a neighbor of current cell (" + x + ", "+ y + ").");
-		int indexCell2 = neighbors.indexOf(cell2);
+		int indexCell2 = getNeighborIndex(cell2);
 		if (indexCell2 == -1)
 			throw new CellStepException("Given cell (" + cell2.x + ", " + cell2.y 
 					+ ") is not a neighbor of current cell (" + x + ", "+ y + ").");
@@ -736,7 +1023,7 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 		int distance = indexCell1 - indexCell2;
 		direction = (int) Math.signum(distance);
 		distance = Math.abs(distance);
-		if (distance > neighbors.size()/2) distance = Math.abs(distance - neighbors.size()); 
+		if (distance > numNeighbors/2) distance = Math.abs(distance - numNeighbors); 
 		return direction * distance;
 	}			
 	
@@ -747,14 +1034,17 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 	public Iterator<Cell2D> neighborIterator() {
 		return new Iterator<Cell2D>() {
 			/* Iterator private info. */
-			private Iterator<?> neighIterator = getNeighbors().iterator();
+			private Cell2D[] neighbors = getNeighborCells();
+			private int next = 0;
 			/* Returns true if there are more neighbors to return. */
 			public boolean hasNext() {
-				return neighIterator.hasNext();
+				return next < neighbors.length;
 			}
 			/* Returns next neighbor. */
 			public Cell2D next() {
-				return (Cell2D) neighIterator.next();
+				if (next >= neighbors.length)
+					throw new NoSuchElementException();
+				return neighbors[next++];
 			}
 			/* We never remover anything... */
 			public void remove() {
@@ -771,7 +1061,7 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 	 * @return The random number generator associated with this cell.
 	 */
 	public IRng getRng() {
-		return RngManager.getInstance().getRng(this);
+		return model.getRngManager().getRng(this);
 	}
 
 	/**
@@ -800,10 +1090,8 @@ public class Cell2D implements SubstanceContainer, Drawable, CustomProbeable, Rn
 	 * @see org.laseeb.LAIS.utils.random.RngClient#getUniqueID()
 	 */
 	@Override
-	public int getUniqueID() {
-		String str = this.model.getController().getCurrentTime() + "-" + this.x + "-" + this.y + "-" + this.agentsProduced;
-		agentsProduced++;
-		return str.hashCode();
+	public long getUniqueID() {
+		return idGenerator.nextId();
 	}
 
 
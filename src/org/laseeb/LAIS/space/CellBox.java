@@ -0,0 +1,129 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.space;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Bounding box of a set of cell locations, to which cells can be added 
+ * concurrently by several simulation threads. Adding a cell which is already
+ * within the box only reads the box limits.
+ * 
+ * @author Nuno Fachada
+ */
+public class CellBox {
+	
+	/* Positions of the box limits. */
+	private static final int MIN_X = 0, MAX_X = 1, MIN_Y = 2, MAX_Y = 3;
+	
+	/* Box limits (inclusive); an empty box has minimums larger than maximums. */
+	private final AtomicIntegerArray limits = new AtomicIntegerArray(4);
+	
+	/**
+	 * Creates a new empty box.
+	 */
+	public CellBox() {
+		clear();
+	}
+	
+	/**
+	 * Enlarges the box, if necessary, so that it contains the given cell location.
+	 * 
+	 * @param x Horizontal location of the cell.
+	 * @param y Vertical location of the cell.
+	 */
+	public void include(int x, int y) {
+		lower(MIN_X, x);
+		raise(MAX_X, x);
+		lower(MIN_Y, y);
+		raise(MAX_Y, y);
+	}
+	
+	/**
+	 * Empties the box. Must not be invoked while cells are being added.
+	 */
+	public void clear() {
+		limits.set(MIN_X, Integer.MAX_VALUE);
+		limits.set(MAX_X, Integer.MIN_VALUE);
+		limits.set(MIN_Y, Integer.MAX_VALUE);
+		limits.set(MAX_Y, Integer.MIN_VALUE);
+	}
+	
+	/**
+	 * Returns true if no cells were added to the box since it was last cleared.
+	 * 
+	 * @return True if the box is empty, false otherwise.
+	 */
+	public boolean isEmpty() {
+		return limits.get(MIN_X) > limits.get(MAX_X);
+	}
+	
+	/**
+	 * Returns the smallest horizontal location in the box.
+	 * 
+	 * @return The smallest horizontal location in the box.
+	 */
+	public int getMinX() {
+		return limits.get(MIN_X);
+	}
+
+	/**
+	 * Returns the largest horizontal location in the box.
+	 * 
+	 * @return The largest horizontal location in the box.
+	 */
+	public int getMaxX() {
+		return limits.get(MAX_X);
+	}
+
+	/**
+	 * Returns the smallest vertical location in the box.
+	 * 
+	 * @return The smallest vertical location in the box.
+	 */
+	public int getMinY() {
+		return limits.get(MIN_Y);
+	}
+
+	/**
+	 * Returns the largest vertical location in the box.
+	 * 
+	 * @return The largest vertical location in the box.
+	 */
+	public int getMaxY() {
+		return limits.get(MAX_Y);
+	}
+	
+	/* Sets the given limit to the given value, if the value is smaller. */
+	private void lower(int limit, int value) {
+		int current;
+		while (value < (current = limits.get(limit)))
+			if (limits.compareAndSet(limit, current, value))
+				return;
+	}
+
+	/* Sets the given limit to the given value, if the value is larger. */
+	private void raise(int limit, int value) {
+		int current;
+		while (value > (current = limits.get(limit)))
+			if (limits.compareAndSet(limit, current, value))
+				return;
+	}
+
+}
@@ -0,0 +1,156 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.space;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.laseeb.LAIS.LAISModel;
+import org.laseeb.LAIS.substance.Substance;
+
+/**
+ * Grid-wide substance diffusion and degradation (evaporation) kernel, which 
+ * works directly over the flat concentration arrays of a {@link SubstanceField}.
+ * <p>
+ * The neighborhood of each cell is obtained once from the space's neighbor 
+ * tables, when the kernel is created, and kept as a list of offsets between the indexes of the neighbor cells and the index 
+ * of the cell itself. Consecutive cells with the same offsets (e.g. the inner cells 
+ * of a row in Von Neumann and Moore spaces) form a run, which is processed with 
+ * simple unit-stride loops that the JIT compiler is able to vectorize. Cells at the 
+ * borders of the space, as well as most hexagonal cells, end up in runs of their own.
+ * <p>
+ * Neighbor concentrations are added in the same order as given by 
+ * {@link Abstract2DSpaceAdapter#getNeighborIndexes(int)} and the diffusion formula 
+ * is evaluated exactly as before, so results are bit-identical to diffusing each 
+ * cell separately.
+ * 
+ * @author Nuno Fachada
+ */
+public class DiffusionKernel {
+	
+	/* The overlying AIS model, which provides the diffusion parameters. */
+	private final LAISModel model;
+	/* Substance concentrations to diffuse. */
+	private final SubstanceField field;
+	/* Index of the first cell of each run, plus the number of cells at the end. */
+	private final int[] runStart;
+	/* Neighbor offsets of the cells in each run. */
+	private final int[][] runOffsets;
+	/* Run of each cell. */
+	private final int[] runOf;
+	
+	/**
+	 * Creates a diffusion kernel for the given space. The neighbor tables of the 
+	 * space must already be built (see {@link Abstract2DSpaceAdapter#buildNeighborTables()}).
+	 * 
+	 * @param space The simulation space.
+	 * @param model The overlying AIS model.
+	 */
+	public DiffusionKernel(Abstract2DSpaceAdapter space, LAISModel model) {
+		this.model = model;
+		this.field = space.getSubstanceField();
+		int sizeX = space.getSizeX();
+		int sizeY = space.getSizeY();
+		int numCells = sizeX * sizeY;
+		ArrayList<Integer> starts = new ArrayList<Integer>();
+		ArrayList<int[]> offsets = new ArrayList<int[]>();
+		this.runOf = new int[numCells];
+		int[] previous = null;
+		for (int y = 0; y < sizeY; y++) {
+			for (int x = 0; x < sizeX; x++) {
+				int cell = space.getCellIndex(x, y);
+				int[] neighbors = space.getNeighborIndexes(cell);
+				int[] current = new int[neighbors.length];
+				for (int k = 0; k < current.length; k++)
+					current[k] = neighbors[k] - cell;
+				if (!Arrays.equals(current, previous)) {
+					starts.add(cell);
+					offsets.add(current);
+					previous = current;
+				}
+				runOf[cell] = offsets.size() - 1;
+			}
+		}
+		this.runStart = new int[starts.size() + 1];
+		for (int r = 0; r < starts.size(); r++)
+			runStart[r] = starts.get(r);
+		runStart[starts.size()] = numCells;
+		this.runOffsets = offsets.toArray(new int[offsets.size()][]);
+	}
+	
+	/**
+	 * Returns the number of runs of consecutive cells with the same neighborhood.
+	 * 
+	 * @return The number of runs of consecutive cells with the same neighborhood.
+	 */
+	public int getNumRuns() {
+		return runOffsets.length;
+	}
+
+	/**
+	 * Diffuses and degrades the substance in the given slot in the given range of 
+	 * cells, reading current concentrations and writing future concentrations. Future 
+	 * concentrations in the range are completely overwritten, with concentrations not 
+	 * above the minimum concentration threshold set to zero. Different ranges can be 
+	 * diffused concurrently.
+	 * 
+	 * @param slot The substance slot.
+	 * @param start Index of the first cell in the range.
+	 * @param end Index after the last cell in the range.
+	 */
+	public void diffuse(int slot, int start, int end) {
+		if (start >= end)
+			return;
+		Substance sub = field.getSubstance(slot);
+		/* Calculate adimensional coefficients. */
+		float lKdif = sub.getKDif() * model.getDtDivDx2();
+		float lKdeg = sub.getKDeg() * model.getDt();
+		float minCon = model.getMinConThreshold();
+		float[] current = field.getCurrent(slot);
+		float[] future = field.getFuture(slot);
+		int lo = start;
+		for (int r = runOf[start]; lo < end; r++) {
+			int hi = Math.min(runStart[r + 1], end);
+			stencil(current, future, lo, hi, runOffsets[r], lKdif, lKdeg, minCon);
+			lo = hi;
+		}
+	}
+	
+	/* Diffuses and degrades a substance in a range of cells with the same neighbor offsets. */
+	private static void stencil(float[] current, float[] future, int lo, int hi, 
+			int[] offsets, float lKdif, float lKdeg, float minCon) {
+		int numNeighbors = offsets.length;
+		/* Future concentrations first hold the neighborhood total... */
+		for (int c = lo; c < hi; c++)
+			future[c] = 0;
+		for (int k = 0; k < numNeighbors; k++) {
+			int off = offsets[k];
+			for (int c = lo; c < hi; c++)
+				future[c] += current[c + off];
+		}
+		/* ...which is then replaced by the new local concentration. */
+		float lKdeg1 = 1 + lKdeg;
+		for (int c = lo; c < hi; c++) {
+			float currCon = current[c];
+			float difCon = lKdeg1 * (currCon + lKdif * (future[c] / numNeighbors - currCon));
+			future[c] = difCon > minCon ? difCon : 0;
+		}
+	}
+
+}
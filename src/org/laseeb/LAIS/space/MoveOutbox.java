@@ -0,0 +1,112 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.space;
+
+import org.laseeb.LAIS.agent.Agent;
+
+/**
+ * Agents moving to other cells during step one, collected by a single simulation
+ * thread and bucketed by the row of their destination cell. In step two, each
+ * thread picks from every outbox the agents moving to the cells it processes,
+ * so agents are delivered in parallel and only by the thread which owns the
+ * destination cell.
+ * <p>
+ * Outboxes are reused between ticks: an outbox is emptied by its own thread when
+ * it is first used in a new tick, and entries from previous ticks are ignored.
+ * <p>
+ * Outboxes are not thread-safe; they are filled by their thread during step one
+ * and only read during step two.
+ * 
+ * @author Nuno Fachada
+ */
+class MoveOutbox {
+	
+	/* Moving agents, paired with their destination cells, by destination row. */
+	private final AgentBatch[] rows;
+	/* Rows with moving agents in the current tick. */
+	private final int[] usedRows;
+	/* Number of rows with moving agents in the current tick. */
+	private int numUsedRows = 0;
+	/* Tick in which the moving agents were collected. */
+	private int tick = -1;
+	
+	/**
+	 * Creates an outbox for a space with the given number of rows.
+	 * 
+	 * @param sizeY Vertical dimension of the simulation space.
+	 */
+	MoveOutbox(int sizeY) {
+		rows = new AgentBatch[sizeY];
+		usedRows = new int[sizeY];
+	}
+	
+	/**
+	 * Prepares the outbox to collect the moving agents of the given tick, removing 
+	 * those of a previous tick.
+	 * 
+	 * @param tick The current tick.
+	 */
+	void begin(int tick) {
+		if (this.tick == tick)
+			return;
+		for (int i = 0; i < numUsedRows; i++)
+			rows[usedRows[i]].clear();
+		numUsedRows = 0;
+		this.tick = tick;
+	}
+	
+	/**
+	 * Adds an agent moving to the given cell.
+	 * 
+	 * @param ag The moving agent.
+	 * @param destination The cell where the agent moves to.
+	 */
+	void add(Agent ag, Cell2D destination) {
+		int row = destination.y;
+		AgentBatch batch = rows[row];
+		if (batch == null) {
+			batch = new AgentBatch();
+			rows[row] = batch;
+		}
+		if (batch.size == 0)
+			usedRows[numUsedRows++] = row;
+		batch.add(ag, destination);
+	}
+	
+	/**
+	 * Delivers the agents moving to the cells in the given range of the given row,
+	 * if they were collected in the given tick.
+	 * 
+	 * @param tick The current tick.
+	 * @param row The destination row.
+	 * @param start Index of the first destination cell.
+	 * @param end Index after the last destination cell.
+	 */
+	void deliver(int tick, int row, int start, int end) {
+		AgentBatch batch = rows[row];
+		if ((this.tick != tick) || (batch == null))
+			return;
+		for (int i = 0; i < batch.size; i++) {
+			Cell2D cell = batch.cells[i];
+			if ((cell.cellIndex >= start) && (cell.cellIndex < end))
+				cell.setAgentToMoveIn(batch.agents[i]);
+		}
+	}
+
+}
@@ -0,0 +1,250 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.space;
+
+import java.util.Arrays;
+
+import org.laseeb.LAIS.substance.Substance;
+
+/**
+ * Dense storage of substance concentrations for the whole simulation space. 
+ * Each substance present in the simulation space is assigned a slot (looked up
+ * by the substance's {@link org.laseeb.LAIS.substance.SubstanceRegistry} identifier), which holds 
+ * two primitive float arrays covering all the cells of the space (indexed by 
+ * {@link Cell2D#getCellIndex()}): the current concentrations, which are read by
+ * agents and by the diffusion step of neighbor cells, and the future concentrations, 
+ * which are modified by agents, merging and diffusion. A concentration of zero 
+ * means the substance is not present in the cell.
+ * <p>
+ * Slots are created on demand, possibly concurrently by several simulation threads
+ * (e.g. when a merge rule creates a new substance). Existing slot arrays are never 
+ * replaced, so values written to them are never lost when new slots are added.
+ * Slots of substances which are no longer present in any cell are reclaimed 
+ * between simulation passes (see {@link #reclaimEmptySlots()}) and reused for 
+ * other substances, so the number of slots follows the number of substances 
+ * present at a time, not the number of substances which ever existed.
+ * 
+ * @author Nuno Fachada
+ */
+public class SubstanceField {
+	
+	/* Number of cells in the space. */
+	private final int numCells;
+	/* Slot of each substance, indexed by substance identifier (-1 if no slot). */
+	private volatile int[] slots;
+	/* Substance in each slot. */
+	private volatile Substance[] substances;
+	/* Current concentrations, per slot. */
+	private volatile float[][] current;
+	/* Future concentrations, per slot. */
+	private volatile float[][] future;
+	/* Cells where each slot's current concentration is non-zero, per slot. */
+	private volatile CellBox[] presence;
+	/* Identifier of the substance in each slot. */
+	private int[] slotIds;
+	/* Reclaimed slots, available for reuse. */
+	private int[] freeSlots;
+	private int numFreeSlots;
+	
+	/**
+	 * Creates a new substance field for a space with the given number of cells.
+	 * 
+	 * @param numCells Number of cells in the space.
+	 */
+	public SubstanceField(int numCells) {
+		this.numCells = numCells;
+		this.slots = new int[0];
+		this.substances = new Substance[0];
+		this.current = new float[0][];
+		this.future = new float[0][];
+		this.presence = new CellBox[0];
+		this.slotIds = new int[0];
+		this.freeSlots = new int[0];
+		this.numFreeSlots = 0;
+	}
+
+	/**
+	 * Returns the slot of the substance with the given identifier, or -1 if the 
+	 * substance doesn't have a slot (in which case it's not present in any cell).
+	 * 
+	 * @param id The substance identifier.
+	 * @return The slot of the given substance, or -1 if the substance doesn't have a slot.
+	 */
+	public int getSlot(int id) {
+		int[] s = slots;
+		return id < s.length ? s[id] : -1;
+	}
+	
+	/**
+	 * Returns the slot of the given substance, creating it (or reusing a reclaimed
+	 * one) if necessary.
+	 * 
+	 * @param id The substance identifier.
+	 * @param sub The substance.
+	 * @return The slot of the given substance.
+	 */
+	public int slotFor(int id, Substance sub) {
+		int slot = getSlot(id);
+		if (slot >= 0)
+			return slot;
+		synchronized (this) {
+			slot = getSlot(id);
+			if ((slot < 0) && (numFreeSlots > 0)) {
+				/* Reclaimed slot arrays are all zeros, so they can be reused as they are. */
+				slot = freeSlots[--numFreeSlots];
+				Substance[] newSubstances = substances.clone();
+				newSubstances[slot] = sub;
+				slotIds[slot] = id;
+				substances = newSubstances;
+				slots = withSlot(id, slot);
+			} else if (slot < 0) {
+				int n = substances.length;
+				Substance[] newSubstances = new Substance[n + 1];
+				float[][] newCurrent = new float[n + 1][];
+				float[][] newFuture = new float[n + 1][];
+				CellBox[] newPresence = new CellBox[n + 1];
+				System.arraycopy(substances, 0, newSubstances, 0, n);
+				System.arraycopy(current, 0, newCurrent, 0, n);
+				System.arraycopy(future, 0, newFuture, 0, n);
+				System.arraycopy(presence, 0, newPresence, 0, n);
+				newSubstances[n] = sub;
+				newCurrent[n] = new float[numCells];
+				newFuture[n] = new float[numCells];
+				newPresence[n] = new CellBox();
+				slotIds = Arrays.copyOf(slotIds, n + 1);
+				slotIds[n] = id;
+				/* Publish arrays before the slot index, so that readers which 
+				 * obtain the slot index also see its arrays. */
+				current = newCurrent;
+				future = newFuture;
+				presence = newPresence;
+				substances = newSubstances;
+				slots = withSlot(id, n);
+				slot = n;
+			}
+		}
+		return slot;
+	}
+	
+	/**
+	 * Reclaims the slots of the substances which are not present in any cell, i.e.
+	 * whose presence box is empty after step one, so that they can be reused by other 
+	 * substances. Cells with non-zero concentrations are always within the region
+	 * processed in step one (see {@link ActiveRegion}), so the concentrations of these 
+	 * slots are zero in all cells. Must be invoked after step one and before diffusion,
+	 * while no simulation pass is running.
+	 */
+	public synchronized void reclaimEmptySlots() {
+		Substance[] newSubstances = null;
+		int[] newSlots = null;
+		for (int s = 0; s < substances.length; s++) {
+			if ((substances[s] == null) || !presence[s].isEmpty())
+				continue;
+			if (newSubstances == null) {
+				newSubstances = substances.clone();
+				newSlots = slots.clone();
+			}
+			newSubstances[s] = null;
+			newSlots[slotIds[s]] = -1;
+			if (numFreeSlots == freeSlots.length)
+				freeSlots = Arrays.copyOf(freeSlots, Math.max(4, 2 * numFreeSlots));
+			freeSlots[numFreeSlots++] = s;
+		}
+		if (newSubstances != null) {
+			substances = newSubstances;
+			slots = newSlots;
+		}
+	}
+	
+	/* Returns a copy of the slot index where the given substance identifier maps to the given slot. */
+	private int[] withSlot(int id, int slot) {
+		int[] newSlots = slots;
+		if (id >= newSlots.length) {
+			int oldLength = newSlots.length;
+			newSlots = Arrays.copyOf(newSlots, Math.max(id + 1, 2 * oldLength));
+			Arrays.fill(newSlots, oldLength, newSlots.length, -1);
+		} else {
+			newSlots = newSlots.clone();
+		}
+		newSlots[id] = slot;
+		return newSlots;
+	}
+	
+	/**
+	 * Returns the number of slots, including reclaimed slots which are not in use.
+	 * 
+	 * @return The number of slots.
+	 */
+	public int getNumSlots() {
+		return substances.length;
+	}
+	
+	/**
+	 * Returns the substance in the given slot.
+	 * 
+	 * @param slot The slot.
+	 * @return The substance in the given slot, or null if the slot was reclaimed.
+	 */
+	public Substance getSubstance(int slot) {
+		return substances[slot];
+	}
+	
+	/**
+	 * Returns the current concentrations of the substance in the given slot, for all cells.
+	 * 
+	 * @param slot The slot.
+	 * @return The current concentrations of the substance in the given slot.
+	 */
+	public float[] getCurrent(int slot) {
+		return current[slot];
+	}
+
+	/**
+	 * Returns the future concentrations of the substance in the given slot, for all cells.
+	 * 
+	 * @param slot The slot.
+	 * @return The future concentrations of the substance in the given slot.
+	 */
+	public float[] getFuture(int slot) {
+		return future[slot];
+	}
+	
+	/**
+	 * Returns the bounding box of the cells where the current concentration of the 
+	 * substance in the given slot is non-zero. The box is maintained by the cells 
+	 * themselves (see {@link Cell2D#updateSubstanceManager()}) and by the 
+	 * {@link ActiveRegion}.
+	 * 
+	 * @param slot The slot.
+	 * @return The bounding box of the cells where the substance in the given slot is present.
+	 */
+	public CellBox getPresence(int slot) {
+		return presence[slot];
+	}
+	
+	/**
+	 * Returns the number of cells in the space.
+	 * 
+	 * @return The number of cells in the space.
+	 */
+	public int getNumCells() {
+		return numCells;
+	}
+
+}
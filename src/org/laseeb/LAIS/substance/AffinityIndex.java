@@ -0,0 +1,178 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package org.laseeb.LAIS.substance;
+
+import java.util.Arrays;
+
+/**
+ * Affinities of the substances in a {@link SubstanceRegistry} with a given 
+ * query substance, as given by {@link Substance#affinityWith(Substance, int, int)}.
+ * Only substances of a given family (if any) with an affinity above a given 
+ * minimum are kept, so that substance matching conditions don't need to determine
+ * the affinity of every substance in a cell or agent, every tick.
+ * <p>
+ * Affinities are determined once per substance, when the substance is first 
+ * queried after being interned in the registry. Only the matching substances
+ * and their affinities are stored, so an index takes memory proportional to 
+ * the number of matches and not to the size of the registry. Indexes are obtained with
+ * {@link SubstanceRegistry#getAffinityIndex(Substance, SubstanceFamily, int, int, float)},
+ * and are shared by all the agents which query the same substance. An index is 
+ * no longer valid after its registry is cleared (see {@link #isValid()}).
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @author Nuno Fachada
+ */
+public class AffinityIndex {
+	
+	/* Query which identifies an affinity index within a registry. */
+	static final class Query {
+		final int subId;
+		final SubstanceFamily family;
+		final int startBit;
+		final int endBit;
+		final float minAffinity;
+		Query(int subId, SubstanceFamily family, int startBit, int endBit, float minAffinity) {
+			this.subId = subId;
+			this.family = family;
+			this.startBit = startBit;
+			this.endBit = endBit;
+			this.minAffinity = minAffinity;
+		}
+		public int hashCode() {
+			return subId * 31 + startBit * 17 + endBit * 7 
+				+ Float.floatToIntBits(minAffinity) 
+				+ (family != null ? family.hashCode() : 0);
+		}
+		public boolean equals(Object obj) {
+			Query q = (Query) obj;
+			return (subId == q.subId) && (family == q.family) 
+				&& (startBit == q.startBit) && (endBit == q.endBit)
+				&& (Float.floatToIntBits(minAffinity) == Float.floatToIntBits(q.minAffinity));
+		}
+	}
+	
+	/* Identifiers of the substances which match the query, in increasing order, 
+	 * together with their affinities and the number of registry substances which
+	 * have been checked against the query. Instances are immutable. */
+	private static final class State {
+		final int checked;
+		final int[] matches;
+		final float[] affinities;
+		State(int checked, int[] matches, float[] affinities) {
+			this.checked = checked;
+			this.matches = matches;
+			this.affinities = affinities;
+		}
+	}
+	
+	/* Affinity returned for non matching substances. */
+	private static final float NO_MATCH = -1.0f;
+	
+	/* Registry of indexed substances. */
+	private final SubstanceRegistry registry;
+	/* Substance to which the affinities refer to. */
+	private final Substance substance;
+	/* Query parameters. */
+	private final Query query;
+	/* Registry generation for which the index was created. */
+	private final int generation;
+	/* Current state of the index. */
+	private volatile State state;
+	
+	/* Affinity indexes are created by the substance registry. */
+	AffinityIndex(SubstanceRegistry registry, Substance substance, Query query) {
+		this.registry = registry;
+		this.substance = substance;
+		this.query = query;
+		this.generation = registry.getGeneration();
+		this.state = new State(0, new int[0], new float[0]);
+	}
+	
+	/**
+	 * Returns true if this index is still valid, i.e. if its registry was not 
+	 * cleared since the index was created, false otherwise.
+	 * 
+	 * @return True if this index is still valid, false otherwise.
+	 */
+	public boolean isValid() {
+		return registry.getGeneration() == generation;
+	}
+	
+	/**
+	 * Returns the affinity of the substance with the given identifier with the
+	 * query substance, if the former matches the query.
+	 * 
+	 * @param id Identifier of substance in the registry.
+	 * @return The affinity of the given substance with the query substance, or
+	 * a negative value if the given substance is not of the query family or its 
+	 * affinity is not above the minimum affinity.
+	 * @throws SubstanceException If not possible to determine affinity.
+	 */
+	public float getAffinity(int id) throws SubstanceException {
+		State s = state;
+		if (id >= s.checked)
+			s = update();
+		int pos = Arrays.binarySearch(s.matches, id);
+		return pos >= 0 ? s.affinities[pos] : NO_MATCH;
+	}
+	
+	/**
+	 * Returns the identifiers, in increasing order, of the substances which match 
+	 * the query, i.e. which are of the query family and have an affinity above 
+	 * the minimum affinity. The returned array must not be modified.
+	 * 
+	 * @return The identifiers of the substances which match the query.
+	 * @throws SubstanceException If not possible to determine affinity.
+	 */
+	public int[] getMatches() throws SubstanceException {
+		State s = state;
+		if (s.checked < registry.size())
+			s = update();
+		return s.matches;
+	}
+	
+	/* Determines the affinities of substances interned since the last update. */
+	private synchronized State update() throws SubstanceException {
+		State s = state;
+		int oldSize = s.checked;
+		int newSize = registry.size();
+		if (newSize <= oldSize)
+			return s;
+		int[] matches = Arrays.copyOf(s.matches, s.matches.length + newSize - oldSize);
+		float[] affinities = Arrays.copyOf(s.affinities, matches.length);
+		int numMatches = s.matches.length;
+		for (int id = oldSize; id < newSize; id++) {
+			Substance sub = registry.getSubstance(id);
+			if ((query.family != null) && !sub.getFamily().equals(query.family))
+				continue;
+			float affinity = substance.affinityWith(sub, query.startBit, query.endBit);
+			if (affinity > query.minAffinity) {
+				matches[numMatches] = id;
+				affinities[numMatches] = affinity;
+				numMatches++;
+			}
+		}
+		s = new State(newSize, Arrays.copyOf(matches, numMatches), Arrays.copyOf(affinities, numMatches));
+		state = s;
+		return s;
+	}
+
+}
@@ -109,13 +109,15 @@ public class SubFamilyMergeRule {
 	private static Logger logger = Logger.getLogger(SubFamilyMergeRule.class);
 	
 	/**
-	 * Merge two substances, if possible.
+	 * Merge two substances, if possible. If the merged substance already exists in 
+	 * the given registry, the existing instance is used.
 	 * @param sub1 First substance to merge.
 	 * @param sub2 Second substance to merge.
+	 * @param registry The simulation's substance registry.
 	 * @return Substance and affinity that corresponds to the merging of two other substances.
 	 * @throws SubstanceException If not possible to merge substances.
 	 */
-	public SubMergeRule merge(Substance sub1, Substance sub2) throws SubstanceException {
+	public SubMergeRule merge(Substance sub1, Substance sub2, SubstanceRegistry registry) throws SubstanceException {
 		/* Determine if substances correspond to families. */
 		if (((sub1.getFamily() == familyOne) && (sub2.getFamily() == familyTwo)) 
 				|| ((sub1.getFamily() == familyTwo) && (sub2.getFamily() == familyOne))) {
@@ -138,15 +140,16 @@ public class SubFamilyMergeRule {
 		/* If affinity between substance is equal or bigger than the minimum required 
 		 * affinity, then proceed with the merge. */
 		if (affinity >= minAffinity) {
-			float kDif = (sub1.getKDif() + sub2.getKDif()) / 2;
-			float kDeg = (sub1.getKDeg() + sub2.getKDeg()) / 2;
-			String name = SubstanceUtils.subNameRemoveAppend(sub1)
-				+ " + " 
-				+ SubstanceUtils.subNameRemoveAppend(sub2); 
+			String name = sub1.getBaseName() + " + " + sub2.getBaseName(); 
 			long bitId = SubstanceUtils.merge(sub1, sub2, fromBit, toBit);
-			Substance newSub = new Substance(kDif, kDeg, name, bitId, newFamily);
-			if (logger.isDebugEnabled())
-				logger.debug("Created new substance " + newSub.getName() + " with affinity " + affinity + " from substances " + sub1.getName() + " and " + sub2.getName() + "!");
+			Substance newSub = registry.lookup(newFamily, name, bitId);
+			if (newSub == null) {
+				float kDif = (sub1.getKDif() + sub2.getKDif()) / 2;
+				float kDeg = (sub1.getKDeg() + sub2.getKDeg()) / 2;
+				newSub = registry.canonical(new Substance(newFamily, name, bitId, kDif, kDeg));
+				if (logger.isDebugEnabled())
+					logger.debug("Created new substance " + newSub.getName() + " with affinity " + affinity + " from substances " + sub1.getName() + " and " + sub2.getName() + "!");
+			}
 			return new SubMergeRule(sub1, sub2, newSub, affinity);
 		} else {
 			return null;
@@ -0,0 +1,233 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package org.laseeb.LAIS.substance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of substance merging rules. Family merging rules are bucketed by the 
+ * pair of families they merge, so only the rules for the families of a given
+ * substance pair have to be tried. Substance merging rules, created from the
+ * family rules, are kept in an open addressing hash table keyed by the unordered
+ * pair of {@link SubstanceRegistry} identifiers of the merged substances, so finding
+ * the rule for a substance pair takes a single hash probe.
+ * <p>
+ * Rules are added by the simulation main thread, between simulation ticks; 
+ * during ticks the index is only read, so it can be shared by the simulation 
+ * threads without synchronization.
+ * 
+ * @author Nuno Fachada
+ */
+public class SubMergeRuleIndex {
+	
+	/* Marks empty positions of the hash table (pair keys are never negative). */
+	private static final long EMPTY = -1;
+	
+	/* Index of each family which takes part in family merging rules. */
+	private Map<SubstanceFamily, Integer> familyIndex;
+	/* Number of families which take part in family merging rules. */
+	private int numFamilies;
+	/* Family merging rules for each pair of family indexes (at position 
+	 * f1 * numFamilies + f2), null if there are none. */
+	private ArrayList<List<SubFamilyMergeRule>> familyRules;
+	
+	/* Keys of the hash table, i.e. unordered identifier pairs. */
+	private long[] keys;
+	/* Substance merging rules of the hash table. */
+	private SubMergeRule[] rules;
+	/* Substance merging rules, by order of creation. */
+	private List<SubMergeRule> ruleList;
+	
+	/**
+	 * Creates a new index for the given family merging rules, without substance 
+	 * merging rules.
+	 * 
+	 * @param subFamilyMergeRules The family merging rules; the order in which rules
+	 * for the same pair of families are tried is kept.
+	 */
+	public SubMergeRuleIndex(List<SubFamilyMergeRule> subFamilyMergeRules) {
+		familyIndex = new HashMap<SubstanceFamily, Integer>();
+		for (SubFamilyMergeRule sfmr : subFamilyMergeRules) {
+			if (!familyIndex.containsKey(sfmr.familyOne))
+				familyIndex.put(sfmr.familyOne, familyIndex.size());
+			if (!familyIndex.containsKey(sfmr.familyTwo))
+				familyIndex.put(sfmr.familyTwo, familyIndex.size());
+		}
+		numFamilies = familyIndex.size();
+		familyRules = new ArrayList<List<SubFamilyMergeRule>>(
+				Collections.<List<SubFamilyMergeRule>>nCopies(numFamilies * numFamilies, null));
+		for (SubFamilyMergeRule sfmr : subFamilyMergeRules) {
+			int f1 = familyIndex.get(sfmr.familyOne);
+			int f2 = familyIndex.get(sfmr.familyTwo);
+			List<SubFamilyMergeRule> pairRules = familyRules.get(f1 * numFamilies + f2);
+			if (pairRules == null) {
+				pairRules = new ArrayList<SubFamilyMergeRule>();
+				familyRules.set(f1 * numFamilies + f2, pairRules);
+				familyRules.set(f2 * numFamilies + f1, pairRules);
+			}
+			pairRules.add(sfmr);
+		}
+		clearRules();
+	}
+	
+	/**
+	 * Returns the index of the given family in family merging rules.
+	 * 
+	 * @param family A substance family.
+	 * @return The index of the given family, or -1 if the family doesn't take part
+	 * in any family merging rule.
+	 */
+	public int getFamilyIndex(SubstanceFamily family) {
+		Integer idx = familyIndex.get(family);
+		return idx != null ? idx : -1;
+	}
+	
+	/**
+	 * Returns the number of families which take part in family merging rules.
+	 * 
+	 * @return The number of families which take part in family merging rules.
+	 */
+	public int getNumFamilies() {
+		return numFamilies;
+	}
+	
+	/**
+	 * Checks if there are family merging rules for the given pair of families.
+	 * 
+	 * @param familyIdx1 Index of one of the families, as given by {@link #getFamilyIndex(SubstanceFamily)}.
+	 * @param familyIdx2 Index of the other family.
+	 * @return True if there are rules for the given pair of families, false otherwise.
+	 */
+	public boolean canMerge(int familyIdx1, int familyIdx2) {
+		return (familyIdx1 >= 0) && (familyIdx2 >= 0) 
+			&& (familyRules.get(familyIdx1 * numFamilies + familyIdx2) != null);
+	}
+	
+	/**
+	 * Returns the family merging rules which may merge the given substances.
+	 * 
+	 * @param sub1 One of the substances.
+	 * @param sub2 The other substance.
+	 * @return The family merging rules for the families of the given substances,
+	 * which is an empty list if there are none.
+	 */
+	public List<SubFamilyMergeRule> getFamilyRules(Substance sub1, Substance sub2) {
+		int f1 = getFamilyIndex(sub1.getFamily());
+		int f2 = getFamilyIndex(sub2.getFamily());
+		if (!canMerge(f1, f2))
+			return new ArrayList<SubFamilyMergeRule>(0);
+		return familyRules.get(f1 * numFamilies + f2);
+	}
+	
+	/**
+	 * Returns the substance merging rule for the given substance pair.
+	 * 
+	 * @param id1 Registry identifier of one of the substances in pair.
+	 * @param id2 Registry identifier of the other substance in pair.
+	 * @return The substance merging rule, or null if there is none.
+	 */
+	public SubMergeRule get(int id1, int id2) {
+		long key = pairKey(id1, id2);
+		int mask = keys.length - 1;
+		for (int pos = hash(key) & mask; keys[pos] != EMPTY; pos = (pos + 1) & mask) {
+			if (keys[pos] == key)
+				return rules[pos];
+		}
+		return null;
+	}
+	
+	/**
+	 * Adds a substance merging rule for the given substance pair, replacing the 
+	 * existing one, if any.
+	 * 
+	 * @param id1 Registry identifier of one of the substances in pair.
+	 * @param id2 Registry identifier of the other substance in pair.
+	 * @param rule The substance merging rule.
+	 */
+	public void put(int id1, int id2, SubMergeRule rule) {
+		/* Keep load factor below one half. */
+		if (2 * (ruleList.size() + 1) > keys.length)
+			rehash(2 * keys.length);
+		if (insert(pairKey(id1, id2), rule))
+			ruleList.add(rule);
+	}
+	
+	/**
+	 * Removes all substance merging rules, keeping the family merging rules.
+	 */
+	public void clearRules() {
+		keys = new long[64];
+		rules = new SubMergeRule[64];
+		Arrays.fill(keys, EMPTY);
+		ruleList = new ArrayList<SubMergeRule>();
+	}
+	
+	/**
+	 * Returns an iterator over the substance merging rules, by order of creation.
+	 * 
+	 * @return An iterator over the substance merging rules.
+	 */
+	public Iterator<SubMergeRule> iterator() {
+		return ruleList.iterator();
+	}
+	
+	/* Inserts a rule in the hash table, returning true if its key was not there. */
+	private boolean insert(long key, SubMergeRule rule) {
+		int mask = keys.length - 1;
+		int pos = hash(key) & mask;
+		while ((keys[pos] != EMPTY) && (keys[pos] != key))
+			pos = (pos + 1) & mask;
+		boolean isNew = keys[pos] == EMPTY;
+		keys[pos] = key;
+		rules[pos] = rule;
+		return isNew;
+	}
+	
+	/* Moves the hash table to a new table with the given capacity. */
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		SubMergeRule[] oldRules = rules;
+		keys = new long[capacity];
+		rules = new SubMergeRule[capacity];
+		Arrays.fill(keys, EMPTY);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY)
+				insert(oldKeys[i], oldRules[i]);
+		}
+	}
+	
+	/* Key of an unordered pair of identifiers. */
+	private static long pairKey(int id1, int id2) {
+		return id1 < id2 ? ((long) id1 << 32) | id2 : ((long) id2 << 32) | id1;
+	}
+	
+	/* Spreads the bits of a pair key. */
+	private static int hash(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key >>> 32);
+	}
+
+}
@@ -159,9 +159,15 @@ public class Substance implements CustomProbeable, Comparable<Substance> {
 	/* Color of substance - this should be moved to a substance data class, like in the agents case. */
 	private Color colorObject;
 	
+	/* Substance name without the bit identifier appendix. */
+	private String baseName;
+	
 	/* Hash code of substance object. */
 	private int hashCodeValue;
 	
+	/* Identifier assigned to this substance by a substance registry. */
+	volatile SubstanceRegistry.Entry registryEntry;
+	
 	/**
 	 * Constructor used to create mutated clones of substances and merged substances.
 	 * 
@@ -180,6 +186,17 @@ public class Substance implements CustomProbeable, Comparable<Substance> {
 		validateName();
 	}
 	
+	/* Constructor used to create substances whose name is already known to be 
+	 * without the bit identifier appendix, thus avoiding the regular expression 
+	 * work of validateName(). */
+	Substance(SubstanceFamily family, String baseName, long bitIdentifier, float kDif, float kDeg) {
+		this.kDif = kDif;
+		this.kDeg = kDeg;
+		this.bitIdentifier = bitIdentifier;
+		this.family = family;
+		setBaseName(baseName);
+	}
+	
 	/**
 	 * Public constructor used to create new substances from XML file.
 	 */
@@ -203,7 +220,11 @@ public class Substance implements CustomProbeable, Comparable<Substance> {
 	 * @param obj Object representing substance to compare to current substance.
 	 * @return True if the given object is the same substance as current substance; false otherwise.*/
 	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
 		Substance sub = (Substance) obj;
+		if (hashCodeValue != sub.hashCodeValue)
+			return false;
 		if ((bitIdentifier.equals(sub.bitIdentifier))
 				&& family.equals(sub.family)
 				&& name.equals(sub.name))
@@ -248,6 +269,15 @@ public class Substance implements CustomProbeable, Comparable<Substance> {
 		return name;
 	}
 	
+	/**
+	 * Returns the substance's name without the bit identifier appendix.
+	 * 
+	 * @return The substance's name without the bit identifier appendix.
+	 */
+	public String getBaseName() {
+		return baseName;
+	}
+	
 	/**
 	 * Same as getName.
 	 * 
@@ -283,14 +313,17 @@ public class Substance implements CustomProbeable, Comparable<Substance> {
 	}
 	
 	/**
-	 * Clone current substance with given mutation rates.
+	 * Clone current substance with given mutation rates. If the mutated substance
+	 * already exists in the given registry, the existing instance is returned 
+	 * instead of a new one.
 	 * 
 	 * @param mutationRate The mutation rate for the unique bit identifier (>0 and <=1).
 	 * @param rng An instance of a random number generator.
+	 * @param registry The simulation's substance registry.
 	 * @return A mutated clone of the current substance.
 	 * @throws SubstanceException If not possible to clone substance.
 	 */
-	public Substance cloneWithMutation(float mutationRate, IRng rng) throws SubstanceException {
+	public Substance cloneWithMutation(float mutationRate, IRng rng, SubstanceRegistry registry) throws SubstanceException {
 		if (!this.mutate) return this;
 		if (mutationRate == 0) return this;
 		/* Clone bitId. */
@@ -298,21 +331,27 @@ public class Substance implements CustomProbeable, Comparable<Substance> {
 		/* If no mutation took place, then return the same substance. */
 		if (newBitId == this.bitIdentifier)
 			return this;
-		/* Clone kDif. */
-		float newKDif = this.kDif * (1 + rng.nextFloatFromTo(-mutationRate/2, mutationRate/2));
-		/* Clone kDeg. */
-		float newKDeg = this.kDeg * (1 + rng.nextFloatFromTo(-mutationRate/2, mutationRate/2));
-		/* Clone name. */
-		String newName = this.name; //  + "_" + Long.toHexString(newBitId);
-		/* Create and return new substance. */
-		Substance newSub = new Substance(newKDif, newKDeg, newName, newBitId, this.family);
-		newSub.validateName();
+		/* If mutated substance already exists, return it. */
+		Substance newSub = registry.lookup(this.family, this.baseName, newBitId);
+		if (newSub != null)
+			return newSub;
+		/* Clone kDif and kDeg. Their mutations are determined by this substance and the
+		 * new bit identifier, not drawn from the random number generator, so that the 
+		 * mutated substance is the same whichever thread creates it first. */
+		long seed = 31 * bitIdentifier + baseName.hashCode();
+		seed = 31 * seed + 31 * Float.floatToIntBits(kDif) + Float.floatToIntBits(kDeg);
+		seed = 31 * seed + newBitId;
+		float newKDif = this.kDif * (1 + SubstanceUtils.mutationFactor(seed, mutationRate));
+		float newKDeg = this.kDeg * (1 + SubstanceUtils.mutationFactor(seed + 1, mutationRate));
+		/* Otherwise create new substance, which keeps the name of the current one. */
+		newSub = new Substance(this.family, this.baseName, newBitId, newKDif, newKDeg);
 		newSub.startBit = this.startBit;
 		newSub.endBit = this.endBit;
 		newSub.mergeable = this.mergeable;
 		newSub.mutate = this.mutate;
 		newSub.colorObject = this.colorObject;
-		return newSub;
+		/* Another thread may have created the same substance in the meantime. */
+		return registry.canonical(newSub);
 	}
 	
 	/**
@@ -352,9 +391,19 @@ public class Substance implements CustomProbeable, Comparable<Substance> {
 	 */
 	private void validateName() {
 		/* Remove previous name appendix. */
-		this.name = SubstanceUtils.subNameRemoveAppend(this);
+		setBaseName(SubstanceUtils.subNameRemoveAppend(this));
+	}
+	
+	/* Sets the substance name from the given name without appendix, and updates
+	 * the hash code accordingly. */
+	private void setBaseName(String baseName) {
+		this.baseName = baseName;
 		/* Add new name appendix. */
+		this.name = baseName;
 		this.name = SubstanceUtils.subNameAddAppend(this);
+		/* Create hash code. */
+		hashCodeValue = bitIdentifier.hashCode() ^ name.hashCode() 
+			^ (family != null ? family.hashCode() : 0);
 	}
 
 
@@ -372,10 +421,8 @@ public class Substance implements CustomProbeable, Comparable<Substance> {
 					Integer.parseInt(rgb[1]), 
 					Integer.parseInt(rgb[2]));
 		}
-		/* Validate last part of name. */
+		/* Validate last part of name and create hash code. */
 		validateName();
-		/* Create hash code. */
-		hashCodeValue = bitIdentifier.hashCode() ^ name.hashCode() ^ family.hashCode();
 	}
 
 	/**
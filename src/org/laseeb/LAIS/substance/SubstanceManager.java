@@ -18,8 +18,11 @@
 
 package org.laseeb.LAIS.substance;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.TreeMap;
@@ -86,12 +89,67 @@ public class SubstanceManager implements SubstanceProvider {
 	/* Map of family diversity. */
 	private HashMap<SubstanceFamily, Integer> famDiversity;
 
-	/* Substance merging rules. */
-	private Vector<SubMergeRule> subMergeRules = new Vector<SubMergeRule>();
+	/* Index of family and substance merging rules. Substance merging rules are 
+	 * kept between ticks, as they only depend on the merged substances. */
+	private SubMergeRuleIndex mergeRuleIndex;
+	
+	/* Substances in the order they were added to the substance set. */
+	private ArrayList<Substance> substanceList;
+	
+	/* Number of substances in the substance list already checked for merging rules. */
+	private int checkedSubstances;
+	
+	/* Checked mergeable substances, bucketed by family index in merging rules. */
+	private ArrayList<ArrayList<Substance>> mergeablesByFamily;
+	
+	/* Provides integer identifiers for the substances in the simulation. */
+	private SubstanceRegistry registry = new SubstanceRegistry();
+	
+	/* Concentration accumulators of all the threads which updated concentrations. */
+	private final List<ConcentrationAccumulator> accumulators = 
+		new ArrayList<ConcentrationAccumulator>();
+	
+	/* Concentration accumulator of the current thread. */
+	private final ThreadLocal<ConcentrationAccumulator> accumulator = 
+		new ThreadLocal<ConcentrationAccumulator>() {
+			protected ConcentrationAccumulator initialValue() {
+				ConcentrationAccumulator acc = new ConcentrationAccumulator();
+				synchronized (accumulators) {
+					accumulators.add(acc);
+				}
+				return acc;
+			}
+		};
 
 	/* ************************************************************************ */
 	/* ************************* INTERNAL CLASSES ***************************** */ 
 	/* ************************************************************************ */
+	
+	/* Concentrations of substances in the cells processed by one thread, indexed 
+	 * by substance registry identifier. Substances are kept in the order in which 
+	 * the thread found them. */
+	private static class ConcentrationAccumulator {
+		float[] cons = new float[16];
+		int[] ids = new int[16];
+		int numIds = 0;
+		/* Adds the given concentration to the substance with the given identifier. */
+		void add(int id, float con) {
+			if (id >= cons.length)
+				cons = Arrays.copyOf(cons, Math.max(id + 1, 2 * cons.length));
+			if (cons[id] == 0) {
+				if (numIds == ids.length)
+					ids = Arrays.copyOf(ids, 2 * ids.length);
+				ids[numIds++] = id;
+			}
+			cons[id] += con;
+		}
+		/* Removes all concentrations. */
+		void clear() {
+			for (int i = 0; i < numIds; i++)
+				cons[ids[i]] = 0;
+			numIds = 0;
+		}
+	}
 		
 	/**
 	 * This internal class is a data source regarding the concentration of substances in the simulation 
@@ -151,22 +209,6 @@ public class SubstanceManager implements SubstanceProvider {
 		 * @return Substance family concentration.
 		 */
 		public float getConcentration() {
-			/* Populate family concentrations map if necessary. Only do this once for each simulation
-			 * step. */
-			if (famConcentrations.isEmpty()) {
-				float con;
-				Iterator<Substance> iterSub = concentrations.keySet().iterator();
-				while (iterSub.hasNext()) {
-					Substance sub = iterSub.next();
-					SubstanceFamily subFam = sub.getFamily();
-					if (famConcentrations.containsKey(subFam))
-						con = famConcentrations.get(subFam);
-					else
-						con = 0;
-					con += concentrations.get(sub);
-					famConcentrations.put(subFam, con);
-				}
-			}
 			/* Return family concentration. */
 			if (famConcentrations.containsKey(this.myFamily))
 				return famConcentrations.get(this.myFamily);
@@ -201,23 +243,7 @@ public class SubstanceManager implements SubstanceProvider {
 		 * @return Substance family diversity (number of substances).
 		 */
 		public int getDiversity() {
-			/* Populate family diversity map if necessary. Only do this once for each simulation
-			 * step. */
-			if (famDiversity.isEmpty()) {
-				int diversity;
-				Iterator<Substance> iterSub = concentrations.keySet().iterator();
-				while (iterSub.hasNext()) {
-					Substance sub = iterSub.next();
-					SubstanceFamily subFam = sub.getFamily();
-					if (famDiversity.containsKey(subFam))
-						diversity = famDiversity.get(subFam);
-					else
-						diversity = 0;
-					diversity++;
-					famDiversity.put(subFam, diversity);
-				}
-			}
-			/* Return family concentration. */
+			/* Return family diversity. */
 			if (famDiversity.containsKey(this.myFamily))
 				return famDiversity.get(this.myFamily);
 			else
@@ -250,19 +276,15 @@ public class SubstanceManager implements SubstanceProvider {
 	 */
 	private SubMergeRule mergeSubstances(Substance sub1, Substance sub2) throws SubstanceException {
 		/* Check if pair exists in cache. */
-		Iterator<SubMergeRule> iterSubC = subMergeRules.iterator();
-		while (iterSubC.hasNext()) {
-			SubMergeRule sc = iterSubC.next();
-			if (sc.isPair(sub1, sub2))
-				return sc;
-		}
-		/* If not, compose substance if such rule exists. */
-		Iterator<SubFamilyMergeRule> iterMr = subFamilyMergeRules.iterator();
-		while (iterMr.hasNext()) {
-			SubFamilyMergeRule mr = iterMr.next();
-			SubMergeRule smgd = mr.merge(sub1, sub2);
+		int id1 = registry.getId(sub1), id2 = registry.getId(sub2);
+		SubMergeRule sc = mergeRuleIndex.get(id1, id2);
+		if (sc != null)
+			return sc;
+		/* If not, compose substance if such rule exists for the substance families. */
+		for (SubFamilyMergeRule mr : mergeRuleIndex.getFamilyRules(sub1, sub2)) {
+			SubMergeRule smgd = mr.merge(sub1, sub2, registry);
 			if (smgd != null) {
-				subMergeRules.add(smgd);
+				mergeRuleIndex.put(id1, id2, smgd);
 				return smgd;
 			}
 		}
@@ -290,7 +312,10 @@ public class SubstanceManager implements SubstanceProvider {
 		concentrations.clear();
 		famConcentrations.clear();
 		famDiversity.clear();
-		subMergeRules.clear();
+		synchronized (accumulators) {
+			for (ConcentrationAccumulator acc : accumulators)
+				acc.clear();
+		}
 	}
 	
 	/**
@@ -393,51 +418,112 @@ public class SubstanceManager implements SubstanceProvider {
 	}
 
 	/**
-	 * Update concentration map with substance concentrations in a given cell.
+	 * Add the concentration of a substance in a given cell to the concentrations
+	 * accumulated by the current thread. Accumulated concentrations only become 
+	 * visible after {@link #reduceConcentrations()} is invoked.
 	 * 
-	 * @param localSubCon The concentration of substances of a given cell.
+	 * @param sub The substance.
+	 * @param localCon The concentration of the substance in a given cell.
 	 */
-	public void updateConcentrations(Map<Substance, Float> localSubCon) {
-		Iterator<Substance> iter = localSubCon.keySet().iterator();
-		while (iter.hasNext()) {
-			Substance sub = (Substance) iter.next();
-			synchronized(substances) {
-				Float con = concentrations.get(sub);
-				if (con == null) {
-					con = 0.0f;
-					if (!substances.contains(sub)) {
-						substances.add(sub);
+	public void updateConcentration(Substance sub, float localCon) {
+		accumulator.get().add(registry.getId(sub), localCon);
+	}
+	
+	/**
+	 * Update the concentration map with the concentrations accumulated by all
+	 * threads since the last reduction, and determine family concentrations and 
+	 * diversity. This method must be invoked while no other thread updates 
+	 * concentrations, i.e. after all cells have been processed.
+	 */
+	public void reduceConcentrations() {
+		synchronized (accumulators) {
+			for (ConcentrationAccumulator acc : accumulators) {
+				for (int i = 0; i < acc.numIds; i++) {
+					Substance sub = registry.getSubstance(acc.ids[i]);
+					Float con = concentrations.get(sub);
+					if (con == null) {
+						con = 0.0f;
+						if (!substances.contains(sub)) {
+							substances.add(sub);
+							substanceList.add(sub);
+						}
 					}
+					concentrations.put(sub, con + acc.cons[acc.ids[i]]);
 				}
-				concentrations.put(sub, con + localSubCon.get(sub));
+				acc.clear();
 			}
 		}
+		/* Determine family concentrations and diversity. */
+		famConcentrations.clear();
+		famDiversity.clear();
+		for (Map.Entry<Substance, Float> entry : concentrations.entrySet()) {
+			SubstanceFamily subFam = entry.getKey().getFamily();
+			Float con = famConcentrations.get(subFam);
+			famConcentrations.put(subFam, (con != null ? con : 0) + entry.getValue());
+			Integer diversity = famDiversity.get(subFam);
+			famDiversity.put(subFam, (diversity != null ? diversity : 0) + 1);
+		}
 	}
 	
 	/**
 	 * Update cache of substance merge rules, to conform with possible new substances.
+	 * Only substances added since the last update are checked, against the previously 
+	 * checked mergeable substances of the families they can merge with.
 	 * @throws SubstanceException If not possible to update merge rules.
 	 */
 	public void updateMergeRules() throws SubstanceException {
-		//TODO Could only check new substances, thus saving time.
-		Vector<Substance> mergeables = new Vector<Substance>(substances);
-		while (!mergeables.isEmpty()) {
-			Substance sub = mergeables.firstElement();
-			if (sub.isMergeable()) {
-				for (int i = 1; i < mergeables.size(); i++) {
-					mergeSubstances(sub, mergeables.get(i));
+		int numSubs = substanceList.size();
+		for (; checkedSubstances < numSubs; checkedSubstances++) {
+			Substance sub = substanceList.get(checkedSubstances);
+			int family = mergeRuleIndex.getFamilyIndex(sub.getFamily());
+			if (!sub.isMergeable() || (family < 0))
+				continue;
+			for (int f = 0; f < mergeablesByFamily.size(); f++) {
+				if (mergeRuleIndex.canMerge(f, family)) {
+					for (Substance other : mergeablesByFamily.get(f))
+						mergeSubstances(other, sub);
 				}
 			}
-			mergeables.remove(0);
+			mergeablesByFamily.get(family).add(sub);
 		}
 	}
 	
+	/* Removes all substance merging rules and marks all substances as unchecked. */
+	private void resetMergeRules() {
+		mergeRuleIndex = new SubMergeRuleIndex(subFamilyMergeRules);
+		substanceList = new ArrayList<Substance>(substances);
+		checkedSubstances = 0;
+		mergeablesByFamily = new ArrayList<ArrayList<Substance>>();
+		for (int f = 0; f < mergeRuleIndex.getNumFamilies(); f++)
+			mergeablesByFamily.add(new ArrayList<Substance>());
+	}
+	
+	/**
+	 * Returns the registry which provides integer identifiers for the substances 
+	 * in the simulation.
+	 * 
+	 * @return The substance registry.
+	 */
+	public SubstanceRegistry getSubstanceRegistry() {
+		return registry;
+	}
+	
 	/**
 	 * Returns an iterator over the currently existing substance merging rules.
 	 * @return An iterator over the currently existing substance merging rules.
 	 */
 	public Iterator<SubMergeRule> mergeRuleIterator() {
-		return subMergeRules.iterator();
+		return mergeRuleIndex.iterator();
+	}
+	
+	/**
+	 * Returns the index of the currently existing substance merging rules, which
+	 * finds the rule for a substance pair with a single hash probe.
+	 * 
+	 * @return The index of the currently existing substance merging rules.
+	 */
+	public SubMergeRuleIndex getMergeRuleIndex() {
+		return mergeRuleIndex;
 	}
 	
 	/**
@@ -446,12 +532,14 @@ public class SubstanceManager implements SubstanceProvider {
 	 */
 	public void resetAll() {
 		resetConcentrations();
+		registry.clear();
 		families.clear();
 		families.addAll(familiesBak);
 		substances.clear();
 		substances.addAll(substancesBak);
 		subFamilyMergeRules.clear();
 		subFamilyMergeRules.addAll(subFamilyMergeRulesBak);
+		resetMergeRules();
 		System.gc();
 	}
 	
@@ -467,5 +555,6 @@ public class SubstanceManager implements SubstanceProvider {
 		substancesBak.addAll(substances);
 		subFamilyMergeRulesBak = new Vector<SubFamilyMergeRule>();
 		subFamilyMergeRulesBak.addAll(subFamilyMergeRules);	
+		resetMergeRules();
 	}
 }
@@ -33,6 +33,9 @@ import org.simpleframework.xml.Root;
  * <p>
  * Substance proxies can also represent other substance proxies, as well as a composition of
  * two substances, possibly yet to be merged (i.e., a future substance).
+ * <p>
+ * Each substance proxy belongs to a single agent, so proxies must be cloned when 
+ * referenced by other agents. 
  * 
  * @author Nuno Fachada
  */
@@ -87,6 +90,11 @@ public class SubstanceProxy implements Cloneable {
 	/* Substance merge rule. */
 	private SubMergeRule smr;
 	
+	/* Substance resolved in the context of the agent, if the merge was successful, and 
+	 * version of the agent's substance references when it was resolved (-1 if none). */
+	private Substance resolved;
+	private volatile int stamp = -1;
+	
 	/**
 	 * Constructor used by the XML serialization framework.
 	 */
@@ -107,10 +115,11 @@ public class SubstanceProxy implements Cloneable {
 	 * mutation rate.
 	 * @param mutationRate Substance mutation rate.
 	 * @param rng An instance of a random number generator.
+	 * @param registry The simulation's substance registry.
 	 * @return A cloned substance proxy.
 	 * @throws SubstanceException If not possible to clone substance proxy.
 	 */
-	public SubstanceProxy clone(float mutationRate, IRng rng) throws SubstanceException {
+	public SubstanceProxy clone(float mutationRate, IRng rng, SubstanceRegistry registry) throws SubstanceException {
 		/* Create clone. */
 		SubstanceProxy spNew = null;
 		try {
@@ -118,10 +127,12 @@ public class SubstanceProxy implements Cloneable {
 		} catch (CloneNotSupportedException cnse) {
 			throw new SubstanceException("Error in SubstanceProxy cloning!", cnse);
 		}
+		spNew.resolved = null;
+		spNew.stamp = -1;
 		/* Perform mutation of represented substance, if any. */
 		if (familyMergeRule == null) {
 			if (substance != null) {
-				spNew.substance = substance.cloneWithMutation(mutationRate, rng);
+				spNew.substance = substance.cloneWithMutation(mutationRate, rng, registry);
 			}
 		}
 		return spNew;
@@ -141,12 +152,19 @@ public class SubstanceProxy implements Cloneable {
 			return substance;
 		}
 		
+		/* In case of a composition of two substances, check if it was already resolved 
+		 * and the agent's substance references haven't changed since. */
+		int subRefVersion = agent.getSubRefVersion();
+		if (subRefVersion == stamp)
+			return resolved;
+		
 		try {
-			/* In case of a composition of two substances. */
-			if ((sub1 != null) && (sub2 != null)) {
-				if (sub1.equals(agent.getSubstanceByRef(subRef1).getSubstance(agent)) 
-						&& sub2.equals(agent.getSubstanceByRef(subRef2).getSubstance(agent))) {
+			if ((sub1 != null) && (sub2 != null) && (smr != null)) {
+				if ((sub1 == agent.getSubstanceByRef(subRef1).getSubstance(agent)) 
+						&& (sub2 == agent.getSubstanceByRef(subRef2).getSubstance(agent))) {
 					/* Substance already defined.*/
+					resolved = smr.newSub;
+					stamp = subRefVersion;
 					return smr.newSub;
 				}
 			}
@@ -158,11 +176,13 @@ public class SubstanceProxy implements Cloneable {
 					" could not get substance by reference from agent '" +
 					agent + "'.", ae);
 		}
-		smr = familyMergeRule.merge(sub1, sub2);
+		smr = familyMergeRule.merge(sub1, sub2, agent.getPrototype().getSubstanceRegistry());
 		if (smr == null)
 			return null;
 		else
 			substance = smr.newSub;
+		resolved = substance;
+		stamp = subRefVersion;
 		return substance;
 	}
 	
@@ -0,0 +1,242 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.substance;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns the substances of a simulation, assigning a dense integer identifier
+ * (0, 1, 2...) to each distinct substance, including substances created during 
+ * the simulation by mutation and merging. Equal substances (as given by 
+ * {@link Substance#equals(Object)}) get the same identifier, so hot-path 
+ * containers can be keyed by identifier instead of by substance.
+ * <p>
+ * The identifier is cached in the substance object, so after the first lookup
+ * obtaining the identifier of a substance does not require hashing or comparing 
+ * substances. Identifiers are only valid until the registry is cleared, which 
+ * happens when a new simulation run begins.
+ * <p>
+ * The registry also provides the canonical instance of each substance. Mutated
+ * and merged substances are looked up before being created, so that equal
+ * substances are represented by the same object and can be compared by identity.
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @author Nuno Fachada
+ */
+public class SubstanceRegistry {
+	
+	/* Identifier of a substance assigned by a registry during one of its generations. 
+	 * Instances are immutable, so they can be safely shared among threads. */
+	static final class Entry {
+		final SubstanceRegistry registry;
+		final int generation;
+		final int id;
+		Entry(SubstanceRegistry registry, int generation, int id) {
+			this.registry = registry;
+			this.generation = generation;
+			this.id = id;
+		}
+	}
+	
+	/* Identity of a substance, i.e. the properties compared by Substance.equals(), 
+	 * with the name given without the bit identifier appendix. This allows finding 
+	 * an interned substance before creating a new substance object. */
+	private static final class Key {
+		final SubstanceFamily family;
+		final String baseName;
+		final long bitIdentifier;
+		Key(SubstanceFamily family, String baseName, long bitIdentifier) {
+			this.family = family;
+			this.baseName = baseName;
+			this.bitIdentifier = bitIdentifier;
+		}
+		public int hashCode() {
+			return (int) (bitIdentifier ^ (bitIdentifier >>> 32)) ^ baseName.hashCode() 
+				^ (family != null ? family.hashCode() : 0);
+		}
+		public boolean equals(Object obj) {
+			Key key = (Key) obj;
+			return (bitIdentifier == key.bitIdentifier) 
+				&& (family == null ? key.family == null : family.equals(key.family))
+				&& baseName.equals(key.baseName);
+		}
+	}
+	
+	/* Maximum number of affinity indexes kept for sharing. */
+	private static final int MAX_AFFINITY_INDEXES = 4096;
+	
+	/* Identifiers of interned substances. */
+	private final Map<Key, Integer> ids;
+	/* Affinity indexes of substances, created on demand. */
+	private final ConcurrentMap<AffinityIndex.Query, AffinityIndex> affinityIndexes;
+	/* Interned substances, indexed by identifier. */
+	private volatile Substance[] substances;
+	/* Number of interned substances. */
+	private volatile int size;
+	/* Incremented each time the registry is cleared, invalidating cached identifiers. */
+	private volatile int generation;
+	
+	/**
+	 * Creates a new empty substance registry.
+	 */
+	public SubstanceRegistry() {
+		this.ids = new ConcurrentHashMap<Key, Integer>();
+		this.affinityIndexes = new ConcurrentHashMap<AffinityIndex.Query, AffinityIndex>();
+		this.substances = new Substance[16];
+		this.size = 0;
+		this.generation = 0;
+	}
+	
+	/**
+	 * Returns the identifier of the given substance, interning it if necessary.
+	 * 
+	 * @param sub The substance.
+	 * @return The identifier of the given substance.
+	 */
+	public int getId(Substance sub) {
+		Entry entry = sub.registryEntry;
+		if ((entry != null) && (entry.registry == this) && (entry.generation == generation))
+			return entry.id;
+		return intern(sub);
+	}
+	
+	/**
+	 * Returns the canonical instance of the given substance, i.e. the first 
+	 * interned substance equal to it.
+	 * 
+	 * @param sub The substance.
+	 * @return The canonical instance of the given substance.
+	 */
+	public Substance canonical(Substance sub) {
+		/* Interning may grow the substance array, so the identifier must be obtained first. */
+		int id = getId(sub);
+		return substances[id];
+	}
+	
+	/**
+	 * Returns the interned substance with the given family, name (without the
+	 * bit identifier appendix) and bit identifier, if any. This method is used
+	 * to avoid creating new substance objects for substances which already exist.
+	 * 
+	 * @param family The substance family.
+	 * @param baseName The substance name, without the bit identifier appendix.
+	 * @param bitIdentifier The substance bit identifier.
+	 * @return The interned substance, or <code>null</code> if no such substance 
+	 * was interned.
+	 */
+	public Substance lookup(SubstanceFamily family, String baseName, long bitIdentifier) {
+		Integer id = ids.get(new Key(family, baseName, bitIdentifier));
+		return id != null ? substances[id] : null;
+	}
+	
+	/**
+	 * Returns the index of the affinities of the interned substances with the given
+	 * substance, creating it if necessary. Indexes are kept so that they can be 
+	 * shared, up to a maximum number of indexes; beyond that, the kept indexes are 
+	 * discarded, remaining valid for the callers which still hold them. Callers 
+	 * should therefore keep the indexes they use instead of getting them every time.
+	 * 
+	 * @param sub The substance to which affinities refer to.
+	 * @param family If not <code>null</code>, only substances of this family are indexed.
+	 * @param startBit Bit from where to start determining the affinity.
+	 * @param endBit Bit where to end determining the affinity.
+	 * @param minAffinity Only substances with an affinity above this value are indexed.
+	 * @return The affinity index for the given parameters.
+	 */
+	public AffinityIndex getAffinityIndex(Substance sub, SubstanceFamily family, 
+			int startBit, int endBit, float minAffinity) {
+		AffinityIndex.Query query = new AffinityIndex.Query(
+				getId(sub), family, startBit, endBit, minAffinity);
+		AffinityIndex index = affinityIndexes.get(query);
+		if (index == null) {
+			if (affinityIndexes.size() >= MAX_AFFINITY_INDEXES)
+				affinityIndexes.clear();
+			index = new AffinityIndex(this, canonical(sub), query);
+			AffinityIndex existing = affinityIndexes.putIfAbsent(query, index);
+			if (existing != null)
+				index = existing;
+		}
+		return index;
+	}
+	
+	/**
+	 * Returns the substance with the given identifier.
+	 * 
+	 * @param id The substance identifier.
+	 * @return The substance with the given identifier.
+	 */
+	public Substance getSubstance(int id) {
+		return substances[id];
+	}
+	
+	/**
+	 * Returns the number of interned substances; identifiers are always
+	 * lower than this value.
+	 * 
+	 * @return The number of interned substances.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/* Returns the current generation of the registry, which changes when the registry is cleared. */
+	int getGeneration() {
+		return generation;
+	}
+	
+	/**
+	 * Removes all substances from the registry, invalidating previously 
+	 * assigned identifiers and affinity indexes.
+	 */
+	public synchronized void clear() {
+		ids.clear();
+		affinityIndexes.clear();
+		substances = new Substance[16];
+		size = 0;
+		generation++;
+	}
+	
+	/* Looks up or assigns the identifier of the given substance, caching it in the substance. */
+	private int intern(Substance sub) {
+		Key key = new Key(sub.getFamily(), sub.getBaseName(), sub.getBitIdentifier());
+		Integer id = ids.get(key);
+		if (id == null) {
+			synchronized (this) {
+				id = ids.get(key);
+				if (id == null) {
+					id = size;
+					if (id == substances.length) {
+						Substance[] newSubstances = new Substance[2 * substances.length];
+						System.arraycopy(substances, 0, newSubstances, 0, size);
+						substances = newSubstances;
+					}
+					substances[id] = sub;
+					size = id + 1;
+					ids.put(key, id);
+				}
+			}
+		}
+		sub.registryEntry = new Entry(this, generation, id);
+		return id;
+	}
+
+}
@@ -160,6 +160,26 @@ public class SubstanceUtils {
 		return strBuf.toString();
 	}
 
+	/**
+	 * Returns a pseudo-random value between <code>-rate/2</code> and <code>rate/2</code>, 
+	 * always the same for the same seed. Used to mutate the diffusion and degradation
+	 * coefficients of substances.
+	 * 
+	 * @param seed The seed which determines the value.
+	 * @param rate Mutation rate.
+	 * @return A pseudo-random value between <code>-rate/2</code> and <code>rate/2</code>.
+	 */
+	public static float mutationFactor(long seed, float rate) {
+		/* Mix seed bits (SplitMix64 finalizer). */
+		long z = seed + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		/* The 24 highest bits give a uniform value between 0 and 1 in float precision. */
+		float u = (z >>> 40) / (float) (1 << 24);
+		return rate * (u - 0.5f);
+	}
+	
 	/**
 	 * Returns a new substance bit identifier based on the given substance bit identifier,
 	 * but with possible mutations.
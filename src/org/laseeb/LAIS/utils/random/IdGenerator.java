@@ -0,0 +1,69 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package org.laseeb.LAIS.utils.random;
+
+/**
+ * Generates unique and deterministic 64-bit identifiers within a partition. 
+ * The partition number is kept in the upper 32 bits of the identifier and a 
+ * counter in the lower 32 bits, so generators with different partitions never 
+ * produce the same identifier. Identifiers only repeat within a partition after 
+ * 2<sup>32</sup> identifiers have been generated.
+ * <p>
+ * Generators are not thread safe: each partition should belong to a single
+ * client, such as a cell, which is never used by more than one thread at a 
+ * time. As long as clients request identifiers in a deterministic order, the
+ * generated identifiers are also deterministic.
+ * 
+ * @author Nuno Fachada
+ */
+public class IdGenerator {
+	
+	/* Number of bits of the counter. */
+	private static final int COUNTER_BITS = 32;
+	
+	/* Mask of the counter bits. */
+	private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+	
+	/* The partition number, already shifted to the upper bits. */
+	private final long partition;
+	
+	/* Number of identifiers generated so far. */
+	private long counter;
+	
+	/**
+	 * Creates a new identifier generator for the given partition.
+	 * 
+	 * @param partition The partition number, unique for each client.
+	 */
+	public IdGenerator(int partition) {
+		this.partition = ((long) partition) << COUNTER_BITS;
+		this.counter = 0;
+	}
+	
+	/**
+	 * Returns the next identifier of this partition.
+	 * 
+	 * @return The next identifier of this partition.
+	 */
+	public long nextId() {
+		return partition | (counter++ & COUNTER_MASK);
+	}
+
+}
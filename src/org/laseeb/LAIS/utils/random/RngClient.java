@@ -43,7 +43,8 @@ public interface RngClient {
 	 * This value will be used as a unique agent identifier.
 	 * 
 	 * @return A unique and deterministic ID based on client properties.
+	 * @see IdGenerator
 	 */
-	public int getUniqueID();
+	public long getUniqueID();
 
 }
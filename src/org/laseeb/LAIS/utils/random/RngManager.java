@@ -27,6 +27,9 @@ import org.apache.log4j.Logger;
  * {@link RngClient}. In fact it implements {@link RngClient}, thus being a 
  * client of itself, in order to serve has a random number generator for
  * global serial LAIS code.
+ * <p>
+ * Each {@link org.laseeb.LAIS.LAISModel} owns its random number manager, so
+ * several models can run concurrently in the same VM without sharing generators.
  *  
  * @author Nuno Fachada
  *
@@ -39,36 +42,23 @@ public class RngManager implements RngClient {
 	private ConcurrentHashMap<RngClient, IRng> rngMap = 
 		new ConcurrentHashMap<RngClient, IRng>();
 	/* For statistical and debugging purposes. */
-	private static ConcurrentHashMap<RngClient, Integer> stats;
-	
-	static {
-		if (logger.isDebugEnabled())
-			stats = new ConcurrentHashMap<RngClient, Integer>();
-	}
+	private ConcurrentHashMap<RngClient, Integer> stats;
 	
 	/* Random seed. */
 	private Long seed = null;
 	/* Random number generator factory. */
 	private IRngFactory rngFactory = null;
-	/* Number of agents produced (required for unique ID). */
-	private long agentsProduced = 0;
-	
-	/* Single instance. */
-	private static RngManager instance = null;
-	
-	/* Private constructor, required in order for this class to be a singleton. */
-	private RngManager() {}
+	/* Generator of unique agent IDs for global serial LAIS code. Cells use the 
+	 * partitions following this one. */
+	private IdGenerator idGenerator = new IdGenerator(0);
 	
 	/**
-	 * Get the single instance of the random number manager.
-	 * 
-	 * @return The single instance of the random number manager.
+	 * Creates a new random number manager. The seed and rng factory must be set
+	 * before any generator is requested.
 	 */
-	public static RngManager getInstance() {
-		if (instance == null) {
-			instance = new RngManager();
-		}
-		return instance;
+	public RngManager() {
+		if (logger.isDebugEnabled())
+			stats = new ConcurrentHashMap<RngClient, Integer>();
 	}
 
 	/**
@@ -109,10 +99,12 @@ public class RngManager implements RngClient {
 	}
 
 	/**
-	 * Clears all distributions.
+	 * Clears all distributions and restarts the generation of unique IDs, so that
+	 * each run with the same seed produces the same IDs.
 	 */
 	public void clear() {
 		rngMap.clear();
+		idGenerator = new IdGenerator(0);
 	}
 
 	/**
@@ -127,6 +119,16 @@ public class RngManager implements RngClient {
 			this.seed = newSeed;
 	}
 	
+	/**
+	 * Returns the random seed.
+	 * 
+	 * @return The random seed used in rng created from now on, or null if it 
+	 * wasn't set yet.
+	 */
+	public Long getSeed() {
+		return seed;
+	}
+	
 	/**
 	 * Sets the rng factory. This method should only be called from LAIS model.
 	 * 
@@ -154,9 +156,8 @@ public class RngManager implements RngClient {
 	 * @return A unique and deterministic ID based on client properties.
 	 */
 	@Override
-	public int getUniqueID() {
-		agentsProduced++;
-		return (this.getClass().getSimpleName() + agentsProduced).hashCode();
+	public long getUniqueID() {
+		return idGenerator.nextId();
 	}
 
 }
@@ -30,6 +30,10 @@ public class MockAgent extends Agent {
 		super(id);
 		// TODO Auto-generated constructor stub
 	}
+	public MockAgent(long id, AgentPrototype prototype) {
+		super(id);
+		setPrototype(prototype);
+	}
 	/* Substance map. */
 	public HashMap<String, Substance> subMap = new HashMap<String, Substance>();
 	public SubstanceProxy getSubstanceByRef(String subRef) {
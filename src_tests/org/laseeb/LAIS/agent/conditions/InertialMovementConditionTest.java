@@ -27,6 +27,7 @@ import org.apache.log4j.Logger;
 import org.apache.log4j.xml.DOMConfigurator;
 import org.junit.Before;
 import org.junit.Test;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.space.Cell2D;
 import org.laseeb.LAIS.space.MockCell;
 
@@ -70,7 +71,7 @@ public class InertialMovementConditionTest {
 			InertialMovementCondition imc = new InertialMovementCondition();
 			/* Create and initialize necessary objects. */
 			imc.index = 0;
-			Object message[] = new Object[1];
+			GeneMessage message = new GeneMessage(1);
 			MockCell cell = new MockCell(numNeighs);
 			cell.initNeighbors();
 			TreeMap<Float, Integer> stats = new TreeMap<Float, Integer>();
@@ -86,7 +87,7 @@ public class InertialMovementConditionTest {
 					try {
 						/* Get a direction. */
 						if (imc.evaluate(null, cell, message)) {
-							Integer direction = (Integer) message[0];
+							Integer direction = message.getInt(0);
 							if (lastDirection != -1) {
 								/* Agent was moving, determine deviation. */
 								Cell2D destinationCell = cell.neighbors.get(direction);
@@ -133,7 +134,7 @@ public class InertialMovementConditionTest {
 			InertialMovementCondition imc = new InertialMovementCondition();
 			/* Create and initialize necessary objects. */
 			imc.index = 0;
-			Object message[] = new Object[1];
+			GeneMessage message = new GeneMessage(1);
 			MockCell cell = new MockCell(numNeighs);
 			cell.initNeighbors();
 			TreeMap<Integer, Integer> stats;
@@ -150,7 +151,7 @@ public class InertialMovementConditionTest {
 					try {
 						Integer direction;
 						if (imc.evaluate(null, cell, message)) {
-							direction = (Integer) message[0];
+							direction = message.getInt(0);
 						} else {
 							direction = -1;
 						}
@@ -204,7 +205,7 @@ public class InertialMovementConditionTest {
 					cellList.add(cell);					
 				}
 				/* Create and initialize necessary objects. */
-				Object message[] = new Object[1];
+				GeneMessage message = new GeneMessage(1);
 				TreeMap<Integer, Integer> stats;
 				stats = new TreeMap<Integer, Integer>();
 				for (int i = 0; i < numNeighs; i++)
@@ -215,7 +216,7 @@ public class InertialMovementConditionTest {
 					for (int n = 0; n < imcList.size(); n++) {
 						try {
 							if (imcList.get(n).evaluate(null, cellList.get(n), message)) {
-								int direction = (Integer) message[0];
+								int direction = message.getInt(0);
 								stats.put(direction, stats.get(direction) + 1);	
 								Cell2D destinationCell = cellList.get(n).neighbors.get(direction);
 								Cell2D originCell = cellList.get(n).getOppositeCell(destinationCell);
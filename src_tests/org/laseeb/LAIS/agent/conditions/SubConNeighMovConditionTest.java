@@ -28,6 +28,7 @@ import java.util.HashMap;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.laseeb.LAIS.agent.GeneMessage;
 import org.laseeb.LAIS.agent.MockAgent;
 import org.laseeb.LAIS.space.Cell2D;
 import org.laseeb.LAIS.space.MockCell;
@@ -75,7 +76,7 @@ public class SubConNeighMovConditionTest {
 	}
 
 	/**
-	 * Test method for {@link org.laseeb.LAIS.agent.conditions.SubConNeighMovCondition#evaluate(org.laseeb.LAIS.agent.Agent, org.laseeb.LAIS.space.Cell2D, java.lang.Object[])}.
+	 * Test method for {@link org.laseeb.LAIS.agent.conditions.SubConNeighMovCondition#evaluate(org.laseeb.LAIS.agent.Agent, org.laseeb.LAIS.space.Cell2D, org.laseeb.LAIS.agent.GeneMessage)}.
 	 */
 	@Test
 	public final void testEvaluate() {
@@ -189,7 +190,7 @@ public class SubConNeighMovConditionTest {
 	}
 
 	private int[] performTest(SubConNeighMovCondition cond, Cell2D currCell) {
-		Object message[] = new Object[5];
+		GeneMessage message = new GeneMessage(5);
 		int testArray[] = new int[numSidesToTest + 1];
 		Arrays.fill(testArray, 0);
 		for (int i = 0; i < this.testTimes; i++) {
@@ -198,7 +199,7 @@ public class SubConNeighMovConditionTest {
 				if (!cond.evaluate(agent, currCell, message)) {
 					inc = 0;
 				} else {
-					inc = ((Integer) message[messageIndex]) + 1;
+					inc = message.getInt(messageIndex) + 1;
 				}
 			} catch (ConditionException e) {
 				fail(e.getMessage());
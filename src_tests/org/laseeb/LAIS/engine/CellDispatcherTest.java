@@ -0,0 +1,134 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.engine;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.laseeb.LAIS.space.SquareMooreSpaceAdapter;
+
+/**
+ * Tests {@link org.laseeb.LAIS.engine.CellDispatcher} class.
+ * 
+ * @author Nuno Fachada
+ */
+public class CellDispatcherTest {
+
+	/* Dimensions of the test space. */
+	int sizeX = 17;
+	int sizeY = 11;
+	/* Number of passes in the concurrent test. */
+	int numPasses = 200;
+	
+	/**
+	 * Test that a single worker gets every cell exactly once, first from its own 
+	 * chunks and then by stealing the chunks of the other workers.
+	 */
+	@Test
+	public final void testSingleWorkerSteals() {
+		CellDispatcher dispatcher = new CellDispatcher(new SquareMooreSpaceAdapter(sizeX, sizeY, false), 4, 5);
+		for (int worker = 0; worker < dispatcher.getNumWorkers(); worker++) {
+			dispatcher.reInit();
+			assertEquals(sizeX * sizeY, dispatcher.getRemainingCells());
+			int[] counts = new int[dispatcher.getNumCells()];
+			int chunk;
+			while ((chunk = dispatcher.nextChunk(worker)) >= 0) {
+				for (int c = dispatcher.getChunkStart(chunk); c < dispatcher.getChunkEnd(chunk); c++)
+					counts[c]++;
+			}
+			for (int c = 0; c < counts.length; c++)
+				assertEquals("Cell " + c, 1, counts[c]);
+			assertEquals(0, dispatcher.getRemainingCells());
+			assertEquals(-1, dispatcher.nextChunk((worker + 1) % dispatcher.getNumWorkers()));
+		}
+	}
+	
+	/**
+	 * Test that the chunks cover the whole space when the chunk size doesn't divide
+	 * the number of cells, and that chunks are rows when no chunk size is given.
+	 */
+	@Test
+	public final void testChunkLimits() {
+		CellDispatcher dispatcher = new CellDispatcher(new SquareMooreSpaceAdapter(sizeX, sizeY, false), 3, 0);
+		dispatcher.reInit();
+		int numChunks = 0;
+		int chunk;
+		while ((chunk = dispatcher.nextChunk(0)) >= 0) {
+			assertEquals(sizeX, dispatcher.getChunkEnd(chunk) - dispatcher.getChunkStart(chunk));
+			numChunks++;
+		}
+		assertEquals(sizeY, numChunks);
+		dispatcher = new CellDispatcher(new SquareMooreSpaceAdapter(sizeX, sizeY, false), 3, 10);
+		dispatcher.reInit();
+		int numCells = 0;
+		while ((chunk = dispatcher.nextChunk(2)) >= 0)
+			numCells += dispatcher.getChunkEnd(chunk) - dispatcher.getChunkStart(chunk);
+		assertEquals(sizeX * sizeY, numCells);
+	}
+	
+	/**
+	 * Test that concurrent workers, which steal from each other when finishing 
+	 * their own chunks, process every cell exactly once in every pass.
+	 */
+	@Test
+	public final void testConcurrentWorkers() throws InterruptedException {
+		final int numWorkers = 4;
+		final CellDispatcher dispatcher = new CellDispatcher(new SquareMooreSpaceAdapter(sizeX, sizeY, false), numWorkers, 2);
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		for (int pass = 0; pass < numPasses; pass++) {
+			dispatcher.reInit();
+			final AtomicIntegerArray counts = new AtomicIntegerArray(dispatcher.getNumCells());
+			final CountDownLatch start = new CountDownLatch(1);
+			Thread[] threads = new Thread[numWorkers];
+			for (int w = 0; w < numWorkers; w++) {
+				final int worker = w;
+				threads[w] = new Thread() {
+					public void run() {
+						try {
+							start.await();
+							int chunk;
+							while ((chunk = dispatcher.nextChunk(worker)) >= 0) {
+								/* Slow down one of the workers so the others steal its chunks. */
+								if (worker == 0)
+									Thread.sleep(1);
+								for (int c = dispatcher.getChunkStart(chunk); c < dispatcher.getChunkEnd(chunk); c++)
+									counts.incrementAndGet(c);
+							}
+						} catch (Throwable t) {
+							error.compareAndSet(null, t);
+						}
+					}
+				};
+				threads[w].start();
+			}
+			start.countDown();
+			for (Thread t : threads)
+				t.join();
+			assertNull(error.get());
+			for (int c = 0; c < counts.length(); c++)
+				assertEquals("Cell " + c + " in pass " + pass, 1, counts.get(c));
+			assertEquals(0, dispatcher.getRemainingCells());
+		}
+	}
+
+}
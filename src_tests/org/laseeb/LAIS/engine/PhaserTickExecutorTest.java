@@ -0,0 +1,69 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.engine;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.laseeb.LAIS.space.CellStepException;
+import org.laseeb.LAIS.space.SquareMooreSpaceAdapter;
+
+/**
+ * Tests {@link org.laseeb.LAIS.engine.PhaserTickExecutor} class.
+ * 
+ * @author Nuno Fachada
+ */
+public class PhaserTickExecutorTest {
+
+	/**
+	 * Test that errors thrown while processing cells are reported by the pass,
+	 * and that the simulation threads survive them.
+	 */
+	@Test(timeout = 10000)
+	public final void testErrorInPass() throws CellStepException {
+		PhaserTickExecutor executor = new PhaserTickExecutor();
+		executor.start(new SquareMooreSpaceAdapter(10, 10, false), 4, 5);
+		try {
+			try {
+				executor.executeRangePass(new TickExecutor.RangeTask() {
+					public void perform(int start, int end) {
+						if (start == 0)
+							throw new StackOverflowError();
+					}
+				});
+				fail("Pass should have failed.");
+			} catch (CellStepException cse) {
+				assertTrue(cse.getCause() instanceof StackOverflowError);
+			}
+			/* Threads are still alive and process the next pass. */
+			final AtomicInteger numCells = new AtomicInteger(0);
+			executor.executeRangePass(new TickExecutor.RangeTask() {
+				public void perform(int start, int end) {
+					numCells.addAndGet(end - start);
+				}
+			});
+			assertEquals(100, numCells.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
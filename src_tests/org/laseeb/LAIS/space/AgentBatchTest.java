@@ -0,0 +1,147 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.space;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.MockAgent;
+
+/**
+ * Tests {@link org.laseeb.LAIS.space.AgentBatch} class.
+ * 
+ * @author Nuno Fachada
+ */
+public class AgentBatchTest {
+
+	/**
+	 * Test the sortUnique() method on a batch without paired cells.
+	 */
+	@Test
+	public final void testSortUnique() {
+		Agent[] agents = createAgents(6);
+		AgentBatch batch = new AgentBatch();
+		int[] order = {4, 1, 5, 1, 0, 4, 4, 3};
+		for (int i : order)
+			batch.add(agents[i]);
+		batch.sortUnique();
+		assertBatch(batch, agents[0], agents[1], agents[3], agents[4], agents[5]);
+		/* References to removed agents are released. */
+		for (int i = batch.size; i < batch.agents.length; i++)
+			assertNull(batch.agents[i]);
+	}
+	
+	/**
+	 * Test the sortUnique() method on a batch with paired cells, where the cell 
+	 * last paired with a repeated agent must be kept.
+	 */
+	@Test
+	public final void testSortUniqueLastCellWins() {
+		Agent[] agents = createAgents(4);
+		Cell2D[] cells = createCells(4);
+		AgentBatch batch = new AgentBatch();
+		batch.add(agents[2], cells[0]);
+		batch.add(agents[1], cells[1]);
+		batch.add(agents[2], cells[2]);
+		batch.add(agents[0], cells[3]);
+		batch.add(agents[1], cells[0]);
+		batch.add(agents[2], cells[3]);
+		/* Consecutive moves of the same agent only replace the cell. */
+		batch.add(agents[3], cells[0]);
+		batch.add(agents[3], cells[1]);
+		assertEquals(7, batch.size);
+		batch.sortUnique();
+		assertBatch(batch, agents[0], agents[1], agents[2], agents[3]);
+		assertSame(cells[3], batch.cells[0]);
+		assertSame(cells[0], batch.cells[1]);
+		assertSame(cells[3], batch.cells[2]);
+		assertSame(cells[1], batch.cells[3]);
+		for (int i = batch.size; i < batch.cells.length; i++)
+			assertNull(batch.cells[i]);
+	}
+	
+	/**
+	 * Test the seek() method.
+	 */
+	@Test
+	public final void testSeek() {
+		Agent[] agents = createAgents(8);
+		AgentBatch batch = new AgentBatch();
+		batch.add(agents[1]);
+		batch.add(agents[3]);
+		batch.add(agents[6]);
+		assertEquals(0, batch.seek(agents[0], 0));
+		assertEquals(0, batch.seek(agents[1], 0));
+		assertEquals(1, batch.seek(agents[2], 0));
+		assertEquals(1, batch.seek(agents[3], 1));
+		assertEquals(2, batch.seek(agents[4], 1));
+		assertEquals(2, batch.seek(agents[6], 2));
+		assertEquals(3, batch.seek(agents[7], 2));
+		/* Seeking never goes back. */
+		assertEquals(2, batch.seek(agents[0], 2));
+	}
+	
+	/**
+	 * Test the insert() and addAll() methods.
+	 */
+	@Test
+	public final void testInsertAndAddAll() {
+		Agent[] agents = createAgents(6);
+		AgentBatch batch = new AgentBatch();
+		batch.add(agents[0]);
+		batch.add(agents[2]);
+		batch.insert(1, agents[1]);
+		batch.insert(3, agents[3]);
+		assertBatch(batch, agents[0], agents[1], agents[2], agents[3]);
+		AgentBatch other = new AgentBatch();
+		other.add(agents[5]);
+		other.add(agents[4]);
+		batch.addAll(other);
+		assertBatch(batch, agents[0], agents[1], agents[2], agents[3], agents[5], agents[4]);
+		batch.clear();
+		assertEquals(0, batch.size);
+		for (Agent ag : batch.agents)
+			assertNull(ag);
+	}
+	
+	/* Creates agents with increasing identifiers, some of them negative. */
+	static Agent[] createAgents(int n) {
+		Agent[] agents = new Agent[n];
+		for (int i = 0; i < n; i++)
+			agents[i] = new MockAgent((i - n / 2) * 1000000007L, null);
+		return agents;
+	}
+	
+	/* Creates cells which are not part of a space. */
+	private static Cell2D[] createCells(int n) {
+		Cell2D[] cells = new Cell2D[n];
+		for (int i = 0; i < n; i++)
+			cells[i] = new Cell2D(i, 0, null, null, null, null);
+		return cells;
+	}
+	
+	/* Checks that the batch holds exactly the given agents, in the given order. */
+	private static void assertBatch(AgentBatch batch, Agent... expected) {
+		assertEquals(expected.length, batch.size);
+		for (int i = 0; i < expected.length; i++)
+			assertSame(expected[i], batch.agents[i]);
+	}
+
+}
@@ -0,0 +1,187 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.space;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.laseeb.LAIS.agent.Agent;
+import org.laseeb.LAIS.agent.AgentManager;
+import org.laseeb.LAIS.agent.AgentPrototype;
+import org.laseeb.LAIS.agent.MockAgent;
+import org.laseeb.LAIS.substance.SubstanceManager;
+
+/**
+ * Tests the agent updates of {@link org.laseeb.LAIS.space.Cell2D} class, i.e. how 
+ * deaths, births and moves collected in step one are applied in step two.
+ * 
+ * @author Nuno Fachada
+ */
+public class Cell2DTest {
+
+	/* Dimensions of the test space. */
+	int sizeX = 3;
+	int sizeY = 3;
+	/* The test space and its active region. */
+	Abstract2DSpaceAdapter space;
+	ActiveRegion activeRegion;
+	/* Prototype of the test agents. */
+	AgentPrototype prototype;
+	
+	/* Agent which performs the given behavior when playing. */
+	private static class ScriptedAgent extends MockAgent {
+		Behavior behavior;
+		ScriptedAgent(long id, AgentPrototype prototype, Behavior behavior) {
+			super(id, prototype);
+			this.behavior = behavior;
+		}
+		public void play(Cell2D cell) {
+			if (behavior != null)
+				behavior.play(this, cell);
+		}
+	}
+	
+	/* Behavior of a scripted agent. */
+	private interface Behavior {
+		void play(Agent agent, Cell2D cell);
+	}
+	
+	@Before
+	public void setUp() {
+		space = new SquareMooreSpaceAdapter(sizeX, sizeY, false);
+		SubstanceManager substanceMan = new SubstanceManager();
+		AgentManager agentMan = new AgentManager();
+		for (int y = 0; y < sizeY; y++)
+			for (int x = 0; x < sizeX; x++)
+				space.putCell2DAt(x, y, new Cell2D(x, y, space, substanceMan, agentMan, null));
+		space.buildNeighborTables();
+		activeRegion = space.getActiveRegion();
+		prototype = new AgentPrototype("Scripted");
+	}
+	
+	/**
+	 * Test that, of several moves of the same agent in a tick, only the last one 
+	 * is performed.
+	 */
+	@Test
+	public final void testDuplicateMovesLastWins() throws CellStepException {
+		final Cell2D origin = space.getCell2DAt(1, 1);
+		final Cell2D destA = space.getCell2DAt(0, 0);
+		final Cell2D destB = space.getCell2DAt(2, 2);
+		final ScriptedAgent other = new ScriptedAgent(20, prototype, null);
+		ScriptedAgent mover = new ScriptedAgent(10, prototype, new Behavior() {
+			public void play(Agent agent, Cell2D cell) {
+				cell.setAgentToMoveOut(agent, destA);
+				cell.setAgentToMoveOut(other, destA);
+				cell.setAgentToMoveOut(agent, destB);
+			}
+		});
+		origin.addAgent(other);
+		origin.addAgent(mover);
+		step();
+		assertAgents(origin);
+		assertAgents(destA, other);
+		assertAgents(destB, mover);
+	}
+	
+	/**
+	 * Test that an agent which is both killed and moved in the same tick is not
+	 * delivered to its destination cell.
+	 */
+	@Test
+	public final void testKilledAgentIsNotDelivered() throws CellStepException {
+		final Cell2D origin = space.getCell2DAt(1, 1);
+		final Cell2D dest = space.getCell2DAt(1, 0);
+		final ScriptedAgent survivor = new ScriptedAgent(30, prototype, null);
+		ScriptedAgent victim = new ScriptedAgent(-5, prototype, new Behavior() {
+			public void play(Agent agent, Cell2D cell) {
+				cell.setAgentToMoveOut(agent, dest);
+				cell.setAgentToMoveOut(survivor, dest);
+				cell.setAgentToDie(agent);
+			}
+		});
+		origin.addAgent(victim);
+		origin.addAgent(survivor);
+		step();
+		assertAgents(origin);
+		assertAgents(dest, survivor);
+		/* Nothing is left to deliver in the following tick. */
+		step();
+		assertAgents(origin);
+		assertAgents(dest, survivor);
+	}
+	
+	/**
+	 * Test that births and arrivals are merged into the cell's agents, keeping them
+	 * sorted and without duplicates.
+	 */
+	@Test
+	public final void testMergeKeepsAgentsSortedAndUnique() throws CellStepException {
+		final Cell2D cell = space.getCell2DAt(1, 1);
+		final Cell2D neighbor = space.getCell2DAt(2, 1);
+		final ScriptedAgent[] newborns = {
+				new ScriptedAgent(Long.MIN_VALUE, prototype, null),
+				new ScriptedAgent(15, prototype, null),
+				new ScriptedAgent(Long.MAX_VALUE, prototype, null)};
+		final ScriptedAgent resident1 = new ScriptedAgent(-40, prototype, null);
+		final ScriptedAgent resident2 = new ScriptedAgent(40, prototype, new Behavior() {
+			public void play(Agent agent, Cell2D c) {
+				/* Agents born twice, and a resident registered as born again. */
+				for (ScriptedAgent newborn : newborns) {
+					c.setAgentToBorn(newborn);
+					c.setAgentToBorn(newborn);
+				}
+				c.setAgentToBorn(resident1);
+			}
+		});
+		final ScriptedAgent traveler = new ScriptedAgent(0, prototype, new Behavior() {
+			public void play(Agent agent, Cell2D c) {
+				c.setAgentToMoveOut(agent, cell);
+			}
+		});
+		cell.addAgent(resident2);
+		cell.addAgent(resident1);
+		neighbor.addAgent(traveler);
+		step();
+		assertAgents(cell, newborns[0], resident1, traveler, newborns[1], resident2, newborns[2]);
+		assertAgents(neighbor);
+		assertEquals(6, cell.getNumAgents(prototype));
+	}
+	
+	/* Performs both simulation steps on all cells. */
+	private void step() throws CellStepException {
+		activeRegion.beginStepOne();
+		activeRegion.stepOne(0, sizeX * sizeY);
+		activeRegion.beginStepTwo();
+		activeRegion.beginDiffusion();
+		activeRegion.stepTwo(0, sizeX * sizeY);
+	}
+	
+	/* Checks that the cell holds exactly the given agents, in the given order. */
+	private static void assertAgents(Cell2D cell, Agent... expected) {
+		assertEquals(Arrays.asList(expected), 
+				Arrays.asList(Arrays.copyOf(cell.agentsInCell, cell.numAgents)));
+		for (int i = 1; i < cell.numAgents; i++)
+			assertTrue(cell.agentsInCell[i - 1].compareTo(cell.agentsInCell[i]) < 0);
+	}
+
+}
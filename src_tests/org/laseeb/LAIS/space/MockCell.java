@@ -22,12 +22,14 @@ import java.util.HashMap;
 import java.util.Vector;
 
 import org.laseeb.LAIS.substance.Substance;
+import org.laseeb.LAIS.utils.random.IRng;
 import org.laseeb.LAIS.utils.random.RngManager;
 
 /* Mock cell. */
 public class MockCell extends Cell2D {
 	public HashMap<Substance, Float> subConMap;
 	public Vector<Cell2D> neighbors;
+	static RngManager rngManager = new RngManager();
 	int numSidesToTest;
 	public MockCell(int numSidesToTest) {
 		super(0, 0, null, null, null, null);
@@ -78,7 +80,7 @@ public class MockCell extends Cell2D {
 		/* If number of neighbors is not pair, then there is no exact opposite neighbor. 
 		 * Choose one randomly. */
 		if (numSidesToTest % 2 != 0) {
-			distance += RngManager.getInstance().getRng(this).nextIntFromTo(0, 1);
+			distance += getRng().nextIntFromTo(0, 1);
 		}
 		/* Determine non-null opposite cell. */
 		Cell2D oppNeigh = null;
@@ -92,8 +94,10 @@ public class MockCell extends Cell2D {
 		/* Return opposite cell. */
 		return oppNeigh;
 	}
-	protected void stepSubstanceDiffEvap() {}
 	public Vector<Cell2D> getNeighbors() {return neighbors;}
+	public IRng getRng() {return rngManager.getRng(this);}
+	public Cell2D[] getNeighborCells() {return neighbors.toArray(new Cell2D[neighbors.size()]);}
+	public int getNeighborIndex(Cell2D cell) {return neighbors.indexOf(cell);}
 	public float getSubstanceCon(Substance sub) {
 		if (subConMap.containsKey(sub)) {return subConMap.get(sub);} 
 		else {return 0.0f;}
@@ -0,0 +1,91 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.space;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.laseeb.LAIS.substance.Substance;
+
+/**
+ * Tests {@link org.laseeb.LAIS.space.SubstanceField} class.
+ * 
+ * @author Nuno Fachada
+ */
+public class SubstanceFieldTest {
+
+	/* Number of cells of the test field. */
+	int numCells = 9;
+	/* The test field. */
+	SubstanceField field;
+	/* Test substances. */
+	Substance subA, subB, subC;
+	
+	@Before
+	public void setUp() {
+		field = new SubstanceField(numCells);
+		subA = new Substance(0.1f, 0.01f, "A", 0, null);
+		subB = new Substance(0.1f, 0.01f, "B", 0, null);
+		subC = new Substance(0.1f, 0.01f, "C", 0, null);
+	}
+
+	/**
+	 * Test that slots of substances not present in any cell are reclaimed, while 
+	 * slots of present substances are kept.
+	 */
+	@Test
+	public final void testReclaimEmptySlots() {
+		int slotA = field.slotFor(0, subA);
+		int slotB = field.slotFor(1, subB);
+		/* Only substance A is present. */
+		field.getCurrent(slotA)[4] = 1.0f;
+		field.getPresence(slotA).include(1, 1);
+		field.reclaimEmptySlots();
+		assertEquals(slotA, field.getSlot(0));
+		assertSame(subA, field.getSubstance(slotA));
+		assertEquals(-1, field.getSlot(1));
+		assertNull(field.getSubstance(slotB));
+	}
+
+	/**
+	 * Test that reclaimed slots are reused by new substances, so that the number 
+	 * of slots does not grow.
+	 */
+	@Test
+	public final void testReuseReclaimedSlot() {
+		field.slotFor(0, subA);
+		field.slotFor(1, subB);
+		field.reclaimEmptySlots();
+		int slotC = field.slotFor(2, subC);
+		assertTrue(slotC < 2);
+		assertSame(subC, field.getSubstance(slotC));
+		assertEquals(slotC, field.getSlot(2));
+		assertEquals(2, field.getNumSlots());
+		/* Reclaimed slots hold no concentrations. */
+		for (int c = 0; c < numCells; c++)
+			assertEquals(0.0f, field.getFuture(slotC)[c], 0.0f);
+		/* A reclaimed substance gets a slot again when it reappears. */
+		int newSlotB = field.slotFor(1, subB);
+		assertTrue(newSlotB < 2);
+		assertTrue(newSlotB != slotC);
+		assertEquals(2, field.getNumSlots());
+	}
+
+}
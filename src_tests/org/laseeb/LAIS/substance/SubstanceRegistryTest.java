@@ -0,0 +1,79 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.substance;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the affinity indexes of {@link org.laseeb.LAIS.substance.SubstanceRegistry} class.
+ * 
+ * @author Nuno Fachada
+ */
+public class SubstanceRegistryTest {
+
+	/* The test registry. */
+	SubstanceRegistry registry;
+	/* Test substances. */
+	Substance query, match, other;
+	
+	@Before
+	public void setUp() {
+		registry = new SubstanceRegistry();
+		SubstanceFamily family = new SubstanceFamily("Family", 1.0f, Color.RED);
+		query = new Substance(0.1f, 0.01f, "Query", 0x00L, family);
+		match = new Substance(0.1f, 0.01f, "Match", 0xFFL, family);
+		other = new Substance(0.1f, 0.01f, "Other", 0x01L, family);
+	}
+
+	/**
+	 * Test that affinity indexes are shared, and find substances interned after 
+	 * the index was created.
+	 */
+	@Test
+	public final void testAffinityIndex() throws SubstanceException {
+		AffinityIndex index = registry.getAffinityIndex(query, null, 0, 7, 0.5f);
+		assertSame(index, registry.getAffinityIndex(query, null, 0, 7, 0.5f));
+		assertNotSame(index, registry.getAffinityIndex(query, null, 0, 7, 0.6f));
+		int matchId = registry.getId(match);
+		int otherId = registry.getId(other);
+		assertArrayEquals(new int[] {matchId}, index.getMatches());
+		assertEquals(1.0f, index.getAffinity(matchId), 0.0f);
+		assertTrue(index.getAffinity(otherId) < 0);
+	}
+
+	/**
+	 * Test that affinity indexes are no longer valid after the registry is cleared.
+	 */
+	@Test
+	public final void testAffinityIndexInvalidAfterClear() {
+		AffinityIndex index = registry.getAffinityIndex(query, null, 0, 7, 0.5f);
+		assertTrue(index.isValid());
+		registry.clear();
+		assertFalse(index.isValid());
+		AffinityIndex newIndex = registry.getAffinityIndex(query, null, 0, 7, 0.5f);
+		assertNotSame(index, newIndex);
+		assertTrue(newIndex.isValid());
+	}
+
+}
@@ -0,0 +1,76 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.substance;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+
+import org.junit.Test;
+import org.laseeb.LAIS.utils.random.RngJavaAdapter;
+
+/**
+ * Tests the mutation of {@link org.laseeb.LAIS.substance.Substance} class.
+ * 
+ * @author Nuno Fachada
+ */
+public class SubstanceTest {
+
+	/**
+	 * Test that the coefficients of a mutated substance only depend on the parent 
+	 * substance and the new bit identifier, and not on the random number generator
+	 * or on which thread creates the mutated substance first.
+	 */
+	@Test
+	public final void testMutationDeterministic() throws SubstanceException {
+		SubstanceFamily family = new SubstanceFamily("Family", 1.0f, Color.RED);
+		Substance parent = new Substance(0.1f, 0.01f, "Sub", 0, family);
+		parent.mutate = true;
+		parent.startBit = 0;
+		parent.endBit = 7;
+		/* With a mutation rate of one all bits in range are flipped. */
+		SubstanceRegistry registry = new SubstanceRegistry();
+		Substance mutant1 = parent.cloneWithMutation(1.0f, new RngJavaAdapter(1), new SubstanceRegistry());
+		Substance mutant2 = parent.cloneWithMutation(1.0f, new RngJavaAdapter(2), registry);
+		assertEquals(Long.valueOf(0xFFL), mutant1.getBitIdentifier());
+		assertEquals(mutant1, mutant2);
+		assertEquals(Float.floatToIntBits(mutant1.getKDif()), Float.floatToIntBits(mutant2.getKDif()));
+		assertEquals(Float.floatToIntBits(mutant1.getKDeg()), Float.floatToIntBits(mutant2.getKDeg()));
+		/* Mutating again returns the interned substance. */
+		assertSame(mutant2, parent.cloneWithMutation(1.0f, new RngJavaAdapter(3), registry));
+	}
+
+	/**
+	 * Test that mutation factors are within the mutation rate, and centered at zero.
+	 */
+	@Test
+	public final void testMutationFactor() {
+		float rate = 0.2f;
+		double sum = 0;
+		int n = 10000;
+		for (int i = 0; i < n; i++) {
+			float factor = SubstanceUtils.mutationFactor(i, rate);
+			assertTrue(factor >= -rate / 2);
+			assertTrue(factor < rate / 2);
+			sum += factor;
+		}
+		assertEquals(0.0, sum / n, 0.005);
+	}
+
+}
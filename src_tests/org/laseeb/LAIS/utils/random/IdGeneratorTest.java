@@ -0,0 +1,83 @@
+/*   
+ * This file is part of LAIS (LaSEEB Agent Interaction Simulator).
+ * 
+ * LAIS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * LAIS is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with LAIS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.laseeb.LAIS.utils.random;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link org.laseeb.LAIS.utils.random.IdGenerator} class.
+ * 
+ * @author Nuno Fachada
+ */
+public class IdGeneratorTest {
+
+	/* Number of identifiers generated per partition. */
+	int numIds = 10000;
+	
+	/**
+	 * Test that generators with different partitions never produce the same 
+	 * identifier, including partitions at the limits of the partition range.
+	 */
+	@Test
+	public final void testPartitionsNeverCollide() {
+		int[] partitions = {0, 1, 2, 3, 1000, 65535, 65536, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+		Set<Long> ids = new HashSet<Long>();
+		for (int p : partitions) {
+			IdGenerator generator = new IdGenerator(p);
+			for (int i = 0; i < numIds; i++) {
+				long id = generator.nextId();
+				assertEquals("Partition " + p, p, (int) (id >>> 32));
+				assertTrue("Repeated id " + id, ids.add(id));
+			}
+		}
+		assertEquals(partitions.length * numIds, ids.size());
+	}
+	
+	/**
+	 * Test that generators of the same partition produce the same identifiers.
+	 */
+	@Test
+	public final void testDeterministic() {
+		IdGenerator generator1 = new IdGenerator(42);
+		IdGenerator generator2 = new IdGenerator(42);
+		for (int i = 0; i < numIds; i++)
+			assertEquals(generator1.nextId(), generator2.nextId());
+	}
+	
+	/**
+	 * Test that the random number manager restarts its identifiers when cleared,
+	 * so each run with the same seed produces the same identifiers.
+	 */
+	@Test
+	public final void testRngManagerClear() {
+		RngManager rngManager = new RngManager();
+		long[] firstRun = new long[100];
+		for (int i = 0; i < firstRun.length; i++)
+			firstRun[i] = rngManager.getUniqueID();
+		rngManager.clear();
+		for (int i = 0; i < firstRun.length; i++)
+			assertEquals(firstRun[i], rngManager.getUniqueID());
+	}
+
+}